@@ -30,9 +30,17 @@ android {
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
+        // java.time cho minSdk 24 (TimeBuckets)
+        isCoreLibraryDesugaringEnabled = true
+    }
+    testOptions {
+        // Unit test chạy trên JVM: các lớp android.* (Log, SystemClock...) trả giá trị mặc định
+        unitTests.isReturnDefaultValues = true
     }
     buildFeatures {
         viewBinding = true
+        // BuildConfig.DEBUG dùng cho các kiểm tra luồng ở bản debug
+        buildConfig = true
     }
 }
 
@@ -77,7 +85,12 @@ dependencies {
     implementation(libs.lifecycle.viewmodel.ktx)
     implementation(libs.navigation.fragment)
     implementation(libs.navigation.ui)
+    implementation(libs.room.runtime)
+    implementation(libs.work.runtime)
+    annotationProcessor(libs.room.compiler)
+    coreLibraryDesugaring(libs.desugar.jdk.libs)
     testImplementation(libs.junit)
+    testImplementation(libs.core.testing)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -26,6 +26,8 @@ import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
 
 import com.example.quanlychitieu.auth.LoginActivity;
+import com.example.quanlychitieu.data.repository.AmountMigration;
+import com.example.quanlychitieu.data.repository.MonthlySummaryRepository;
 import com.example.quanlychitieu.data.repository.TransactionRepository;
 import com.example.quanlychitieu.databinding.ActivityMainBinding;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
@@ -116,6 +118,12 @@ public class MainActivity extends AppCompatActivity {
         // Đặt context cho TransactionRepository
         TransactionRepository.getInstance().setContext(getApplicationContext());
 
+        // Tạo tài liệu tổng hợp theo tháng cho dữ liệu cũ (chỉ chạy một lần)
+        MonthlySummaryRepository.getInstance().backfillIfNeeded(getApplicationContext());
+
+        // Chuyển số tiền cũ dạng số thực sang số nguyên đồng (chỉ chạy một lần)
+        AmountMigration.getInstance().runIfNeeded(getApplicationContext());
+
         storagePermissionLauncher = registerForActivityResult(
                 new ActivityResultContracts.RequestMultiplePermissions(),
                 result -> {
@@ -4,20 +4,41 @@ import android.app.Application;
 import android.util.Log;
 import java.util.Locale;
 
+import com.example.quanlychitieu.data.local.DashboardStateStore;
+import com.example.quanlychitieu.data.local.TransactionLocalStore;
+import com.example.quanlychitieu.data.repository.PeriodCache;
+import com.example.quanlychitieu.service.BudgetRolloverWorker;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.PersistentCacheSettings;
 
 public class QuanLyChiTieuApplication extends Application {
     private static final String TAG = "QuanLyChiTieuApp";
+    // Dung lượng cache Firestore trên đĩa, đủ cho nhiều năm giao dịch của một người dùng
+    private static final long FIRESTORE_CACHE_SIZE_BYTES = 100L * 1024 * 1024;
 
     @Override
     public void onCreate() {
         super.onCreate();
 
+        // Khởi tạo kho giao dịch cục bộ trước khi các repository được tạo
+        TransactionLocalStore.init(this);
+        DashboardStateStore.init(this);
+
         try {
             // Khởi tạo Firebase
             FirebaseApp.initializeApp(this);
 
+            // Cấu hình cache trên đĩa trước khi Firestore được dùng lần đầu,
+            // để dữ liệu đã tải vẫn đọc được bằng Source.CACHE khi khởi động lại
+            FirebaseFirestore.getInstance().setFirestoreSettings(new FirebaseFirestoreSettings.Builder()
+                    .setLocalCacheSettings(PersistentCacheSettings.newBuilder()
+                            .setSizeBytes(FIRESTORE_CACHE_SIZE_BYTES)
+                            .build())
+                    .build());
+
             FirebaseAuth auth = FirebaseAuth.getInstance();
             auth.useAppLanguage();
 
@@ -27,5 +48,15 @@ public class QuanLyChiTieuApplication extends Application {
         } catch (Exception e) {
             Log.e(TAG, "Error initializing Firebase", e);
         }
+
+        // Lên lịch tự động tạo ngân sách kỳ mới (chỉ áp dụng cho ngân sách đã bật tùy chọn này)
+        BudgetRolloverWorker.schedule(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Giải phóng cache dữ liệu theo kỳ khi hệ thống thiếu bộ nhớ
+        PeriodCache.getInstance().trimMemory(level);
     }
 }
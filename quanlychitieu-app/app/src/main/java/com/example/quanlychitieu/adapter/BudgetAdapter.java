@@ -49,7 +49,8 @@ public class BudgetAdapter extends ListAdapter<Budget, BudgetViewHolder> {
         public boolean areContentsTheSame(@NonNull Budget oldItem, @NonNull Budget newItem) {
             return oldItem.getCategory().equals(newItem.getCategory()) &&
                     oldItem.getAmount() == newItem.getAmount() &&
-                    oldItem.getSpent() == newItem.getSpent();
+                    oldItem.getSpent() == newItem.getSpent() &&
+                    oldItem.getForecast() == newItem.getForecast();
         }
     }
 
@@ -44,7 +44,7 @@ public class BudgetCategoryAdapter extends RecyclerView.Adapter<BudgetCategoryAd
         };
     }
 
-    public void updateData(Map<String, Double> expenses, Map<String, Double> budgets) {
+    public void updateData(Map<String, Long> expenses, Map<String, Long> budgets) {
         items.clear();
 
         // Lấy tất cả các danh mục chi tiêu
@@ -53,8 +53,8 @@ public class BudgetCategoryAdapter extends RecyclerView.Adapter<BudgetCategoryAd
         int colorIndex = 0;
         for (String category : categories) {
             // Lấy giá trị chi tiêu và ngân sách cho danh mục
-            double spent = expenses.getOrDefault(category, 0.0);
-            double budget = budgets.getOrDefault(category, 0.0);
+            double spent = expenses.getOrDefault(category, 0L);
+            double budget = budgets.getOrDefault(category, 0L);
 
             // Tính phần trăm chính xác, không giới hạn ở 100%
             int percentage = 0;
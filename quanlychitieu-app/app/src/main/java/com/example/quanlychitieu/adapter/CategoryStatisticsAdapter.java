@@ -45,12 +45,12 @@ public class CategoryStatisticsAdapter extends RecyclerView.Adapter<CategoryStat
         };
     }
 
-    public void updateData(Map<String, Double> categoryExpenses) {
+    public void updateData(Map<String, Long> categoryExpenses) {
         items.clear();
 
         // Tính tổng chi tiêu
         totalAmount = 0;
-        for (Double amount : categoryExpenses.values()) {
+        for (long amount : categoryExpenses.values()) {
             totalAmount += amount;
         }
 
@@ -58,7 +58,7 @@ public class CategoryStatisticsAdapter extends RecyclerView.Adapter<CategoryStat
         Map<String, Integer> categoryColorMap = ChartHelper.createCategoryColorMap(context);
 
         // Thêm các mục vào danh sách
-        for (Map.Entry<String, Double> entry : categoryExpenses.entrySet()) {
+        for (Map.Entry<String, Long> entry : categoryExpenses.entrySet()) {
             String category = entry.getKey();
             double amount = entry.getValue();
 
@@ -13,7 +13,11 @@ import com.example.quanlychitieu.adapter.viewholder.TransactionViewHolder;
 import com.example.quanlychitieu.data.model.Transaction;
 
 public class TransactionAdapter extends ListAdapter<Transaction, TransactionViewHolder> {
+    // Số mục còn lại trước mép cửa sổ thì bắt đầu tải trang kế tiếp
+    private static final int PREFETCH_DISTANCE = 10;
+
     private OnTransactionClickListener listener;
+    private OnLoadMoreListener loadMoreListener;
 
     public interface OnTransactionClickListener {
         void onTransactionClick(Transaction transaction);
@@ -21,6 +25,11 @@ public class TransactionAdapter extends ListAdapter<Transaction, TransactionView
         void onDeleteClick(Transaction transaction);
     }
 
+    public interface OnLoadMoreListener {
+        void onLoadNext();
+        void onLoadPrevious();
+    }
+
     public TransactionAdapter(OnTransactionClickListener listener) {
         super(new DiffUtil.ItemCallback<Transaction>() {
             @Override
@@ -39,6 +48,11 @@ public class TransactionAdapter extends ListAdapter<Transaction, TransactionView
         this.listener = listener;
     }
 
+    // Bật tải thêm khi cuộn, dùng cho danh sách giao dịch có phân trang
+    public void setOnLoadMoreListener(OnLoadMoreListener loadMoreListener) {
+        this.loadMoreListener = loadMoreListener;
+    }
+
     @NonNull
     @Override
     public TransactionViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -51,6 +65,14 @@ public class TransactionAdapter extends ListAdapter<Transaction, TransactionView
     public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
         Transaction transaction = getItem(position);
         holder.bind(transaction);
+
+        if (loadMoreListener != null) {
+            if (position >= getItemCount() - PREFETCH_DISTANCE) {
+                loadMoreListener.onLoadNext();
+            } else if (position < PREFETCH_DISTANCE) {
+                loadMoreListener.onLoadPrevious();
+            }
+        }
     }
 }
 
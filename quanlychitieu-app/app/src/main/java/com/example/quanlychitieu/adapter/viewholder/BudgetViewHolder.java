@@ -7,9 +7,11 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.quanlychitieu.R;
 import com.example.quanlychitieu.adapter.BudgetAdapter;
 import com.example.quanlychitieu.data.model.Budget;
+import com.example.quanlychitieu.data.model.BudgetForecast;
 import com.example.quanlychitieu.databinding.ItemBudgetBinding;
 
 import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
 import java.util.Locale;
 
 public class BudgetViewHolder extends RecyclerView.ViewHolder {
@@ -17,12 +19,14 @@ public class BudgetViewHolder extends RecyclerView.ViewHolder {
     private final ItemBudgetBinding binding;
     private final BudgetAdapter.BudgetClickListener clickListener;
     private final NumberFormat currencyFormat;
+    private final SimpleDateFormat dayFormat;
 
     public BudgetViewHolder(ItemBudgetBinding binding, BudgetAdapter.BudgetClickListener clickListener) {
         super(binding.getRoot());
         this.binding = binding;
         this.clickListener = clickListener;
         this.currencyFormat = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
+        this.dayFormat = new SimpleDateFormat("dd/MM", Locale.getDefault());
     }
 
     public void bind(Budget budget) {
@@ -66,6 +70,9 @@ public class BudgetViewHolder extends RecyclerView.ViewHolder {
             binding.budgetProgress.setIndicatorColor(Color.parseColor("#4CAF50")); // Green
         }
 
+        // Dự báo chi cuối kỳ theo tốc độ chi hiện tại
+        bindForecast(budget);
+
         // Set edit button click listener
         binding.editBudgetButton.setOnClickListener(v -> {
             if (clickListener != null) {
@@ -74,6 +81,25 @@ public class BudgetViewHolder extends RecyclerView.ViewHolder {
         });
     }
 
+    private void bindForecast(Budget budget) {
+        BudgetForecast forecast = budget.getForecast();
+        if (budget.getAmount() == 0 || forecast == null || forecast.getRemainingDays() == 0) {
+            binding.budgetForecast.setVisibility(View.GONE);
+            return;
+        }
+
+        binding.budgetForecast.setVisibility(View.VISIBLE);
+        String projection = formatCurrency(forecast.getWeightedProjection());
+        if (forecast.isOverrunExpected() && budget.getSpent() < budget.getAmount()) {
+            binding.budgetForecast.setText(String.format("Dự kiến cuối kỳ: %s · vượt từ %s",
+                    projection, dayFormat.format(forecast.getExpectedOverrunDate())));
+            binding.budgetForecast.setTextColor(Color.parseColor("#F44336")); // Red
+        } else {
+            binding.budgetForecast.setText(String.format("Dự kiến cuối kỳ: %s", projection));
+            binding.budgetForecast.setTextColor(Color.parseColor("#757575")); // Gray
+        }
+    }
+
     private void setCategoryIcon(String category) {
         // Set the appropriate icon based on the category
         int iconResId;
@@ -13,6 +13,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CategoryManager {
 
@@ -23,13 +24,18 @@ public class CategoryManager {
     private final List<String> customExpenseCategories;
     private final List<String> customIncomeCategories;
 
+    // Từ điển tên danh mục -> id số nhỏ, chỉ thêm không xóa nên id ổn định trong suốt tiến trình.
+    // Các vòng tổng hợp cộng dồn vào mảng theo id thay vì băm chuỗi tên cho mỗi giao dịch
+    private final Map<String, Integer> categoryIds = new ConcurrentHashMap<>();
+    private final List<String> categoryNames = new ArrayList<>();
+
     private FirebaseFirestore db;
     private FirebaseAuth auth;
     private static final String COLLECTION_USERS = "users";
     private static final String COLLECTION_CATEGORIES = "categories";
     private static final String DOCUMENT_USER_CATEGORIES = "user_categories";
 
-    private CategoryManager() {
+    private CategoryManager(boolean connectFirebase) {
         // Danh sách mặc định các danh mục chi tiêu
         defaultExpenseCategories = new ArrayList<>(Arrays.asList(
                 "Ăn uống",
@@ -51,6 +57,18 @@ public class CategoryManager {
         customExpenseCategories = new ArrayList<>();
         customIncomeCategories = new ArrayList<>();
 
+        // Danh mục mặc định luôn có cùng id (theo thứ tự khai báo)
+        for (String category : defaultExpenseCategories) {
+            getCategoryId(category);
+        }
+        for (String category : defaultIncomeCategories) {
+            getCategoryId(category);
+        }
+
+        if (!connectFirebase) {
+            return;
+        }
+
         // Khởi tạo Firebase
         db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
@@ -61,11 +79,21 @@ public class CategoryManager {
 
     public static synchronized CategoryManager getInstance() {
         if (instance == null) {
-            instance = new CategoryManager();
+            instance = new CategoryManager(true);
         }
         return instance;
     }
 
+    /**
+     * Tạo từ điển chỉ gồm các danh mục mặc định, không kết nối Firebase.
+     * Dùng cho unit test chạy trên JVM (FirebaseApp chưa được khởi tạo), gọi trước getInstance().
+     */
+    public static synchronized void initWithoutFirebase() {
+        if (instance == null) {
+            instance = new CategoryManager(false);
+        }
+    }
+
     /**
      * Tải danh mục tùy chỉnh từ Firebase
      */
@@ -85,6 +113,9 @@ public class CategoryManager {
                         if (expenseList != null) {
                             customExpenseCategories.clear();
                             customExpenseCategories.addAll(expenseList);
+                            for (String category : expenseList) {
+                                getCategoryId(category);
+                            }
                             Log.d(TAG, "Loaded custom expense categories: " + customExpenseCategories.size());
                         }
 
@@ -93,6 +124,9 @@ public class CategoryManager {
                         if (incomeList != null) {
                             customIncomeCategories.clear();
                             customIncomeCategories.addAll(incomeList);
+                            for (String category : incomeList) {
+                                getCategoryId(category);
+                            }
                             Log.d(TAG, "Loaded custom income categories: " + customIncomeCategories.size());
                         }
                     } else {
@@ -359,6 +393,46 @@ public class CategoryManager {
         return new ArrayList<>(customIncomeCategories);
     }
 
+    /**
+     * Id số của danh mục, cấp mới nếu tên chưa có (kể cả danh mục đã bị xóa nhưng
+     * vẫn còn trong giao dịch cũ). An toàn khi gọi từ luồng nền.
+     */
+    public int getCategoryId(String category) {
+        String name = category != null ? category : "";
+        Integer id = categoryIds.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (categoryNames) {
+            id = categoryIds.get(name);
+            if (id == null) {
+                id = categoryNames.size();
+                categoryNames.add(name);
+                categoryIds.put(name, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Tên danh mục của một id đã cấp, dùng khi chuyển kết quả tổng hợp ra giao diện
+     */
+    public String getCategoryName(int categoryId) {
+        synchronized (categoryNames) {
+            return categoryNames.get(categoryId);
+        }
+    }
+
+    /**
+     * Số id đã cấp, dùng để chọn kích thước mảng cộng dồn
+     */
+    public int getCategoryCount() {
+        synchronized (categoryNames) {
+            return categoryNames.size();
+        }
+    }
+
     /**
      * Làm mới dữ liệu từ Firestore
      */
@@ -0,0 +1,73 @@
+package com.example.quanlychitieu.data.local;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+@Database(entities = {TransactionEntity.class, RollupEntity.class}, version = 3, exportSchema = false)
+public abstract class AppDatabase extends RoomDatabase {
+    private static final String DATABASE_NAME = "quanlychitieu.db";
+
+    // Phiên bản 2: amount chuyển từ REAL sang INTEGER (đồng).
+    // SQLite không đổi được kiểu cột nên bảng được tạo lại rồi chép dữ liệu sang
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `transactions_new` ("
+                    + "`firebaseId` TEXT NOT NULL, `userId` TEXT, `id` INTEGER NOT NULL, "
+                    + "`description` TEXT, `amount` INTEGER NOT NULL, `category` TEXT, "
+                    + "`date` INTEGER NOT NULL, `isIncome` INTEGER NOT NULL, `note` TEXT, "
+                    + "`repeat` INTEGER NOT NULL, `repeatType` TEXT, `endDate` INTEGER, "
+                    + "`goalId` TEXT, `isGoalContribution` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`firebaseId`))");
+            db.execSQL("INSERT INTO `transactions_new` (`firebaseId`, `userId`, `id`, `description`, "
+                    + "`amount`, `category`, `date`, `isIncome`, `note`, `repeat`, `repeatType`, "
+                    + "`endDate`, `goalId`, `isGoalContribution`) "
+                    + "SELECT `firebaseId`, `userId`, `id`, `description`, CAST(ROUND(`amount`) AS INTEGER), "
+                    + "`category`, `date`, `isIncome`, `note`, `repeat`, `repeatType`, "
+                    + "`endDate`, `goalId`, `isGoalContribution` FROM `transactions`");
+            db.execSQL("DROP TABLE `transactions`");
+            db.execSQL("ALTER TABLE `transactions_new` RENAME TO `transactions`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_date` ON `transactions` (`date`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_category` ON `transactions` (`category`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_isIncome` ON `transactions` (`isIncome`)");
+        }
+    };
+
+    // Phiên bản 3: thêm bảng các tầng tổng hợp, được dựng lại từ bảng giao dịch khi cần
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `rollups` ("
+                    + "`userId` TEXT NOT NULL, `tier` INTEGER NOT NULL, `bucket` INTEGER NOT NULL, "
+                    + "`category` TEXT NOT NULL, `income` INTEGER NOT NULL, `expense` INTEGER NOT NULL, "
+                    + "`count` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`userId`, `tier`, `bucket`, `category`))");
+        }
+    };
+
+    private static volatile AppDatabase instance;
+
+    public abstract TransactionDao transactionDao();
+
+    public abstract RollupDao rollupDao();
+
+    public static AppDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AppDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(),
+                                    AppDatabase.class, DATABASE_NAME)
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3)
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.quanlychitieu.data.local;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.quanlychitieu.data.model.DashboardState;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Lưu trạng thái dashboard gần nhất của từng người dùng vào SharedPreferences (dạng JSON)
+ */
+public class DashboardStateStore {
+    private static final String TAG = "DashboardStateStore";
+    private static final String PREFS_NAME = "dashboard_state";
+    private static final String KEY_STATE_PREFIX = "state_";
+
+    private static volatile DashboardStateStore instance;
+
+    private final SharedPreferences prefs;
+    // Định dạng ngày không phụ thuộc ngôn ngữ máy
+    private final Gson gson = new GsonBuilder()
+            .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ")
+            .create();
+
+    private DashboardStateStore(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Khởi tạo kho, gọi một lần trong Application.onCreate()
+     */
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (DashboardStateStore.class) {
+                if (instance == null) {
+                    instance = new DashboardStateStore(context);
+                }
+            }
+        }
+    }
+
+    public static DashboardStateStore getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("DashboardStateStore.init() must be called first");
+        }
+        return instance;
+    }
+
+    /**
+     * Đọc trạng thái đã lưu
+     * @return null nếu chưa có hoặc dữ liệu hỏng
+     */
+    public DashboardState load(String userId) {
+        String json = prefs.getString(KEY_STATE_PREFIX + userId, null);
+        if (json == null) {
+            return null;
+        }
+
+        try {
+            return gson.fromJson(json, DashboardState.class);
+        } catch (JsonSyntaxException e) {
+            Log.e(TAG, "Error reading saved dashboard state", e);
+            prefs.edit().remove(KEY_STATE_PREFIX + userId).apply();
+            return null;
+        }
+    }
+
+    public void save(String userId, DashboardState state) {
+        prefs.edit().putString(KEY_STATE_PREFIX + userId, gson.toJson(state)).apply();
+    }
+}
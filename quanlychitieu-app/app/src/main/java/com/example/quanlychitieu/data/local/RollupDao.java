@@ -0,0 +1,45 @@
+package com.example.quanlychitieu.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public abstract class RollupDao {
+
+    @Query("SELECT * FROM rollups WHERE userId = :userId AND tier = :tier " +
+            "AND bucket BETWEEN :from AND :to")
+    public abstract List<RollupEntity> getRange(String userId, int tier, long from, long to);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertAll(List<RollupEntity> entities);
+
+    @Query("DELETE FROM rollups WHERE userId = :userId AND tier = :tier AND bucket = :bucket")
+    public abstract void deleteBucket(String userId, int tier, long bucket);
+
+    @Query("DELETE FROM rollups WHERE userId = :userId")
+    public abstract void deleteAllForUser(String userId);
+
+    /**
+     * Thay các dòng của một khoảng (danh sách rỗng khi khoảng không còn giao dịch)
+     */
+    @androidx.room.Transaction
+    public void replaceBucket(String userId, int tier, long bucket, List<RollupEntity> entities) {
+        deleteBucket(userId, tier, bucket);
+        if (!entities.isEmpty()) {
+            insertAll(entities);
+        }
+    }
+
+    /**
+     * Thay toàn bộ các tầng của người dùng
+     */
+    @androidx.room.Transaction
+    public void replaceAllForUser(String userId, List<RollupEntity> entities) {
+        deleteAllForUser(userId);
+        insertAll(entities);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.quanlychitieu.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * Một dòng tổng hợp của một khoảng thời gian theo tầng (ngày, tuần ISO, tháng, năm).
+ * Mỗi khoảng có một dòng tổng (category là TOTAL) chứa thu, chi và số giao dịch,
+ * cùng một dòng cho mỗi danh mục có khoản chi. Không tính các giao dịch đóng góp mục tiêu.
+ */
+@Entity(tableName = "rollups", primaryKeys = {"userId", "tier", "bucket", "category"})
+public class RollupEntity {
+    public static final int TIER_DAY = 0;
+    public static final int TIER_WEEK = 1;
+    public static final int TIER_MONTH = 2;
+    public static final int TIER_YEAR = 3;
+
+    // Giá trị category của dòng tổng. Tên danh mục luôn được trim nên không trùng danh mục nào,
+    // kể cả danh mục rỗng của các giao dịch không có danh mục
+    public static final String TOTAL = " ";
+
+    @NonNull
+    public String userId = "";
+    public int tier;
+    public long bucket;         // Epoch day, số tuần ISO, năm * 12 + tháng - 1 hoặc năm tùy tầng
+    @NonNull
+    public String category = TOTAL;
+    public long income;         // Chỉ có ở dòng tổng (đồng)
+    public long expense;        // Đồng
+    public long count;          // Số giao dịch, chỉ có ở dòng tổng
+
+    public boolean isTotal() {
+        return TOTAL.equals(category);
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.quanlychitieu.data.local;
+
+import android.content.SharedPreferences;
+
+import com.example.quanlychitieu.data.model.PeriodTotals;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Các tầng tổng hợp cục bộ (ngày, tuần ISO, tháng, năm) đặt cạnh bảng giao dịch.
+ * Khi giao dịch thay đổi, chỉ những ngày bị ảnh hưởng được tính lại từ bảng giao dịch;
+ * tuần và tháng chứa các ngày đó được tính lại từ tầng ngày (tuần ISO có thể vắt qua hai
+ * tháng nên tháng không dựng từ tuần), năm được tính lại từ tầng tháng.
+ * Chỉ được gọi trên luồng đĩa của TransactionLocalStore, sau khi bảng giao dịch đã được ghi.
+ */
+class RollupStore {
+    // Lưu múi giờ đã dùng để dựng các tầng; đổi múi giờ thì phải dựng lại.
+    // v2: dòng tổng dùng RollupEntity.TOTAL mới, các tầng dựng trước đó phải dựng lại
+    private static final String KEY_BUILT_PREFIX = "rollups_v2_";
+
+    private final AppDatabase database;
+    private final TransactionDao transactionDao;
+    private final RollupDao rollupDao;
+    private final SharedPreferences prefs;
+
+    // Tổng đang cộng dồn của một khoảng
+    private static class BucketSum {
+        long income;
+        long expense;
+        long count;
+        final Map<String, Long> expenseByCategory = new HashMap<>();
+
+        void addTransaction(TransactionEntity entity) {
+            if (entity.isGoalContribution) {
+                return;
+            }
+
+            long amount = Math.abs(entity.amount);
+            count++;
+            if (entity.isIncome) {
+                income += amount;
+            } else {
+                expense += amount;
+                // Cùng khóa với CategoryManager.getCategoryId: danh mục null được tính như danh mục rỗng
+                String category = entity.category != null ? entity.category : "";
+                expenseByCategory.merge(category, amount, Long::sum);
+            }
+        }
+
+        void addRow(RollupEntity row) {
+            if (row.isTotal()) {
+                income += row.income;
+                expense += row.expense;
+                count += row.count;
+            } else {
+                expenseByCategory.merge(row.category, row.expense, Long::sum);
+            }
+        }
+
+        List<RollupEntity> toRows(String userId, int tier, long bucket) {
+            List<RollupEntity> rows = new ArrayList<>();
+            if (count == 0) {
+                return rows;
+            }
+
+            RollupEntity total = newRow(userId, tier, bucket, RollupEntity.TOTAL);
+            total.income = income;
+            total.expense = expense;
+            total.count = count;
+            rows.add(total);
+            for (Map.Entry<String, Long> entry : expenseByCategory.entrySet()) {
+                if (entry.getValue() != 0) {
+                    RollupEntity row = newRow(userId, tier, bucket, entry.getKey());
+                    row.expense = entry.getValue();
+                    rows.add(row);
+                }
+            }
+            return rows;
+        }
+
+        private static RollupEntity newRow(String userId, int tier, long bucket, String category) {
+            RollupEntity row = new RollupEntity();
+            row.userId = userId;
+            row.tier = tier;
+            row.bucket = bucket;
+            row.category = category;
+            return row;
+        }
+    }
+
+    RollupStore(AppDatabase database, SharedPreferences prefs) {
+        this.database = database;
+        this.transactionDao = database.transactionDao();
+        this.rollupDao = database.rollupDao();
+        this.prefs = prefs;
+    }
+
+    /**
+     * Các tầng đã được dựng cho người dùng này với múi giờ hiện tại chưa
+     */
+    boolean isBuilt(String userId) {
+        return zone().getId().equals(prefs.getString(KEY_BUILT_PREFIX + userId, null));
+    }
+
+    /**
+     * Dựng lại mọi tầng từ toàn bộ giao dịch của người dùng
+     */
+    void rebuild(String userId, List<TransactionEntity> entities) {
+        ZoneId zone = zone();
+        Map<Long, BucketSum> days = new HashMap<>();
+        for (TransactionEntity entity : entities) {
+            days.computeIfAbsent(epochDay(entity.date, zone), day -> new BucketSum()).addTransaction(entity);
+        }
+
+        // Các tầng trên được dựng từ tầng ngay dưới trong bộ nhớ
+        List<RollupEntity> rows = new ArrayList<>();
+        Map<Long, BucketSum> weeks = new HashMap<>();
+        Map<Long, BucketSum> months = new HashMap<>();
+        for (Map.Entry<Long, BucketSum> day : days.entrySet()) {
+            for (RollupEntity row : day.getValue().toRows(userId, RollupEntity.TIER_DAY, day.getKey())) {
+                rows.add(row);
+                weeks.computeIfAbsent(bucketOf(RollupEntity.TIER_WEEK, day.getKey()), week -> new BucketSum())
+                        .addRow(row);
+                months.computeIfAbsent(bucketOf(RollupEntity.TIER_MONTH, day.getKey()), month -> new BucketSum())
+                        .addRow(row);
+            }
+        }
+        for (Map.Entry<Long, BucketSum> week : weeks.entrySet()) {
+            rows.addAll(week.getValue().toRows(userId, RollupEntity.TIER_WEEK, week.getKey()));
+        }
+        Map<Long, BucketSum> years = new HashMap<>();
+        for (Map.Entry<Long, BucketSum> month : months.entrySet()) {
+            for (RollupEntity row : month.getValue().toRows(userId, RollupEntity.TIER_MONTH, month.getKey())) {
+                rows.add(row);
+                years.computeIfAbsent(Math.floorDiv(month.getKey(), 12), year -> new BucketSum()).addRow(row);
+            }
+        }
+        for (Map.Entry<Long, BucketSum> year : years.entrySet()) {
+            rows.addAll(year.getValue().toRows(userId, RollupEntity.TIER_YEAR, year.getKey()));
+        }
+
+        rollupDao.replaceAllForUser(userId, rows);
+        prefs.edit().putString(KEY_BUILT_PREFIX + userId, zone.getId()).apply();
+    }
+
+    /**
+     * Tính lại các ngày bị ảnh hưởng và các tuần, tháng, năm chứa chúng
+     * @param epochDays Ngày (theo giờ địa phương) của giá trị cũ và mới của các giao dịch đã thay đổi
+     */
+    void refreshDays(String userId, Set<Long> epochDays) {
+        if (epochDays.isEmpty() || !isBuilt(userId)) {
+            return;
+        }
+
+        ZoneId zone = zone();
+        database.runInTransaction(() -> {
+            Set<Long> weeks = new HashSet<>();
+            Set<Long> months = new HashSet<>();
+            for (long day : epochDays) {
+                BucketSum sum = new BucketSum();
+                for (TransactionEntity entity : transactionDao.getInRange(userId,
+                        startOfDay(day, zone), startOfDay(day + 1, zone) - 1)) {
+                    sum.addTransaction(entity);
+                }
+                rollupDao.replaceBucket(userId, RollupEntity.TIER_DAY, day,
+                        sum.toRows(userId, RollupEntity.TIER_DAY, day));
+                weeks.add(bucketOf(RollupEntity.TIER_WEEK, day));
+                months.add(bucketOf(RollupEntity.TIER_MONTH, day));
+            }
+
+            for (long week : weeks) {
+                recompute(userId, RollupEntity.TIER_WEEK, week, RollupEntity.TIER_DAY,
+                        firstDayOf(RollupEntity.TIER_WEEK, week), lastDayOf(RollupEntity.TIER_WEEK, week));
+            }
+            Set<Long> years = new HashSet<>();
+            for (long month : months) {
+                recompute(userId, RollupEntity.TIER_MONTH, month, RollupEntity.TIER_DAY,
+                        firstDayOf(RollupEntity.TIER_MONTH, month), lastDayOf(RollupEntity.TIER_MONTH, month));
+                years.add(Math.floorDiv(month, 12));
+            }
+            for (long year : years) {
+                recompute(userId, RollupEntity.TIER_YEAR, year, RollupEntity.TIER_MONTH,
+                        year * 12, year * 12 + 11);
+            }
+        });
+    }
+
+    // Tính lại một khoảng từ các dòng [from, to] của tầng dưới
+    private void recompute(String userId, int tier, long bucket, int childTier, long from, long to) {
+        BucketSum sum = new BucketSum();
+        for (RollupEntity row : rollupDao.getRange(userId, childTier, from, to)) {
+            sum.addRow(row);
+        }
+        rollupDao.replaceBucket(userId, tier, bucket, sum.toRows(userId, tier, bucket));
+    }
+
+    /**
+     * Điền tổng của từng khoảng từ tầng thô nhất mà mỗi khoảng là hợp của các đơn vị trọn vẹn
+     * (ví dụ tầng năm cho biểu đồ nhiều năm, tầng tháng cho một năm)
+     * @param buckets Các khoảng liền nhau theo thứ tự thời gian
+     * @return false nếu chưa dựng các tầng hoặc có khoảng không trọn ngày
+     */
+    boolean fill(String userId, List<PeriodTotals> buckets, boolean withCategories) {
+        if (buckets.isEmpty() || !isBuilt(userId)) {
+            return false;
+        }
+
+        ZoneId zone = zone();
+        int count = buckets.size();
+        long[] firstDays = new long[count];
+        long[] lastDays = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = buckets.get(i).getStartDate().getTime();
+            long end = buckets.get(i).getEndDate().getTime();
+            firstDays[i] = epochDay(start, zone);
+            lastDays[i] = epochDay(end, zone);
+            if (start != startOfDay(firstDays[i], zone) || end + 1 != startOfDay(lastDays[i] + 1, zone)) {
+                return false;
+            }
+        }
+
+        int tier = coarsestTier(firstDays, lastDays);
+        List<RollupEntity> rows = rollupDao.getRange(userId, tier,
+                bucketOf(tier, firstDays[0]), bucketOf(tier, lastDays[count - 1]));
+        for (RollupEntity row : rows) {
+            int index = indexOf(firstDays, lastDays, firstDayOf(tier, row.bucket));
+            if (index < 0) {
+                continue;
+            }
+
+            PeriodTotals bucket = buckets.get(index);
+            if (row.isTotal()) {
+                bucket.setIncome(bucket.getIncome() + row.income);
+                bucket.setExpense(bucket.getExpense() + row.expense);
+                bucket.setTransactionCount(bucket.getTransactionCount() + row.count);
+            } else if (withCategories) {
+                bucket.addCategoryExpense(row.category, row.expense);
+            }
+        }
+        return true;
+    }
+
+    // Xóa các tầng của người dùng
+    void clear(String userId) {
+        prefs.edit().remove(KEY_BUILT_PREFIX + userId).apply();
+        rollupDao.deleteAllForUser(userId);
+    }
+
+    // Tầng thô nhất mà mọi khoảng đều bắt đầu và kết thúc tại ranh giới đơn vị của tầng
+    private static int coarsestTier(long[] firstDays, long[] lastDays) {
+        for (int tier = RollupEntity.TIER_YEAR; tier > RollupEntity.TIER_DAY; tier--) {
+            boolean aligned = true;
+            for (int i = 0; i < firstDays.length && aligned; i++) {
+                aligned = firstDayOf(tier, bucketOf(tier, firstDays[i])) == firstDays[i]
+                        && lastDayOf(tier, bucketOf(tier, lastDays[i])) == lastDays[i];
+            }
+            if (aligned) {
+                return tier;
+            }
+        }
+        return RollupEntity.TIER_DAY;
+    }
+
+    // Khoảng chứa ngày, -1 nếu không có
+    private static int indexOf(long[] firstDays, long[] lastDays, long day) {
+        int low = 0;
+        int high = firstDays.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (day < firstDays[mid]) {
+                high = mid - 1;
+            } else if (day > lastDays[mid]) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Số thứ tự của khoảng chứa ngày theo tầng
+    static long bucketOf(int tier, long epochDay) {
+        switch (tier) {
+            case RollupEntity.TIER_DAY:
+                return epochDay;
+            case RollupEntity.TIER_WEEK:
+                // Ngày 0 của epoch là thứ Năm, thứ Hai đầu tiên là ngày -3
+                return Math.floorDiv(epochDay + 3, 7);
+            case RollupEntity.TIER_MONTH: {
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                return date.getYear() * 12L + date.getMonthValue() - 1;
+            }
+            default:
+                return LocalDate.ofEpochDay(epochDay).getYear();
+        }
+    }
+
+    // Ngày đầu tiên của khoảng
+    static long firstDayOf(int tier, long bucket) {
+        switch (tier) {
+            case RollupEntity.TIER_DAY:
+                return bucket;
+            case RollupEntity.TIER_WEEK:
+                return bucket * 7 - 3;
+            case RollupEntity.TIER_MONTH:
+                return LocalDate.of((int) Math.floorDiv(bucket, 12), (int) Math.floorMod(bucket, 12) + 1, 1)
+                        .toEpochDay();
+            default:
+                return LocalDate.of((int) bucket, 1, 1).toEpochDay();
+        }
+    }
+
+    static long lastDayOf(int tier, long bucket) {
+        return firstDayOf(tier, bucket + 1) - 1;
+    }
+
+    static long epochDay(long epochMillis, ZoneId zone) {
+        return Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    static long startOfDay(long epochDay, ZoneId zone) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    static ZoneId zone() {
+        return ZoneId.systemDefault();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.quanlychitieu.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.util.List;
+
+@Dao
+public abstract class TransactionDao {
+
+    @Query("SELECT * FROM transactions WHERE userId = :userId ORDER BY date DESC")
+    public abstract List<TransactionEntity> getAll(String userId);
+
+    @Query("SELECT * FROM transactions WHERE firebaseId = :firebaseId LIMIT 1")
+    public abstract TransactionEntity getById(String firebaseId);
+
+    @Query("SELECT * FROM transactions WHERE userId = :userId " +
+            "AND date BETWEEN :from AND :to ORDER BY date DESC")
+    public abstract List<TransactionEntity> getInRange(String userId, long from, long to);
+
+    @Query("SELECT * FROM transactions WHERE userId = :userId AND category = :category " +
+            "AND date BETWEEN :from AND :to ORDER BY date DESC")
+    public abstract List<TransactionEntity> getInRangeByCategory(String userId, long from, long to,
+                                                                 String category);
+
+    @Query("SELECT * FROM transactions WHERE userId = :userId AND isIncome = :isIncome " +
+            "AND date BETWEEN :from AND :to ORDER BY date DESC")
+    public abstract List<TransactionEntity> getInRangeByType(String userId, long from, long to,
+                                                             boolean isIncome);
+
+    @Query("SELECT * FROM transactions WHERE userId = :userId AND category = :category " +
+            "AND isIncome = :isIncome AND date BETWEEN :from AND :to ORDER BY date DESC")
+    public abstract List<TransactionEntity> getInRangeByCategoryAndType(String userId, long from, long to,
+                                                                        String category, boolean isIncome);
+
+    /**
+     * Truy vấn một trang theo khóa (date, firebaseId), do TransactionLocalStore dựng câu lệnh
+     */
+    @RawQuery(observedEntities = TransactionEntity.class)
+    public abstract List<TransactionEntity> getPage(SupportSQLiteQuery query);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsert(TransactionEntity entity);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsertAll(List<TransactionEntity> entities);
+
+    @Query("DELETE FROM transactions WHERE firebaseId = :firebaseId")
+    public abstract void deleteById(String firebaseId);
+
+    @Query("DELETE FROM transactions WHERE firebaseId IN (:firebaseIds)")
+    public abstract void deleteByIds(List<String> firebaseIds);
+
+    @Query("DELETE FROM transactions WHERE userId = :userId")
+    public abstract void deleteAllForUser(String userId);
+
+    /**
+     * Thay toàn bộ dữ liệu của người dùng bằng ảnh chụp đầy đủ từ Firestore
+     */
+    @androidx.room.Transaction
+    public void replaceAllForUser(String userId, List<TransactionEntity> entities) {
+        deleteAllForUser(userId);
+        upsertAll(entities);
+    }
+
+    /**
+     * Áp dụng các thay đổi gia tăng (thêm/sửa/xóa) trong một giao dịch SQLite
+     */
+    @androidx.room.Transaction
+    public void applyChanges(List<TransactionEntity> upserts, List<String> removedIds) {
+        if (!upserts.isEmpty()) {
+            upsertAll(upserts);
+        }
+        if (!removedIds.isEmpty()) {
+            deleteByIds(removedIds);
+        }
+    }
+}
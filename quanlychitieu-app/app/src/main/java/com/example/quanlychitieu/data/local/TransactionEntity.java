@@ -0,0 +1,78 @@
+package com.example.quanlychitieu.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.example.quanlychitieu.data.model.Transaction;
+
+import java.util.Date;
+
+/**
+ * Bản sao cục bộ của một giao dịch trên Firestore, khóa theo firebaseId.
+ * Các chỉ mục trên date, category và isIncome phục vụ cho các truy vấn lọc.
+ */
+@Entity(tableName = "transactions",
+        indices = {
+                @Index("date"),
+                @Index("category"),
+                @Index("isIncome")
+        })
+public class TransactionEntity {
+    @PrimaryKey
+    @NonNull
+    public String firebaseId = "";
+
+    public String userId;       // ID người dùng sở hữu (chủ của collection đã đồng bộ)
+    public long id;
+    public String description;
+    public long amount;         // Số tiền (đồng)
+    public String category;
+    public long date;           // Thời điểm giao dịch (epoch millis)
+    public boolean isIncome;
+    public String note;
+    public boolean repeat;
+    public String repeatType;
+    public Long endDate;        // Ngày kết thúc lặp lại (epoch millis), có thể null
+    public String goalId;
+    public boolean isGoalContribution;
+
+    public static TransactionEntity fromTransaction(Transaction transaction, String userId) {
+        TransactionEntity entity = new TransactionEntity();
+        entity.firebaseId = transaction.getFirebaseId();
+        entity.userId = userId;
+        entity.id = transaction.getId();
+        entity.description = transaction.getDescription();
+        entity.amount = transaction.getAmount();
+        entity.category = transaction.getCategory();
+        entity.date = transaction.getDate() != null ? transaction.getDate().getTime() : 0L;
+        entity.isIncome = transaction.isIncome();
+        entity.note = transaction.getNote();
+        entity.repeat = transaction.isRepeat();
+        entity.repeatType = transaction.getRepeatType();
+        entity.endDate = transaction.getEndDate() != null ? transaction.getEndDate().getTime() : null;
+        entity.goalId = transaction.getGoalId();
+        entity.isGoalContribution = transaction.isGoalContribution();
+        return entity;
+    }
+
+    public Transaction toTransaction() {
+        Transaction transaction = new Transaction();
+        transaction.setFirebaseId(firebaseId);
+        transaction.setUserId(userId);
+        transaction.setId(id);
+        transaction.setDescription(description);
+        transaction.setAmount(amount);
+        transaction.setCategory(category);
+        transaction.setDate(new Date(date));
+        transaction.setIncome(isIncome);
+        transaction.setNote(note);
+        transaction.setRepeat(repeat);
+        transaction.setRepeatType(repeatType);
+        transaction.setEndDate(endDate != null ? new Date(endDate) : null);
+        transaction.setGoalId(goalId);
+        transaction.setGoalContribution(isGoalContribution);
+        return transaction;
+    }
+}
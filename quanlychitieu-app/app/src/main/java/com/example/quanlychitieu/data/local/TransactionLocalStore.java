@@ -0,0 +1,269 @@
+package com.example.quanlychitieu.data.local;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+
+import com.example.quanlychitieu.data.model.PeriodTotals;
+import com.example.quanlychitieu.data.model.Transaction;
+import com.example.quanlychitieu.data.model.TransactionColumns;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Kho giao dịch cục bộ (Room/SQLite) đứng sau TransactionRepository.
+ * Mọi thao tác đọc/ghi chạy trên một luồng đĩa riêng, kết quả trả về qua Callback.
+ * Các tầng tổng hợp (RollupStore) được cập nhật ngay sau mỗi lần ghi trên cùng luồng đó.
+ */
+public class TransactionLocalStore {
+    private static final String TAG = "TransactionLocalStore";
+    private static final String PREFS_NAME = "transaction_local_store";
+    private static final String KEY_PRIMED_PREFIX = "primed_";
+
+    private static volatile TransactionLocalStore instance;
+
+    private final TransactionDao dao;
+    private final RollupStore rollups;
+    private final SharedPreferences prefs;
+    private final ExecutorService diskExecutor;
+
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private TransactionLocalStore(Context context) {
+        AppDatabase database = AppDatabase.getInstance(context);
+        dao = database.transactionDao();
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        rollups = new RollupStore(database, prefs);
+        diskExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Khởi tạo kho cục bộ, gọi một lần trong Application.onCreate()
+     */
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (TransactionLocalStore.class) {
+                if (instance == null) {
+                    instance = new TransactionLocalStore(context);
+                }
+            }
+        }
+    }
+
+    public static TransactionLocalStore getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("TransactionLocalStore.init() must be called first");
+        }
+        return instance;
+    }
+
+    /**
+     * Kho đã nhận đủ ảnh chụp đầu tiên từ Firestore cho người dùng này chưa
+     */
+    public boolean isPrimed(String userId) {
+        return prefs.getBoolean(KEY_PRIMED_PREFIX + userId, false);
+    }
+
+    // Thay toàn bộ dữ liệu của người dùng bằng ảnh chụp đầy đủ từ listener đồng bộ
+    public void replaceAll(String userId, List<Transaction> transactions) {
+        List<TransactionEntity> entities = toEntities(transactions, userId);
+        diskExecutor.execute(() -> {
+            dao.replaceAllForUser(userId, entities);
+            rollups.rebuild(userId, entities);
+            prefs.edit().putBoolean(KEY_PRIMED_PREFIX + userId, true).apply();
+            Log.d(TAG, "Local store primed with " + entities.size() + " transactions");
+        });
+    }
+
+    // Áp dụng các thay đổi gia tăng từ listener đồng bộ
+    public void applyChanges(String userId, List<Transaction> upserts, List<String> removedIds) {
+        List<TransactionEntity> entities = toEntities(upserts, userId);
+        List<String> ids = new ArrayList<>(removedIds);
+        diskExecutor.execute(() -> {
+            Set<Long> days = new HashSet<>();
+            for (TransactionEntity entity : entities) {
+                collectAffectedDays(days, entity.firebaseId, entity);
+            }
+            for (String id : ids) {
+                collectAffectedDays(days, id, null);
+            }
+            dao.applyChanges(entities, ids);
+            rollups.refreshDays(userId, days);
+        });
+    }
+
+    // Ghi xuyên (write-through) khi thêm hoặc sửa giao dịch
+    public void upsert(String userId, Transaction transaction) {
+        TransactionEntity entity = TransactionEntity.fromTransaction(transaction, userId);
+        diskExecutor.execute(() -> {
+            Set<Long> days = new HashSet<>();
+            collectAffectedDays(days, entity.firebaseId, entity);
+            dao.upsert(entity);
+            rollups.refreshDays(userId, days);
+        });
+    }
+
+    // Ghi xuyên khi xóa giao dịch
+    public void delete(String firebaseId) {
+        diskExecutor.execute(() -> {
+            TransactionEntity previous = dao.getById(firebaseId);
+            dao.deleteById(firebaseId);
+            if (previous != null && previous.userId != null) {
+                Set<Long> days = new HashSet<>();
+                days.add(RollupStore.epochDay(previous.date, RollupStore.zone()));
+                rollups.refreshDays(previous.userId, days);
+            }
+        });
+    }
+
+    // Ngày của giá trị cũ (đọc trước khi ghi) và giá trị mới của giao dịch (luồng đĩa)
+    private void collectAffectedDays(Set<Long> days, String firebaseId, TransactionEntity newValue) {
+        ZoneId zone = RollupStore.zone();
+        TransactionEntity previous = dao.getById(firebaseId);
+        if (previous != null) {
+            days.add(RollupStore.epochDay(previous.date, zone));
+        }
+        if (newValue != null) {
+            days.add(RollupStore.epochDay(newValue.date, zone));
+        }
+    }
+
+    public void getAll(String userId, Callback<List<Transaction>> callback) {
+        diskExecutor.execute(() -> callback.onResult(toTransactions(dao.getAll(userId))));
+    }
+
+    public void getById(String firebaseId, Callback<Transaction> callback) {
+        diskExecutor.execute(() -> {
+            TransactionEntity entity = dao.getById(firebaseId);
+            callback.onResult(entity != null ? entity.toTransaction() : null);
+        });
+    }
+
+    /**
+     * Truy vấn theo khoảng ngày trên các chỉ mục cục bộ
+     * @param category Danh mục cần lọc, null nếu không lọc
+     * @param isIncome Loại giao dịch cần lọc, null nếu không lọc
+     */
+    public void query(String userId, Date fromDate, Date toDate, String category, Boolean isIncome,
+                      Callback<List<Transaction>> callback) {
+        long from = fromDate.getTime();
+        long to = toDate.getTime();
+        diskExecutor.execute(() -> {
+            List<TransactionEntity> entities;
+            if (category != null && isIncome != null) {
+                entities = dao.getInRangeByCategoryAndType(userId, from, to, category, isIncome);
+            } else if (category != null) {
+                entities = dao.getInRangeByCategory(userId, from, to, category);
+            } else if (isIncome != null) {
+                entities = dao.getInRangeByType(userId, from, to, isIncome);
+            } else {
+                entities = dao.getInRange(userId, from, to);
+            }
+            callback.onResult(toTransactions(entities));
+        });
+    }
+
+    /**
+     * Tính tổng thu/chi (và chi theo danh mục) của các khoảng liền nhau từ các tầng tổng hợp,
+     * dùng tầng thô nhất phù hợp. Khoảng không trọn ngày được cộng trực tiếp từ giao dịch.
+     * @param buckets Các khoảng theo thứ tự thời gian, được điền và trả lại qua callback
+     */
+    public void queryTotals(String userId, List<PeriodTotals> buckets, boolean withCategories,
+                            Callback<List<PeriodTotals>> callback) {
+        diskExecutor.execute(() -> {
+            if (!rollups.isBuilt(userId)) {
+                // Kho đã đồng bộ từ trước khi có các tầng tổng hợp (hoặc vừa đổi múi giờ)
+                rollups.rebuild(userId, dao.getAll(userId));
+            }
+            if (!rollups.fill(userId, buckets, withCategories)) {
+                long from = buckets.get(0).getStartDate().getTime();
+                long to = buckets.get(buckets.size() - 1).getEndDate().getTime();
+                TransactionColumns.of(toTransactions(dao.getInRange(userId, from, to))).addToBuckets(buckets);
+            }
+            callback.onResult(buckets);
+        });
+    }
+
+    /**
+     * Con trỏ phân trang theo khóa (date, firebaseId) của phần tử cuối trang trước
+     */
+    public static class PageCursor {
+        final long date;
+        final String firebaseId;
+
+        public PageCursor(Transaction transaction) {
+            this.date = transaction.getDate().getTime();
+            this.firebaseId = transaction.getFirebaseId();
+        }
+    }
+
+    /**
+     * Truy vấn một trang giao dịch, sắp xếp theo (date, firebaseId) giảm dần
+     * @param startAfter Con trỏ của phần tử cuối trang trước, null cho trang đầu tiên
+     */
+    public void queryPage(String userId, Date fromDate, Date toDate, String category, Boolean isIncome,
+                          PageCursor startAfter, int limit, Callback<List<Transaction>> callback) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT * FROM transactions WHERE userId = ? AND date BETWEEN ? AND ?");
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        args.add(fromDate.getTime());
+        args.add(toDate.getTime());
+
+        if (category != null) {
+            sql.append(" AND category = ?");
+            args.add(category);
+        }
+        if (isIncome != null) {
+            sql.append(" AND isIncome = ?");
+            args.add(isIncome ? 1 : 0);
+        }
+        if (startAfter != null) {
+            sql.append(" AND (date < ? OR (date = ? AND firebaseId < ?))");
+            args.add(startAfter.date);
+            args.add(startAfter.date);
+            args.add(startAfter.firebaseId);
+        }
+        sql.append(" ORDER BY date DESC, firebaseId DESC LIMIT ?");
+        args.add(limit);
+
+        SimpleSQLiteQuery query = new SimpleSQLiteQuery(sql.toString(), args.toArray());
+        diskExecutor.execute(() -> callback.onResult(toTransactions(dao.getPage(query))));
+    }
+
+    // Xóa dữ liệu cục bộ của người dùng (ví dụ khi đăng xuất)
+    public void clear(String userId) {
+        prefs.edit().remove(KEY_PRIMED_PREFIX + userId).apply();
+        diskExecutor.execute(() -> {
+            dao.deleteAllForUser(userId);
+            rollups.clear(userId);
+        });
+    }
+
+    private static List<TransactionEntity> toEntities(List<Transaction> transactions, String userId) {
+        List<TransactionEntity> entities = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            entities.add(TransactionEntity.fromTransaction(transaction, userId));
+        }
+        return entities;
+    }
+
+    private static List<Transaction> toTransactions(List<TransactionEntity> entities) {
+        List<Transaction> transactions = new ArrayList<>(entities.size());
+        for (TransactionEntity entity : entities) {
+            transactions.add(entity.toTransaction());
+        }
+        return transactions;
+    }
+}
@@ -15,8 +15,8 @@ public class Budget {
     private long id;
     private String userId;     // ID của người dùng sở hữu ngân sách
     private String category;   // Danh mục ngân sách
-    private double amount;     // Số tiền ngân sách
-    private double spent;      // Số tiền đã chi tiêu
+    private long amount;       // Số tiền ngân sách (đồng)
+    private long spent;        // Số tiền đã chi tiêu (đồng)
     private Date startDate;    // Ngày bắt đầu ngân sách
     private Date endDate;      // Ngày kết thúc ngân sách
     private String note;       // Ghi chú tùy chọn về ngân sách này
@@ -25,6 +25,16 @@ public class Budget {
     private boolean notificationsEnabled;  // Có bật thông báo hay không
     private int notificationThreshold;     // Ngưỡng phần trăm để gửi thông báo (80, 90, 100)
     private boolean notificationSent;      // Đã gửi thông báo cho ngưỡng này chưa
+    private boolean forecastAlertSent;     // Đã gửi cảnh báo dự kiến vượt ngân sách chưa
+
+    // Cài đặt tự động tạo lại cho kỳ sau
+    private boolean autoRollover;          // Tự động tạo ngân sách cho kỳ tiếp theo khi hết kỳ
+    private boolean carryOverUnspent;      // Cộng số tiền chưa chi vào ngân sách kỳ sau
+    private long carriedOver;              // Số tiền cộng dồn từ kỳ trước đã nằm trong amount (đồng)
+    private boolean rolledOver;            // Đã tạo ngân sách cho kỳ sau chưa
+
+    @Exclude
+    private BudgetForecast forecast;       // Dự báo chi cuối kỳ, chỉ tính trên thiết bị
 
     private Map<String, Boolean> recurringExpenseNotifications;
 
@@ -34,7 +44,7 @@ public class Budget {
     }
 
     // Constructor cơ bản
-    public Budget(long id, String userId, String category, double amount, Date startDate, Date endDate) {
+    public Budget(long id, String userId, String category, long amount, Date startDate, Date endDate) {
         this.id = id;
         this.userId = userId;
         this.category = category;
@@ -49,7 +59,7 @@ public class Budget {
     }
 
     // Constructor đầy đủ
-    public Budget(long id, String userId, String category, double amount, double spent,
+    public Budget(long id, String userId, String category, long amount, long spent,
                   Date startDate, Date endDate, String note, boolean notificationsEnabled,
                   int notificationThreshold, boolean notificationSent) {
         this.id = id;
@@ -68,13 +78,13 @@ public class Budget {
 
 
     @Exclude
-    public double getRemaining() {
+    public long getRemaining() {
         return amount - spent; // Số tiền còn lại trong ngân sách
     }
 
     @Exclude
     public int getProgressPercentage() {
-        return amount > 0 ? (int) ((spent / amount) * 100) : 0; // Tính phần trăm đã chi tiêu
+        return amount > 0 ? (int) (spent * 100 / amount) : 0; // Tính phần trăm đã chi tiêu
     }
 
     /**
@@ -83,6 +93,27 @@ public class Budget {
     public void resetNotificationStatus() {
         this.notificationSent = false;
     }
+
+    /**
+     * Đánh dấu đã gửi thông báo cho ngưỡng hiện tại
+     */
+    public void markNotificationSent() {
+        this.notificationSent = true;
+    }
+
+    /**
+     * Đánh dấu đã gửi cảnh báo dự kiến vượt ngân sách
+     */
+    public void markForecastAlertSent() {
+        this.forecastAlertSent = true;
+    }
+
+    /**
+     * Reset cảnh báo dự kiến khi dự báo không còn vượt ngân sách
+     */
+    public void resetForecastAlert() {
+        this.forecastAlertSent = false;
+    }
     // Getter và Setter
 
     @Exclude
@@ -118,19 +149,19 @@ public class Budget {
         this.category = category;
     }
 
-    public double getAmount() {
+    public long getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(long amount) {
         this.amount = amount;
     }
 
-    public double getSpent() {
+    public long getSpent() {
         return spent;
     }
 
-    public void setSpent(double spent) {
+    public void setSpent(long spent) {
         this.spent = spent;
     }
 
@@ -170,6 +201,52 @@ public class Budget {
         return notificationSent;
     }
 
+    public boolean isForecastAlertSent() {
+        return forecastAlertSent;
+    }
+
+    public boolean isAutoRollover() {
+        return autoRollover;
+    }
+
+    public void setAutoRollover(boolean autoRollover) {
+        this.autoRollover = autoRollover;
+    }
+
+    public boolean isCarryOverUnspent() {
+        return carryOverUnspent;
+    }
+
+    public void setCarryOverUnspent(boolean carryOverUnspent) {
+        this.carryOverUnspent = carryOverUnspent;
+    }
+
+    public long getCarriedOver() {
+        return carriedOver;
+    }
+
+    public void setCarriedOver(long carriedOver) {
+        this.carriedOver = carriedOver;
+    }
+
+    public boolean isRolledOver() {
+        return rolledOver;
+    }
+
+    public void setRolledOver(boolean rolledOver) {
+        this.rolledOver = rolledOver;
+    }
+
+    @Exclude
+    public BudgetForecast getForecast() {
+        return forecast;
+    }
+
+    @Exclude
+    public void setForecast(BudgetForecast forecast) {
+        this.forecast = forecast;
+    }
+
     public Map<String, Boolean> getRecurringExpenseNotifications() {
         return recurringExpenseNotifications;
     }
@@ -0,0 +1,82 @@
+package com.example.quanlychitieu.data.model;
+
+import java.util.Date;
+
+/**
+ * Dự báo chi tiêu cuối kỳ của một ngân sách theo tốc độ chi (đơn vị đồng).
+ * - Tuyến tính: tốc độ chi trung bình mỗi ngày từ đầu kỳ tới hôm nay.
+ * - Gần đây: trung bình có trọng số giảm dần theo ngày trên các ngày đã trọn vẹn (tới hôm qua),
+ *   phản ánh thói quen chi của những ngày gần nhất.
+ * Ngày vượt ngân sách là null nếu mô hình không dự kiến vượt trước khi hết kỳ.
+ */
+public class BudgetForecast {
+    private final long amount;
+    private final long spent;
+    private final int elapsedDays;
+    private final int remainingDays;
+    private final long linearProjection;
+    private final long weightedProjection;
+    private final Date linearOverrunDate;
+    private final Date weightedOverrunDate;
+
+    public BudgetForecast(long amount, long spent, int elapsedDays, int remainingDays,
+                          long linearProjection, long weightedProjection,
+                          Date linearOverrunDate, Date weightedOverrunDate) {
+        this.amount = amount;
+        this.spent = spent;
+        this.elapsedDays = elapsedDays;
+        this.remainingDays = remainingDays;
+        this.linearProjection = linearProjection;
+        this.weightedProjection = weightedProjection;
+        this.linearOverrunDate = linearOverrunDate;
+        this.weightedOverrunDate = weightedOverrunDate;
+    }
+
+    /**
+     * Cả hai mô hình đều dự kiến chi vượt ngân sách trước khi hết kỳ
+     */
+    public boolean isOverrunExpected() {
+        return amount > 0 && linearOverrunDate != null && weightedOverrunDate != null;
+    }
+
+    /**
+     * Ngày dự kiến vượt ngân sách theo thói quen chi gần đây, null nếu không dự kiến vượt
+     */
+    public Date getExpectedOverrunDate() {
+        return isOverrunExpected() ? weightedOverrunDate : null;
+    }
+
+    // Getter
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public long getSpent() {
+        return spent;
+    }
+
+    public int getElapsedDays() {
+        return elapsedDays;
+    }
+
+    public int getRemainingDays() {
+        return remainingDays;
+    }
+
+    public long getLinearProjection() {
+        return linearProjection;
+    }
+
+    public long getWeightedProjection() {
+        return weightedProjection;
+    }
+
+    public Date getLinearOverrunDate() {
+        return linearOverrunDate;
+    }
+
+    public Date getWeightedOverrunDate() {
+        return weightedOverrunDate;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.quanlychitieu.data.model;
+
+import com.example.quanlychitieu.data.CategoryManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bộ cộng dồn số tiền theo danh mục (đơn vị đồng, kiểu long).
+ * Số tiền nằm trong mảng long[] đánh chỉ số theo id danh mục của CategoryManager,
+ * nên vòng lặp qua giao dịch không băm tên danh mục và không tạo đối tượng mới;
+ * tên chỉ được tra lại khi gọi toMap().
+ * Không an toàn khi dùng từ nhiều luồng.
+ */
+public class CategoryAmounts {
+    private long[] amounts;
+
+    public CategoryAmounts() {
+        amounts = new long[Math.max(CategoryManager.getInstance().getCategoryCount(), 8)];
+    }
+
+    private CategoryAmounts(long[] amounts) {
+        this.amounts = amounts;
+    }
+
+    public void add(int categoryId, long amount) {
+        ensureCapacity(categoryId);
+        amounts[categoryId] += amount;
+    }
+
+    public void add(String category, long amount) {
+        add(CategoryManager.getInstance().getCategoryId(category), amount);
+    }
+
+    // Ghi đè số tiền của danh mục (giá trị ghi sau cùng được giữ lại)
+    public void set(int categoryId, long amount) {
+        ensureCapacity(categoryId);
+        amounts[categoryId] = amount;
+    }
+
+    public void set(String category, long amount) {
+        set(CategoryManager.getInstance().getCategoryId(category), amount);
+    }
+
+    private void ensureCapacity(int categoryId) {
+        if (categoryId >= amounts.length) {
+            // Danh mục mới được cấp id sau khi tạo mảng
+            amounts = Arrays.copyOf(amounts, Math.max(categoryId + 1, amounts.length * 2));
+        }
+    }
+
+    // Cộng dồn toàn bộ số tiền của other (dùng khi gộp các kết quả tổng hợp từng phần)
+    public void addAll(CategoryAmounts other) {
+        for (int id = other.amounts.length - 1; id >= 0; id--) {
+            if (other.amounts[id] != 0) {
+                add(id, other.amounts[id]);
+            }
+        }
+    }
+
+    public long get(int categoryId) {
+        return categoryId < amounts.length ? amounts[categoryId] : 0;
+    }
+
+    public long get(String category) {
+        return get(CategoryManager.getInstance().getCategoryId(category));
+    }
+
+    public boolean isEmpty() {
+        for (long amount : amounts) {
+            if (amount != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(amounts, 0);
+    }
+
+    public CategoryAmounts copy() {
+        return new CategoryAmounts(amounts.clone());
+    }
+
+    /**
+     * Các danh mục có số tiền khác 0, dạng Map để phát cho UI hoặc ghi lên Firestore
+     */
+    public Map<String, Long> toMap() {
+        return toMap(null);
+    }
+
+    /**
+     * Như toMap(), nhưng luôn có các danh mục trong alwaysInclude (số tiền 0 nếu chưa có)
+     */
+    public Map<String, Long> toMap(Collection<String> alwaysInclude) {
+        Map<String, Long> map = new HashMap<>();
+        if (alwaysInclude != null) {
+            for (String category : alwaysInclude) {
+                map.put(category, 0L);
+            }
+        }
+
+        CategoryManager categoryManager = CategoryManager.getInstance();
+        for (int id = 0; id < amounts.length; id++) {
+            if (amounts[id] != 0) {
+                map.put(categoryManager.getCategoryName(id), amounts[id]);
+            }
+        }
+        return map;
+    }
+}
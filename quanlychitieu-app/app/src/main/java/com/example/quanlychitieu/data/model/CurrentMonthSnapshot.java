@@ -0,0 +1,87 @@
+package com.example.quanlychitieu.data.model;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dữ liệu của tháng hiện tại do TransactionRepository phát ra sau mỗi thay đổi:
+ * danh sách giao dịch cùng các tổng đã được tính sẵn, dùng chung cho
+ * Dashboard, Ngân sách và Thống kê. Đối tượng không thay đổi được nên có thể
+ * tạo trên luồng nền và phát bằng postValue.
+ */
+public class CurrentMonthSnapshot {
+    private final Date startDate;
+    private final Date endDate;
+    private final List<Transaction> transactions;        // Sắp xếp theo ngày giảm dần
+    private final TransactionColumns columns;            // Cùng các giao dịch, dạng cột
+    private final long income;                           // Không tính đóng góp mục tiêu
+    private final long expenses;                         // Không tính đóng góp mục tiêu
+    private final Map<String, Long> expenseByCategory;   // Không tính đóng góp mục tiêu
+    private final Map<String, Long> spentByCategory;     // Mọi khoản chi, dùng cho ngân sách
+    private final List<Transaction> recentTransactions;
+
+    public CurrentMonthSnapshot(Date startDate, Date endDate, List<Transaction> transactions,
+                                long income, long expenses,
+                                Map<String, Long> expenseByCategory,
+                                Map<String, Long> spentByCategory,
+                                List<Transaction> recentTransactions) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.transactions = Collections.unmodifiableList(transactions);
+        this.columns = TransactionColumns.of(transactions);
+        this.income = income;
+        this.expenses = expenses;
+        this.expenseByCategory = Collections.unmodifiableMap(expenseByCategory);
+        this.spentByCategory = Collections.unmodifiableMap(spentByCategory);
+        this.recentTransactions = Collections.unmodifiableList(recentTransactions);
+    }
+
+    /**
+     * Khoảng [fromDate, toDate] có nằm trọn trong tháng này không
+     */
+    public boolean covers(Date fromDate, Date toDate) {
+        return !fromDate.before(startDate) && !toDate.after(endDate);
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    public TransactionColumns getColumns() {
+        return columns;
+    }
+
+    public long getIncome() {
+        return income;
+    }
+
+    public long getExpenses() {
+        return expenses;
+    }
+
+    public long getBalance() {
+        return income - expenses;
+    }
+
+    public Map<String, Long> getExpenseByCategory() {
+        return expenseByCategory;
+    }
+
+    public Map<String, Long> getSpentByCategory() {
+        return spentByCategory;
+    }
+
+    public List<Transaction> getRecentTransactions() {
+        return recentTransactions;
+    }
+}
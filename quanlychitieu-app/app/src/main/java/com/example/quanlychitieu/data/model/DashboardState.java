@@ -0,0 +1,65 @@
+package com.example.quanlychitieu.data.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trạng thái dashboard gần nhất đã hiển thị, được lưu lại để lần mở ứng dụng sau
+ * có thể hiển thị ngay mà không phải chờ Firestore.
+ */
+public class DashboardState {
+    private String monthKey;   // Tháng của dữ liệu, dạng yyyyMM
+    private long income;
+    private long expenses;
+    private Map<String, Long> categoryExpenses;
+    private List<Transaction> recentTransactions;
+    private long savedAt;
+
+    public DashboardState() {
+        categoryExpenses = new HashMap<>();
+        recentTransactions = new ArrayList<>();
+    }
+
+    public DashboardState(String monthKey, long income, long expenses,
+                          Map<String, Long> categoryExpenses,
+                          List<Transaction> recentTransactions) {
+        this.monthKey = monthKey;
+        this.income = income;
+        this.expenses = expenses;
+        this.categoryExpenses = new HashMap<>(categoryExpenses);
+        this.recentTransactions = new ArrayList<>(recentTransactions);
+        this.savedAt = System.currentTimeMillis();
+    }
+
+    public long getBalance() {
+        return income - expenses;
+    }
+
+    // Getter
+
+    public String getMonthKey() {
+        return monthKey;
+    }
+
+    public long getIncome() {
+        return income;
+    }
+
+    public long getExpenses() {
+        return expenses;
+    }
+
+    public Map<String, Long> getCategoryExpenses() {
+        return categoryExpenses != null ? categoryExpenses : new HashMap<>();
+    }
+
+    public List<Transaction> getRecentTransactions() {
+        return recentTransactions != null ? recentTransactions : new ArrayList<>();
+    }
+
+    public long getSavedAt() {
+        return savedAt;
+    }
+}
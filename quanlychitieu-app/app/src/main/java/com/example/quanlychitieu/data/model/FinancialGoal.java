@@ -14,8 +14,8 @@ public class FinancialGoal {
     private String userId;     // ID của người dùng sở hữu mục tiêu
     private String name;       // Tên mục tiêu
     private String description; // Mô tả mục tiêu
-    private double targetAmount; // Số tiền mục tiêu
-    private double currentAmount; // Số tiền hiện tại đã tiết kiệm
+    private long targetAmount; // Số tiền mục tiêu (đồng)
+    private long currentAmount; // Số tiền hiện tại đã tiết kiệm (đồng)
     private Date startDate;    // Ngày bắt đầu
     private Date endDate;      // Ngày kết thúc
     private boolean completed; // Trạng thái hoàn thành
@@ -27,7 +27,7 @@ public class FinancialGoal {
 
     // Constructor đầy đủ
     public FinancialGoal(long id, String userId, String name, String description,
-                         double targetAmount, double currentAmount,
+                         long targetAmount, long currentAmount,
                          Date startDate, Date endDate, boolean completed, String category) {
         this.id = id;
         this.userId = userId;
@@ -42,7 +42,7 @@ public class FinancialGoal {
     }
 
     // Constructor cơ bản
-    public FinancialGoal(long id, String userId, String name, double targetAmount,
+    public FinancialGoal(long id, String userId, String name, long targetAmount,
                          Date startDate, Date endDate) {
         this.id = id;
         this.userId = userId;
@@ -56,11 +56,11 @@ public class FinancialGoal {
 
     @Exclude
     public int getProgressPercentage() {
-        return targetAmount > 0 ? (int) ((currentAmount / targetAmount) * 100) : 0;
+        return targetAmount > 0 ? (int) (currentAmount * 100 / targetAmount) : 0;
     }
 
     @Exclude
-    public double getRemainingAmount() {
+    public long getRemainingAmount() {
         return targetAmount - currentAmount;
     }
 
@@ -106,19 +106,19 @@ public class FinancialGoal {
         this.description = description;
     }
 
-    public double getTargetAmount() {
+    public long getTargetAmount() {
         return targetAmount;
     }
 
-    public void setTargetAmount(double targetAmount) {
+    public void setTargetAmount(long targetAmount) {
         this.targetAmount = targetAmount;
     }
 
-    public double getCurrentAmount() {
+    public long getCurrentAmount() {
         return currentAmount;
     }
 
-    public void setCurrentAmount(double currentAmount) {
+    public void setCurrentAmount(long currentAmount) {
         this.currentAmount = currentAmount;
     }
 
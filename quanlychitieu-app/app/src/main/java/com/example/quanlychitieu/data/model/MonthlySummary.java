@@ -0,0 +1,118 @@
+package com.example.quanlychitieu.data.model;
+
+import com.google.firebase.firestore.Exclude;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tài liệu tổng hợp của một tháng: users/{uid}/monthlySummaries/{yyyyMM}.
+ * Tổng thu, tổng chi và chi theo danh mục không tính giao dịch đóng góp mục tiêu
+ * (giống dashboard), các khoản đóng góp được cộng riêng vào goalContributions.
+ */
+public class MonthlySummary {
+    @Exclude
+    private String monthKey;   // ID tài liệu, dạng yyyyMM
+
+    private long income;
+    private long expense;
+    private long goalContributions;
+    private long transactionCount;
+    private Map<String, Long> categories;   // Chi tiêu theo danh mục
+
+    public MonthlySummary() {
+        categories = new HashMap<>();
+    }
+
+    public MonthlySummary(String monthKey) {
+        this();
+        this.monthKey = monthKey;
+    }
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) phần đóng góp của một giao dịch
+     */
+    public void addTransaction(Transaction transaction, int sign) {
+        long amount = sign * Math.abs(transaction.getAmount());
+        transactionCount += sign;
+
+        if (transaction.isGoalContribution()) {
+            goalContributions += amount;
+        } else if (transaction.isIncome()) {
+            income += amount;
+        } else {
+            expense += amount;
+            String category = transaction.getCategory();
+            categories.put(category, categories.getOrDefault(category, 0L) + amount);
+        }
+    }
+
+    @Exclude
+    public boolean isEmpty() {
+        if (income != 0 || expense != 0 || goalContributions != 0 || transactionCount != 0) {
+            return false;
+        }
+        for (long amount : categories.values()) {
+            if (amount != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Exclude
+    public long getBalance() {
+        return income - expense;
+    }
+
+    // Getter và Setter
+
+    @Exclude
+    public String getMonthKey() {
+        return monthKey;
+    }
+
+    public void setMonthKey(String monthKey) {
+        this.monthKey = monthKey;
+    }
+
+    public long getIncome() {
+        return income;
+    }
+
+    public void setIncome(long income) {
+        this.income = income;
+    }
+
+    public long getExpense() {
+        return expense;
+    }
+
+    public void setExpense(long expense) {
+        this.expense = expense;
+    }
+
+    public long getGoalContributions() {
+        return goalContributions;
+    }
+
+    public void setGoalContributions(long goalContributions) {
+        this.goalContributions = goalContributions;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public Map<String, Long> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Map<String, Long> categories) {
+        this.categories = categories;
+    }
+}
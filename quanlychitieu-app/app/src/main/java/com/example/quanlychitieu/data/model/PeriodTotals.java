@@ -0,0 +1,111 @@
+package com.example.quanlychitieu.data.model;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Tổng thu, tổng chi và chi theo danh mục của một khoảng thời gian (đơn vị đồng).
+ * Không tính các giao dịch đóng góp mục tiêu.
+ */
+public class PeriodTotals {
+    private final Date startDate;
+    private final Date endDate;
+    private long income;
+    private long expense;
+    private long transactionCount;
+    private final CategoryAmounts expenseByCategory = new CategoryAmounts();
+
+    public PeriodTotals(Date startDate, Date endDate) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    /**
+     * Cộng dồn một giao dịch (dùng khi tính phía client)
+     */
+    public void addTransaction(Transaction transaction) {
+        if (transaction.isGoalContribution()) {
+            return;
+        }
+
+        addAmount(transaction.isIncome(), transaction.getCategoryId(), Math.abs(transaction.getAmount()));
+    }
+
+    // Cộng một giao dịch đã tách thành các giá trị nguyên thủy (dùng bởi TransactionColumns)
+    void addAmount(boolean isIncome, int categoryId, long amount) {
+        transactionCount++;
+        if (isIncome) {
+            income += amount;
+        } else {
+            expense += amount;
+            expenseByCategory.add(categoryId, amount);
+        }
+    }
+
+    // Cộng kết quả tổng hợp của một nhóm giao dịch (dùng bởi TransactionColumns)
+    void addTotals(long income, long expense, long transactionCount, CategoryAmounts expenseByCategory) {
+        this.income += income;
+        this.expense += expense;
+        this.transactionCount += transactionCount;
+        this.expenseByCategory.addAll(expenseByCategory);
+    }
+
+    public void addCategoryExpense(String category, long amount) {
+        expenseByCategory.add(category, amount);
+    }
+
+    /**
+     * Bản sao độc lập, dùng khi trả về tổng đang được lưu dùng chung (ví dụ trong PeriodCache)
+     */
+    public PeriodTotals copy() {
+        PeriodTotals copy = new PeriodTotals(startDate, endDate);
+        copy.addTotals(income, expense, transactionCount, expenseByCategory);
+        return copy;
+    }
+
+    public boolean contains(Date date) {
+        return !date.before(startDate) && !date.after(endDate);
+    }
+
+    public long getBalance() {
+        return income - expense;
+    }
+
+    // Getter và Setter
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public long getIncome() {
+        return income;
+    }
+
+    public void setIncome(long income) {
+        this.income = income;
+    }
+
+    public long getExpense() {
+        return expense;
+    }
+
+    public void setExpense(long expense) {
+        this.expense = expense;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public Map<String, Long> getExpenseByCategory() {
+        return expenseByCategory.toMap();
+    }
+}
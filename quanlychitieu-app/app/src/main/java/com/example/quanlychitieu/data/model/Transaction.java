@@ -1,5 +1,6 @@
 package com.example.quanlychitieu.data.model;
 
+import com.example.quanlychitieu.data.CategoryManager;
 import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 
@@ -12,7 +13,7 @@ public class Transaction {
 
     private long id;
     private String description; // Mô tả giao dịch
-    private double amount;      // Số tiền
+    private long amount;        // Số tiền (đồng)
     private String category;    // Danh mục
     private Date date;          // Ngày giao dịch
     private boolean isIncome;   // true nếu là thu nhập, false nếu là chi tiêu
@@ -23,11 +24,13 @@ public class Transaction {
     private Date endDate;         // Ngày kết thúc (tùy chọn)
     private String goalId;     // ID của mục tiêu nếu giao dịch này đóng góp vào mục tiêu
     private boolean isGoalContribution; // Đánh dấu đây là giao dịch đóng góp vào mục tiêu
+    @Exclude
+    private transient int categoryId = -1; // Id danh mục trong CategoryManager, tra một lần (không lưu)
 
     public Transaction() {
     }
 
-    public Transaction(long id, String description, double amount, String category,
+    public Transaction(long id, String description, long amount, String category,
                        Date date, boolean isIncome, String note, boolean repeat, String repeatType, Date endDate) {
         this.id = id;
         this.description = description;
@@ -41,7 +44,7 @@ public class Transaction {
         this.endDate = endDate;
     }
 
-    public Transaction(long id, String description, double amount, String category, Date date, boolean isIncome, String note, boolean repeat) {
+    public Transaction(long id, String description, long amount, String category, Date date, boolean isIncome, String note, boolean repeat) {
         this.id = id;
         this.description = description;
         this.amount = amount;
@@ -59,6 +62,7 @@ public class Transaction {
         this.description = transaction.description;
         this.amount = transaction.amount;
         this.category = transaction.category;
+        this.categoryId = transaction.categoryId;
         this.date = transaction.date;
         this.isIncome = transaction.isIncome;
         this.note = transaction.note;
@@ -69,7 +73,7 @@ public class Transaction {
     }
 
     // Constructor with Firebase ID and user ID
-    public Transaction(String firebaseId, long id, String description, double amount,
+    public Transaction(String firebaseId, long id, String description, long amount,
                        String category, Date date, boolean isIncome, String note,
                        boolean repeat, String userId, String repeatType, Date endDate) {
         this.firebaseId = firebaseId;
@@ -111,11 +115,11 @@ public class Transaction {
         this.description = description;
     }
 
-    public double getAmount() {
+    public long getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(long amount) {
         this.amount = amount;
     }
 
@@ -125,6 +129,18 @@ public class Transaction {
 
     public void setCategory(String category) {
         this.category = category;
+        this.categoryId = -1;
+    }
+
+    /**
+     * Id số của danh mục, dùng làm chỉ số mảng trong các vòng tổng hợp
+     */
+    @Exclude
+    public int getCategoryId() {
+        if (categoryId < 0) {
+            categoryId = CategoryManager.getInstance().getCategoryId(category);
+        }
+        return categoryId;
     }
 
     public Date getDate() {
@@ -0,0 +1,137 @@
+package com.example.quanlychitieu.data.model;
+
+import com.example.quanlychitieu.utils.TimeBuckets;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Bản sao dạng cột của một danh sách giao dịch, dùng cho các vòng tính thống kê.
+ * Mỗi giao dịch chỉ còn khoảng 20 byte (ngày, số tiền, id danh mục và hai bit cờ)
+ * thay vì một Transaction với Date và nhiều String (khoảng 500 byte), và các vòng quét
+ * chỉ đọc mảng nguyên thủy liền nhau, không tạo đối tượng.
+ * Không thay đổi được sau khi tạo nên có thể dùng chung giữa các luồng.
+ */
+public class TransactionColumns {
+    // Giao dịch không có ngày nằm ngoài mọi khoảng
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final int size;
+    private final long[] epochMillis;
+    private final long[] amounts;          // Giá trị tuyệt đối (đồng)
+    private final int[] categoryIds;       // Id danh mục trong CategoryManager
+    private final BitSet income;
+    private final BitSet goalContribution;
+
+    private TransactionColumns(int size) {
+        this.size = size;
+        epochMillis = new long[size];
+        amounts = new long[size];
+        categoryIds = new int[size];
+        income = new BitSet(size);
+        goalContribution = new BitSet(size);
+    }
+
+    /**
+     * Tạo các cột từ danh sách giao dịch, giữ nguyên thứ tự
+     */
+    public static TransactionColumns of(List<Transaction> transactions) {
+        TransactionColumns columns = new TransactionColumns(transactions.size());
+        for (int i = 0; i < columns.size; i++) {
+            Transaction transaction = transactions.get(i);
+            columns.epochMillis[i] = transaction.getDate() != null ? transaction.getDate().getTime() : NO_DATE;
+            columns.amounts[i] = Math.abs(transaction.getAmount());
+            columns.categoryIds[i] = transaction.getCategoryId();
+            if (transaction.isIncome()) {
+                columns.income.set(i);
+            }
+            if (transaction.isGoalContribution()) {
+                columns.goalContribution.set(i);
+            }
+        }
+        return columns;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Cộng các giao dịch nằm trong khoảng của totals (bỏ qua đóng góp mục tiêu)
+     */
+    public void addTo(PeriodTotals totals) {
+        long start = totals.getStartDate().getTime();
+        long end = totals.getEndDate().getTime();
+        for (int i = 0; i < size; i++) {
+            long time = epochMillis[i];
+            if (time >= start && time <= end && !goalContribution.get(i)) {
+                totals.addAmount(income.get(i), categoryIds[i], amounts[i]);
+            }
+        }
+    }
+
+    /**
+     * Trong một lượt quét: cộng tổng của cả khoảng vào totals và thu/chi của từng giao dịch
+     * vào mảng của khoảng thời gian chứa nó (bỏ qua đóng góp mục tiêu)
+     * Chạy tuần tự: chỉ kỳ tối đa một tháng mới quét giao dịch thô (kỳ dài hơn đọc từ chỉ mục
+     * và các tầng tổng hợp), nên số dòng luôn quá nhỏ để chia cho nhiều luồng.
+     * @param totals Khoảng của totals phải trùng với khoảng của buckets
+     * @param income Tổng thu theo chỉ số khoảng, độ dài buckets.size()
+     * @param expense Tổng chi theo chỉ số khoảng, độ dài buckets.size()
+     */
+    public void aggregate(TimeBuckets buckets, PeriodTotals totals, long[] income, long[] expense) {
+        for (int i = 0; i < size; i++) {
+            if (goalContribution.get(i)) {
+                continue;
+            }
+            int index = buckets.indexOf(epochMillis[i]);
+            if (index < 0) {
+                continue;
+            }
+
+            long amount = amounts[i];
+            boolean isIncome = this.income.get(i);
+            totals.addAmount(isIncome, categoryIds[i], amount);
+            if (isIncome) {
+                income[index] += amount;
+            } else {
+                expense[index] += amount;
+            }
+        }
+    }
+
+    /**
+     * Cộng từng giao dịch vào khoảng chứa nó
+     * @param buckets Các khoảng đã sắp xếp theo thời gian và không chồng lên nhau
+     */
+    public void addToBuckets(List<PeriodTotals> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+
+        int count = buckets.size();
+        long[] starts = new long[count];
+        for (int b = 0; b < count; b++) {
+            starts[b] = buckets.get(b).getStartDate().getTime();
+        }
+        long end = buckets.get(count - 1).getEndDate().getTime();
+
+        for (int i = 0; i < size; i++) {
+            long time = epochMillis[i];
+            if (time < starts[0] || time > end || goalContribution.get(i)) {
+                continue;
+            }
+
+            // Khoảng cuối cùng có điểm bắt đầu <= time
+            int index = Arrays.binarySearch(starts, time);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            PeriodTotals bucket = buckets.get(index);
+            if (time <= bucket.getEndDate().getTime()) {
+                bucket.addAmount(income.get(i), categoryIds[i], amounts[i]);
+            }
+        }
+    }
+}
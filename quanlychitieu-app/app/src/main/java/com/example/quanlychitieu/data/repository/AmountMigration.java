@@ -0,0 +1,143 @@
+package com.example.quanlychitieu.data.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chuyển các trường số tiền cũ lưu dạng số thực (Double) trên Firestore sang số nguyên đồng (Long).
+ * Chỉ tài liệu còn trường Double mới được ghi lại nên chạy lại nhiều lần vẫn an toàn;
+ * khi đã chuyển xong cho một người dùng thì không đọc lại nữa.
+ */
+public class AmountMigration {
+    private static final String TAG = "AmountMigration";
+    private static final String COLLECTION_USERS = "users";
+
+    private static final String PREFS_NAME = "amount_migration";
+    private static final String KEY_VERSION_PREFIX = "version_";
+    private static final int MIGRATION_VERSION = 1;
+    // Firestore giới hạn 500 thao tác trong một WriteBatch
+    private static final int MAX_BATCH_WRITES = 500;
+
+    // Các collection con và trường số tiền cần chuyển
+    private static final String[] COLLECTIONS = {"transactions", "budgets", "goals"};
+    private static final String[][] AMOUNT_FIELDS = {
+            {"amount"},
+            {"amount", "spent"},
+            {"targetAmount", "currentAmount"}
+    };
+
+    private final FirebaseFirestore db;
+    private final FirebaseAuth auth;
+    private boolean running = false;
+
+    private static AmountMigration instance;
+
+    public static synchronized AmountMigration getInstance() {
+        if (instance == null) {
+            instance = new AmountMigration();
+        }
+        return instance;
+    }
+
+    private AmountMigration() {
+        db = FirebaseFirestore.getInstance();
+        auth = FirebaseAuth.getInstance();
+    }
+
+    /**
+     * Chạy chuyển đổi một lần cho người dùng hiện tại
+     */
+    public void runIfNeeded(Context context) {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null || running) {
+            return;
+        }
+
+        String userId = currentUser.getUid();
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getInt(KEY_VERSION_PREFIX + userId, 0) >= MIGRATION_VERSION) {
+            return;
+        }
+
+        running = true;
+        List<Task<QuerySnapshot>> loads = new ArrayList<>();
+        for (String collection : COLLECTIONS) {
+            loads.add(db.collection(COLLECTION_USERS)
+                    .document(userId)
+                    .collection(collection)
+                    .get());
+        }
+
+        Tasks.whenAll(loads)
+                .addOnSuccessListener(aVoid -> {
+                    // Ghi theo từng batch tối đa 500 tài liệu
+                    List<Task<Void>> commits = new ArrayList<>();
+                    WriteBatch batch = db.batch();
+                    int writes = 0;
+                    int migrated = 0;
+                    for (int i = 0; i < COLLECTIONS.length; i++) {
+                        for (DocumentSnapshot document : loads.get(i).getResult().getDocuments()) {
+                            Map<String, Object> updates = toLongFields(document, AMOUNT_FIELDS[i]);
+                            if (updates.isEmpty()) {
+                                continue;
+                            }
+
+                            batch.update(document.getReference(), updates);
+                            migrated++;
+                            if (++writes == MAX_BATCH_WRITES) {
+                                commits.add(batch.commit());
+                                batch = db.batch();
+                                writes = 0;
+                            }
+                        }
+                    }
+                    if (writes > 0) {
+                        commits.add(batch.commit());
+                    }
+
+                    int migratedCount = migrated;
+                    Tasks.whenAll(commits)
+                            .addOnSuccessListener(unused -> {
+                                prefs.edit().putInt(KEY_VERSION_PREFIX + userId, MIGRATION_VERSION).apply();
+                                running = false;
+                                Log.d(TAG, "Converted amounts of " + migratedCount + " documents");
+                            })
+                            .addOnFailureListener(e -> {
+                                running = false;
+                                Log.e(TAG, "Error writing converted amounts", e);
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    running = false;
+                    Log.e(TAG, "Error loading documents for amount migration", e);
+                });
+    }
+
+    // Các trường còn lưu dạng Double, đã làm tròn sang Long
+    private Map<String, Object> toLongFields(DocumentSnapshot document, String[] fields) {
+        Map<String, Object> updates = new HashMap<>();
+        for (String field : fields) {
+            Object value = document.get(field);
+            if (value instanceof Double) {
+                updates.put(field, Math.round((Double) value));
+            }
+        }
+        return updates;
+    }
+}
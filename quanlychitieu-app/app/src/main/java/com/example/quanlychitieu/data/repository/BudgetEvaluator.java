@@ -0,0 +1,406 @@
+package com.example.quanlychitieu.data.repository;
+
+import com.example.quanlychitieu.data.model.Budget;
+import com.example.quanlychitieu.data.model.BudgetForecast;
+import com.example.quanlychitieu.data.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Đánh giá các ngân sách đang áp dụng trong bộ nhớ. Mỗi ngân sách có kỳ [startDate, endDate] riêng
+ * (tháng, tuần, quý hay tùy chọn), số tiền đã chi được tính trong đúng kỳ đó.
+ * Ngân sách được đánh chỉ mục bằng một BudgetIntervalIndex cho mỗi danh mục, mỗi giao dịch chi
+ * được chuyển tới mọi ngân sách cùng danh mục có kỳ chứa ngày giao dịch trong O(log n + k).
+ * Phần đóng góp của giao dịch được giữ theo document id (giống DailyTotalsIndex) nên áp dụng
+ * cùng một thay đổi hai lần (ghi xuyên rồi delta của listener) vẫn đúng.
+ * Chỉ phát sự kiện khi chi tiêu vượt qua ngưỡng (lần đầu chạm ngưỡng và chưa gửi thông báo),
+ * trạng thái thông báo được reset khi chi tiêu giảm xuống dưới ngưỡng.
+ * Chuỗi chi theo ngày của BudgetForecaster được cập nhật cùng lúc; cảnh báo dự kiến vượt ngân sách
+ * được phát một lần khi cả hai mô hình dự báo đều vượt, trước khi chi tiêu thực sự vượt, và chỉ
+ * được phép phát lại khi sang kỳ mới hoặc dự báo tuyến tính giảm hẳn xuống dưới số tiền ngân sách.
+ * Phải được gọi trên main thread.
+ */
+public class BudgetEvaluator {
+
+    public interface OnThresholdCrossedListener {
+        void onThresholdCrossed(Budget budget);
+    }
+
+    public interface OnOverrunForecastListener {
+        void onOverrunForecast(Budget budget, BudgetForecast forecast);
+    }
+
+    public interface OnSpentChangedListener {
+        // Các ngân sách có số tiền đã chi hoặc trạng thái thông báo vừa thay đổi
+        void onSpentChanged(List<Budget> budgets);
+    }
+
+    // Phần đóng góp hiện tại của một giao dịch chi
+    private static class Contribution {
+        final String category;
+        final long time;
+        final long amount;
+
+        Contribution(String category, long time, long amount) {
+            this.category = category;
+            this.time = time;
+            this.amount = amount;
+        }
+    }
+
+    // Cần ít nhất vài ngày dữ liệu thì tốc độ chi mới đủ tin cậy để cảnh báo
+    private static final int MIN_FORECAST_DAYS = 3;
+    // Dự báo tuyến tính phải thấp hơn số tiền ngân sách ít nhất chừng này phần trăm mới cho phép
+    // cảnh báo lại, để dự báo dao động quanh số tiền ngân sách không gây cảnh báo lặp lại
+    private static final int FORECAST_RESET_MARGIN_PERCENT = 10;
+
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    // Listener đồng bộ đã gửi lượt giao dịch đầu tiên chưa; trước đó số tiền đã chi lấy theo
+    // tài liệu ngân sách và các lần ghi xuyên bị bỏ qua
+    private boolean loaded = false;
+    private final Map<String, Budget> budgetsById = new HashMap<>();
+    private final Map<String, BudgetIntervalIndex> indexByCategory = new HashMap<>();
+    private final BudgetForecaster forecaster = BudgetForecaster.getInstance();
+    private OnThresholdCrossedListener listener;
+    private OnOverrunForecastListener forecastListener;
+    private OnSpentChangedListener spentChangedListener;
+
+    private static BudgetEvaluator instance;
+
+    public static synchronized BudgetEvaluator getInstance() {
+        if (instance == null) {
+            instance = new BudgetEvaluator();
+        }
+        return instance;
+    }
+
+    BudgetEvaluator() {
+    }
+
+    public void setListener(OnThresholdCrossedListener listener) {
+        this.listener = listener;
+    }
+
+    public void setForecastListener(OnOverrunForecastListener forecastListener) {
+        this.forecastListener = forecastListener;
+    }
+
+    public void setSpentChangedListener(OnSpentChangedListener spentChangedListener) {
+        this.spentChangedListener = spentChangedListener;
+    }
+
+    /**
+     * Thay danh sách ngân sách đang áp dụng (mỗi khi listener ngân sách có dữ liệu mới) và dựng lại
+     * chỉ mục. Ngân sách giữ nguyên danh mục, kỳ, số tiền và ngưỡng thông báo thì dùng lại số tiền
+     * đã chi đã tính, các ngân sách còn lại được tính lại từ giao dịch đã biết. Không phát sự kiện
+     * vượt ngưỡng.
+     */
+    public void setBudgets(List<Budget> budgets) {
+        Map<String, Budget> previousById = new HashMap<>(budgetsById);
+        budgetsById.clear();
+        indexByCategory.clear();
+
+        Map<String, List<Budget>> budgetsByCategory = new HashMap<>();
+        List<Budget> stale = new ArrayList<>();
+        Set<String> keptIds = new HashSet<>();
+        for (Budget budget : budgets) {
+            if (budget.getFirebaseId() == null || budget.getStartDate() == null || budget.getEndDate() == null) {
+                continue;
+            }
+            budgetsById.put(budget.getFirebaseId(), budget);
+            budgetsByCategory.computeIfAbsent(budget.getCategory(), k -> new ArrayList<>()).add(budget);
+
+            Budget previous = previousById.get(budget.getFirebaseId());
+            if (previous != null && sameSettings(previous, budget)) {
+                // Thay đổi đang chờ ghi có thể chưa có trong tài liệu
+                budget.setSpent(previous.getSpent());
+                if (previous.isNotificationSent()) {
+                    budget.markNotificationSent();
+                }
+                if (previous.isForecastAlertSent()) {
+                    budget.markForecastAlertSent();
+                }
+                budget.setForecast(previous.getForecast());
+                keptIds.add(budget.getFirebaseId());
+            } else {
+                if (previous != null && !samePeriod(previous, budget)) {
+                    // Sang kỳ mới: cho phép cảnh báo dự kiến vượt ngân sách lại
+                    budget.resetForecastAlert();
+                }
+                stale.add(budget);
+            }
+        }
+        for (Map.Entry<String, List<Budget>> entry : budgetsByCategory.entrySet()) {
+            indexByCategory.put(entry.getKey(), new BudgetIntervalIndex(entry.getValue()));
+        }
+        // Chuỗi chi theo ngày của ngân sách mới hoặc đổi kỳ được dựng lại khi tính lại
+        forecaster.retain(keptIds);
+
+        if (loaded) {
+            recompute(stale);
+        }
+    }
+
+    /**
+     * Ngân sách đang áp dụng theo document id, null nếu không có
+     */
+    public Budget getBudget(String firebaseId) {
+        return budgetsById.get(firebaseId);
+    }
+
+    /**
+     * Đã biết đủ giao dịch để tính số tiền đã chi hay chưa
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Tổng chi của một danh mục trong [startDate, endDate] từ các giao dịch đã biết,
+     * dùng cho ngân sách chưa có trong chỉ mục (vừa thêm hoặc vừa sửa kỳ)
+     */
+    public long getSpentInWindow(String category, Date startDate, Date endDate) {
+        long start = startDate.getTime();
+        long end = endDate.getTime();
+        long spent = 0;
+        for (Contribution contribution : contributions.values()) {
+            if (contribution.category.equals(category) && contribution.time >= start && contribution.time <= end) {
+                spent += contribution.amount;
+            }
+        }
+        return spent;
+    }
+
+    /**
+     * Dựng lại từ ảnh chụp đầy đủ của listener đồng bộ, không phát sự kiện vượt ngưỡng
+     */
+    public void replaceTransactions(List<Transaction> transactions) {
+        contributions.clear();
+        for (Transaction transaction : transactions) {
+            Contribution contribution = toContribution(transaction);
+            if (contribution != null) {
+                contributions.put(transaction.getFirebaseId(), contribution);
+            }
+        }
+        loaded = true;
+        recompute(new ArrayList<>(budgetsById.values()));
+    }
+
+    /**
+     * Áp dụng các thay đổi gia tăng của listener đồng bộ.
+     * Lượt đầu tiên (ảnh chụp từ cache) chỉ dựng trạng thái, không phát sự kiện vượt ngưỡng.
+     */
+    public void applyChanges(List<Transaction> upserts, List<String> removedIds) {
+        if (!loaded) {
+            for (Transaction transaction : upserts) {
+                replaceContribution(transaction.getFirebaseId(), toContribution(transaction), null);
+            }
+            for (String firebaseId : removedIds) {
+                replaceContribution(firebaseId, null, null);
+            }
+            loaded = true;
+            recompute(new ArrayList<>(budgetsById.values()));
+            return;
+        }
+        applyIncremental(upserts, removedIds);
+    }
+
+    // Ghi xuyên khi thêm hoặc sửa giao dịch; trước lượt đầu của listener đồng bộ thì bỏ qua,
+    // lượt đó sẽ gồm cả thay đổi này
+    public void upsert(Transaction transaction) {
+        if (loaded) {
+            applyIncremental(Collections.singletonList(transaction), Collections.emptyList());
+        }
+    }
+
+    // Ghi xuyên khi xóa giao dịch
+    public void remove(String firebaseId) {
+        if (loaded) {
+            applyIncremental(Collections.emptyList(), Collections.singletonList(firebaseId));
+        }
+    }
+
+    private void applyIncremental(List<Transaction> upserts, List<String> removedIds) {
+        // Số tiền đã chi trước thay đổi của các ngân sách bị ảnh hưởng
+        Map<Budget, Long> previousSpent = new LinkedHashMap<>();
+        for (Transaction transaction : upserts) {
+            replaceContribution(transaction.getFirebaseId(), toContribution(transaction), previousSpent);
+        }
+        for (String firebaseId : removedIds) {
+            replaceContribution(firebaseId, null, previousSpent);
+        }
+
+        List<Budget> changed = new ArrayList<>();
+        for (Map.Entry<Budget, Long> entry : previousSpent.entrySet()) {
+            Budget budget = entry.getKey();
+            if (budget.getSpent() != entry.getValue()) {
+                evaluate(budget, entry.getValue(), true);
+                changed.add(budget);
+            }
+        }
+        publish(changed);
+    }
+
+    private void replaceContribution(String firebaseId, Contribution contribution, Map<Budget, Long> previousSpent) {
+        Contribution old = contribution != null
+                ? contributions.put(firebaseId, contribution)
+                : contributions.remove(firebaseId);
+        if (previousSpent == null) {
+            return;
+        }
+        if (old != null) {
+            route(old, -1, previousSpent);
+        }
+        if (contribution != null) {
+            route(contribution, 1, previousSpent);
+        }
+    }
+
+    // Cộng phần đóng góp vào mọi ngân sách cùng danh mục có kỳ chứa ngày giao dịch
+    private void route(Contribution contribution, int sign, Map<Budget, Long> previousSpent) {
+        BudgetIntervalIndex index = indexByCategory.get(contribution.category);
+        if (index == null) {
+            return;
+        }
+
+        List<Budget> matches = new ArrayList<>();
+        index.findContaining(contribution.time, matches);
+        for (Budget budget : matches) {
+            previousSpent.putIfAbsent(budget, budget.getSpent());
+            budget.setSpent(budget.getSpent() + sign * contribution.amount);
+            forecaster.add(budget, contribution.time, sign * contribution.amount);
+        }
+    }
+
+    // Tính lại số tiền đã chi của các ngân sách từ toàn bộ giao dịch đã biết, không phát sự kiện vượt ngưỡng
+    private void recompute(List<Budget> budgets) {
+        if (budgets.isEmpty()) {
+            return;
+        }
+
+        Map<Budget, Long> previousSpent = new LinkedHashMap<>();
+        for (Budget budget : budgets) {
+            previousSpent.put(budget, budget.getSpent());
+            budget.setSpent(0);
+            forecaster.reset(budget);
+        }
+
+        // Chỉ cộng vào các ngân sách cần tính lại
+        List<Budget> matches = new ArrayList<>();
+        for (Contribution contribution : contributions.values()) {
+            BudgetIntervalIndex index = indexByCategory.get(contribution.category);
+            if (index == null) {
+                continue;
+            }
+            matches.clear();
+            index.findContaining(contribution.time, matches);
+            for (Budget budget : matches) {
+                if (previousSpent.containsKey(budget)) {
+                    budget.setSpent(budget.getSpent() + contribution.amount);
+                    forecaster.add(budget, contribution.time, contribution.amount);
+                }
+            }
+        }
+
+        List<Budget> changed = new ArrayList<>();
+        for (Map.Entry<Budget, Long> entry : previousSpent.entrySet()) {
+            Budget budget = entry.getKey();
+            boolean wasSent = budget.isNotificationSent();
+            boolean wasForecastSent = budget.isForecastAlertSent();
+            evaluate(budget, entry.getValue(), false);
+            if (budget.getSpent() != entry.getValue() || budget.isNotificationSent() != wasSent
+                    || budget.isForecastAlertSent() != wasForecastSent) {
+                changed.add(budget);
+            }
+        }
+        publish(changed);
+    }
+
+    private void evaluate(Budget budget, long previousSpent, boolean notify) {
+        long spent = budget.getSpent();
+        if (!isThresholdReached(budget, spent)) {
+            // Xuống dưới ngưỡng: cho phép thông báo lại ở lần vượt ngưỡng sau
+            budget.resetNotificationStatus();
+        } else if (notify && spent > previousSpent && !budget.isNotificationSent()) {
+            budget.markNotificationSent();
+            if (listener != null) {
+                listener.onThresholdCrossed(budget);
+            }
+        }
+        evaluateForecast(budget, notify);
+    }
+
+    // Tính lại dự báo của ngân sách và cảnh báo một lần khi dự kiến vượt ngân sách trước khi hết kỳ
+    private void evaluateForecast(Budget budget, boolean notify) {
+        BudgetForecast forecast = forecaster.forecast(budget, System.currentTimeMillis());
+        budget.setForecast(forecast);
+        if (forecast == null) {
+            return;
+        }
+
+        if (budget.isForecastAlertSent()) {
+            if (forecast.getLinearProjection() * 100
+                    < forecast.getAmount() * (100 - FORECAST_RESET_MARGIN_PERCENT)) {
+                budget.resetForecastAlert();
+            }
+        } else if (notify && budget.isNotificationsEnabled() && forecast.isOverrunExpected()
+                && forecast.getSpent() < forecast.getAmount()
+                && forecast.getElapsedDays() >= MIN_FORECAST_DAYS) {
+            budget.markForecastAlertSent();
+            if (forecastListener != null) {
+                forecastListener.onOverrunForecast(budget, forecast);
+            }
+        }
+    }
+
+    /**
+     * Dự báo mới nhất của ngân sách tại thời điểm hiện tại (tốc độ chi thay đổi theo ngày kể cả khi
+     * không có giao dịch mới), null nếu chưa đủ dữ liệu
+     */
+    public BudgetForecast forecast(Budget budget) {
+        BudgetForecast forecast = forecaster.forecast(budget, System.currentTimeMillis());
+        budget.setForecast(forecast);
+        return forecast;
+    }
+
+    private void publish(List<Budget> changed) {
+        if (!changed.isEmpty() && spentChangedListener != null) {
+            spentChangedListener.onSpentChanged(changed);
+        }
+    }
+
+    private static Contribution toContribution(Transaction transaction) {
+        if (transaction.isIncome() || transaction.getDate() == null || transaction.getCategory() == null) {
+            return null;
+        }
+        return new Contribution(transaction.getCategory(), transaction.getDate().getTime(),
+                Math.abs(transaction.getAmount()));
+    }
+
+    // Cùng danh mục, kỳ và các giá trị dùng để đánh giá ngưỡng, nên giữ được trạng thái đã tính
+    private static boolean sameSettings(Budget a, Budget b) {
+        return samePeriod(a, b)
+                && a.getAmount() == b.getAmount()
+                && a.getNotificationThreshold() == b.getNotificationThreshold()
+                && a.isNotificationsEnabled() == b.isNotificationsEnabled();
+    }
+
+    private static boolean samePeriod(Budget a, Budget b) {
+        return a.getCategory().equals(b.getCategory())
+                && a.getStartDate().equals(b.getStartDate())
+                && a.getEndDate().equals(b.getEndDate());
+    }
+
+    private static boolean isThresholdReached(Budget budget, long spent) {
+        return budget.isNotificationsEnabled() && budget.getAmount() > 0
+                && spent * 100 >= (long) budget.getNotificationThreshold() * budget.getAmount();
+    }
+}
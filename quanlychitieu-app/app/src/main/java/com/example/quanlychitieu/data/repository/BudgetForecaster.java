@@ -0,0 +1,162 @@
+package com.example.quanlychitieu.data.repository;
+
+import com.example.quanlychitieu.data.model.Budget;
+import com.example.quanlychitieu.data.model.BudgetForecast;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dự báo tốc độ chi của các ngân sách đang áp dụng.
+ * Mỗi ngân sách có một chuỗi chi theo ngày trong kỳ [startDate, endDate], được BudgetEvaluator
+ * cập nhật O(1) cho mỗi giao dịch được chuyển tới ngân sách đó.
+ * Một lần dự báo duyệt các ngày đã qua của kỳ (tối đa độ dài kỳ), đủ rẻ để tính lại mỗi khi có thay đổi.
+ * Phải được gọi trên main thread.
+ */
+public class BudgetForecaster {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    // Trọng số của một ngày giảm còn 80% so với ngày liền sau (mô hình gần đây)
+    private static final double RECENT_DECAY = 0.8;
+
+    // Chi theo ngày của một ngân sách, phần tử i ứng với ngày firstDay + i
+    private static class Series {
+        final long firstDay;
+        final long[] daily;
+
+        Series(long firstDay, int days) {
+            this.firstDay = firstDay;
+            this.daily = new long[days];
+        }
+    }
+
+    private final Map<String, Series> seriesById = new HashMap<>();
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private static BudgetForecaster instance;
+
+    public static synchronized BudgetForecaster getInstance() {
+        if (instance == null) {
+            instance = new BudgetForecaster();
+        }
+        return instance;
+    }
+
+    BudgetForecaster() {
+    }
+
+    /**
+     * Tạo chuỗi rỗng cho kỳ hiện tại của ngân sách (thay chuỗi cũ nếu có)
+     */
+    void reset(Budget budget) {
+        long firstDay = epochDay(budget.getStartDate().getTime());
+        long lastDay = epochDay(budget.getEndDate().getTime());
+        seriesById.put(budget.getFirebaseId(), new Series(firstDay, (int) Math.max(0, lastDay - firstDay + 1)));
+    }
+
+    /**
+     * Cộng (hoặc trừ khi amount âm) một khoản chi vào ngày của giao dịch
+     */
+    void add(Budget budget, long time, long amount) {
+        Series series = seriesById.get(budget.getFirebaseId());
+        if (series == null) {
+            return;
+        }
+        long index = epochDay(time) - series.firstDay;
+        if (index >= 0 && index < series.daily.length) {
+            series.daily[(int) index] += amount;
+        }
+    }
+
+    /**
+     * Bỏ chuỗi của các ngân sách không còn áp dụng
+     */
+    void retain(Collection<String> firebaseIds) {
+        seriesById.keySet().retainAll(firebaseIds);
+    }
+
+    /**
+     * Dự báo tại thời điểm now, null nếu ngân sách chưa có chuỗi chi hoặc kỳ chưa bắt đầu
+     */
+    public BudgetForecast forecast(Budget budget, long now) {
+        Series series = budget.getFirebaseId() != null ? seriesById.get(budget.getFirebaseId()) : null;
+        if (series == null || series.daily.length == 0) {
+            return null;
+        }
+
+        long today = epochDay(now);
+        int todayIndex = (int) Math.min(today - series.firstDay, series.daily.length - 1);
+        if (todayIndex < 0) {
+            return null;
+        }
+        int elapsedDays = todayIndex + 1;
+        int remainingDays = (int) Math.max(0, series.firstDay + series.daily.length - 1 - today);
+        // Ngày trọn vẹn cuối cùng: hôm qua, hoặc ngày cuối kỳ nếu kỳ đã kết thúc
+        int lastCompleteIndex = today - series.firstDay > todayIndex ? todayIndex : todayIndex - 1;
+
+        // Tổng chi tới hôm nay, và trung bình có trọng số giảm dần về quá khứ chỉ trên các ngày
+        // trọn vẹn để phần chi mới được một phần của hôm nay không kéo tốc độ gần đây xuống
+        long spentToDate = 0;
+        double weightedSum = 0;
+        double weightTotal = 0;
+        for (int i = 0; i <= todayIndex; i++) {
+            spentToDate += series.daily[i];
+            if (i <= lastCompleteIndex) {
+                weightedSum = weightedSum * RECENT_DECAY + series.daily[i];
+                weightTotal = weightTotal * RECENT_DECAY + 1;
+            }
+        }
+        double linearRate = (double) spentToDate / elapsedDays;
+        // Ngày đầu kỳ chưa có ngày trọn vẹn nào, dùng tạm tốc độ tuyến tính
+        double weightedRate = weightTotal > 0 ? weightedSum / weightTotal : linearRate;
+
+        long amount = budget.getAmount();
+        long spent = budget.getSpent();
+        return new BudgetForecast(amount, spent, elapsedDays, remainingDays,
+                spent + Math.round(linearRate * remainingDays),
+                spent + Math.round(weightedRate * remainingDays),
+                overrunDate(series, todayIndex, amount, spent, linearRate, remainingDays),
+                overrunDate(series, todayIndex, amount, spent, weightedRate, remainingDays));
+    }
+
+    // Ngày số tiền đã chi chạm ngân sách: ngày đã qua nếu đã vượt, ngày dự kiến theo tốc độ rate nếu chưa
+    private Date overrunDate(Series series, int todayIndex, long amount, long spent,
+                             double rate, int remainingDays) {
+        if (amount <= 0) {
+            return null;
+        }
+
+        if (spent >= amount) {
+            long cumulative = 0;
+            for (int i = 0; i < series.daily.length; i++) {
+                cumulative += series.daily[i];
+                if (cumulative >= amount) {
+                    return startOfDay(series.firstDay + i);
+                }
+            }
+            return startOfDay(series.firstDay + todayIndex);
+        }
+
+        if (rate <= 0) {
+            return null;
+        }
+        long daysNeeded = (long) Math.ceil((amount - spent) / rate);
+        if (daysNeeded > remainingDays) {
+            return null;
+        }
+        return startOfDay(series.firstDay + todayIndex + daysNeeded);
+    }
+
+    private long epochDay(long epochMillis) {
+        long offset = zone.getRules().getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds() * 1000L;
+        return Math.floorDiv(epochMillis + offset, DAY_MILLIS);
+    }
+
+    private Date startOfDay(long epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant());
+    }
+}
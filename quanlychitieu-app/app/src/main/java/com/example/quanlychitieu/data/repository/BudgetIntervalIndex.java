@@ -0,0 +1,78 @@
+package com.example.quanlychitieu.data.repository;
+
+import com.example.quanlychitieu.data.model.Budget;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cây khoảng tĩnh trên kỳ [startDate, endDate] của các ngân sách (thường là của cùng một danh mục).
+ * Ngân sách được sắp theo ngày bắt đầu; phần tử giữa của mỗi đoạn là gốc của cây con ứng với đoạn đó,
+ * maxEnd lưu ngày kết thúc lớn nhất trong cây con. Tìm mọi ngân sách chứa một mốc thời gian
+ * tốn O(log n + k) với k là số kết quả. Không thay đổi được sau khi tạo, dựng lại khi danh sách đổi.
+ */
+class BudgetIntervalIndex {
+    private final Budget[] budgets;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+
+    BudgetIntervalIndex(List<Budget> budgetList) {
+        List<Budget> sorted = new ArrayList<>(budgetList);
+        Collections.sort(sorted, (a, b) -> Long.compare(a.getStartDate().getTime(), b.getStartDate().getTime()));
+
+        int size = sorted.size();
+        budgets = sorted.toArray(new Budget[0]);
+        starts = new long[size];
+        ends = new long[size];
+        maxEnds = new long[size];
+        for (int i = 0; i < size; i++) {
+            starts[i] = budgets[i].getStartDate().getTime();
+            ends[i] = budgets[i].getEndDate().getTime();
+        }
+        buildMaxEnds(0, size - 1);
+    }
+
+    public int size() {
+        return budgets.length;
+    }
+
+    /**
+     * Thêm vào out mọi ngân sách có startDate <= time <= endDate
+     */
+    public void findContaining(long time, List<Budget> out) {
+        find(0, budgets.length - 1, time, out);
+    }
+
+    private long buildMaxEnds(int lo, int hi) {
+        if (lo > hi) {
+            return Long.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        long maxEnd = Math.max(ends[mid], Math.max(buildMaxEnds(lo, mid - 1), buildMaxEnds(mid + 1, hi)));
+        maxEnds[mid] = maxEnd;
+        return maxEnd;
+    }
+
+    private void find(int lo, int hi, long time, List<Budget> out) {
+        if (lo > hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (maxEnds[mid] < time) {
+            // Mọi ngân sách trong cây con đã kết thúc trước mốc này
+            return;
+        }
+
+        find(lo, mid - 1, time, out);
+        if (starts[mid] > time) {
+            // Cây con bên phải đều bắt đầu sau mốc này
+            return;
+        }
+        if (ends[mid] >= time) {
+            out.add(budgets[mid]);
+        }
+        find(mid + 1, hi, time, out);
+    }
+}
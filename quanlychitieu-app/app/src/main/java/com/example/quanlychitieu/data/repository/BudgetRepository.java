@@ -9,34 +9,52 @@ import android.util.Log;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
-import androidx.lifecycle.Observer;
 
 import com.example.quanlychitieu.data.model.Budget;
+import com.example.quanlychitieu.data.model.BudgetForecast;
 import com.example.quanlychitieu.data.model.Transaction;
+import com.example.quanlychitieu.utils.CurrencyFormatter;
+import com.example.quanlychitieu.utils.PerfMetrics;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class BudgetRepository {
     private static final String COLLECTION_USERS = "users";
     private static final String COLLECTION_BUDGETS = "budgets";
+    // Cửa sổ gộp các thay đổi chi tiêu trước khi ghi lên Firestore
+    private static final long SPENT_FLUSH_WINDOW_MS = 500;
 
     private final FirebaseFirestore db;
     private final FirebaseAuth auth;
     private final MutableLiveData<List<Budget>> activeBudgetsLiveData;
-    private final MutableLiveData<Double> totalBudgetLiveData;
-    private final MutableLiveData<Double> totalSpentLiveData;
-    private final MutableLiveData<Map<String, Double>> categorySpentAmountsLiveData;
+    private final MutableLiveData<Long> totalBudgetLiveData;
+    private final MutableLiveData<Long> totalSpentLiveData;
+    private final MutableLiveData<Map<String, Long>> categorySpentAmountsLiveData;
+    private final BudgetEvaluator budgetEvaluator;
+    // Thay đổi chi tiêu đang chờ ghi, theo document id của ngân sách (chỉ truy cập trên main thread)
+    private final Map<String, PendingSpentUpdate> pendingSpentUpdates = new LinkedHashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable flushSpentRunnable = this::flushSpentUpdates;
+    // Listener ngân sách của tháng hiện tại (dùng chung qua SnapshotListenerRegistry)
+    private ListenerRegistration activeBudgetsListener;
+    private SnapshotDebouncer activeBudgetsDebouncer;
+    private String activeBudgetsKey;
 
     private static BudgetRepository instance;
 
@@ -51,9 +69,11 @@ public class BudgetRepository {
         db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
         activeBudgetsLiveData = new MutableLiveData<>(new ArrayList<>());
-        totalBudgetLiveData = new MutableLiveData<>(0.0);
-        totalSpentLiveData = new MutableLiveData<>(0.0);
+        totalBudgetLiveData = new MutableLiveData<>(0L);
+        totalSpentLiveData = new MutableLiveData<>(0L);
         categorySpentAmountsLiveData = new MutableLiveData<>(new HashMap<>());
+        budgetEvaluator = BudgetEvaluator.getInstance();
+        budgetEvaluator.setSpentChangedListener(this::onBudgetsSpentChanged);
 
         // Lấy thông tin chi tiêu theo danh mục từ TransactionRepository
         TransactionRepository transactionRepository = TransactionRepository.getInstance();
@@ -62,7 +82,6 @@ public class BudgetRepository {
         // Theo dõi thay đổi chi tiêu theo danh mục
         transactionRepository.getCategorySpentAmounts().observeForever(categorySpentAmounts -> {
             categorySpentAmountsLiveData.setValue(categorySpentAmounts);
-            updateBudgetsWithSpentAmounts();
             calculateTotalSpent();
         });
 
@@ -70,39 +89,36 @@ public class BudgetRepository {
         loadActiveBudgets();
     }
 
-    // Cập nhật số tiền đã chi tiêu cho mỗi ngân sách dựa trên dữ liệu giao dịch
-    private void updateBudgetsWithSpentAmounts() {
-        List<Budget> currentBudgets = activeBudgetsLiveData.getValue();
-        Map<String, Double> categorySpentAmounts = categorySpentAmountsLiveData.getValue();
-
-        if (currentBudgets == null || categorySpentAmounts == null) {
-            return;
+    // Các ngân sách có số tiền đã chi thay đổi trong BudgetEvaluator: phát lại danh sách và chờ ghi
+    private void onBudgetsSpentChanged(List<Budget> budgets) {
+        for (Budget budget : budgets) {
+            queueSpentUpdate(budget);
         }
 
-        List<Budget> updatedBudgets = new ArrayList<>();
-
-        for (Budget budget : currentBudgets) {
-            String category = budget.getCategory();
-            Double spentAmount = categorySpentAmounts.getOrDefault(category, 0.0);
-
-            // Cập nhật số tiền đã chi trong ngân sách
-            budget.setSpent(spentAmount);
-            updatedBudgets.add(budget);
+        List<Budget> currentBudgets = activeBudgetsLiveData.getValue();
+        if (currentBudgets != null) {
+            activeBudgetsLiveData.setValue(new ArrayList<>(currentBudgets));
         }
+    }
 
-        activeBudgetsLiveData.setValue(updatedBudgets);
+    // Số tiền đã chi của một ngân sách là tổng chi cùng danh mục trong kỳ [startDate, endDate]
+    private void applyWindowSpent(Budget budget) {
+        if (budgetEvaluator.isLoaded() && budget.getStartDate() != null && budget.getEndDate() != null) {
+            budget.setSpent(budgetEvaluator.getSpentInWindow(
+                    budget.getCategory(), budget.getStartDate(), budget.getEndDate()));
+        }
     }
 
     // Tính tổng số tiền đã chi tiêu
     private void calculateTotalSpent() {
-        Map<String, Double> categorySpentAmounts = categorySpentAmountsLiveData.getValue();
+        Map<String, Long> categorySpentAmounts = categorySpentAmountsLiveData.getValue();
         if (categorySpentAmounts == null) {
-            totalSpentLiveData.setValue(0.0);
+            totalSpentLiveData.setValue(0L);
             return;
         }
 
-        double totalSpent = 0.0;
-        for (Double amount : categorySpentAmounts.values()) {
+        long totalSpent = 0;
+        for (long amount : categorySpentAmounts.values()) {
             totalSpent += amount;
         }
 
@@ -114,69 +130,99 @@ public class BudgetRepository {
         return activeBudgetsLiveData;
     }
 
-    public LiveData<Double> getTotalBudget() {
+    public LiveData<Long> getTotalBudget() {
         return totalBudgetLiveData;
     }
 
-    public LiveData<Double> getTotalSpent() {
+    public LiveData<Long> getTotalSpent() {
         return totalSpentLiveData;
     }
 
-    public LiveData<Map<String, Double>> getCategorySpentAmounts() {
+    public LiveData<Map<String, Long>> getCategorySpentAmounts() {
         return categorySpentAmountsLiveData;
     }
 
+    /**
+     * Tính lại dự báo chi cuối kỳ của ngân sách đang áp dụng tại thời điểm hiện tại
+     * và gán vào budget.getForecast(), null nếu chưa đủ dữ liệu
+     */
+    public BudgetForecast getForecast(Budget budget) {
+        return budgetEvaluator.forecast(budget);
+    }
+
     private void loadActiveBudgets() {
         FirebaseUser currentUser = auth.getCurrentUser();
         if (currentUser == null) {
+            budgetEvaluator.setBudgets(new ArrayList<>());
             activeBudgetsLiveData.setValue(new ArrayList<>());
-            totalBudgetLiveData.setValue(0.0);
+            totalBudgetLiveData.setValue(0L);
             return;
         }
 
-        // Lấy tháng hiện tại
+        // Ngân sách đang áp dụng là ngân sách có kỳ [startDate, endDate] chứa ngày hôm nay,
+        // kỳ có thể là tháng, tuần, quý hay một khoảng tùy chọn
         Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
         calendar.set(Calendar.HOUR_OF_DAY, 0);
         calendar.set(Calendar.MINUTE, 0);
         calendar.set(Calendar.SECOND, 0);
         calendar.set(Calendar.MILLISECOND, 0);
-        Date startOfMonth = calendar.getTime();
+        Date startOfToday = calendar.getTime();
 
-        calendar.add(Calendar.MONTH, 1);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
         calendar.add(Calendar.MILLISECOND, -1);
-        Date endOfMonth = calendar.getTime();
+        Date endOfToday = calendar.getTime();
+
+        // Mỗi lần gọi getActiveBudgets() không tạo thêm listener nếu đang nghe đúng truy vấn này,
+        // sang ngày mới thì đăng ký lại
+        String key = ListenerKeys.query(currentUser.getUid(), COLLECTION_BUDGETS)
+                .where("endDate", ">=", startOfToday)
+                .orderBy("endDate", Query.Direction.ASCENDING)
+                .build();
+        if (activeBudgetsListener != null && key.equals(activeBudgetsKey)) {
+            return;
+        }
+        if (activeBudgetsListener != null) {
+            activeBudgetsListener.remove();
+            activeBudgetsDebouncer.cancel();
+        }
+        activeBudgetsKey = key;
 
-        db.collection(COLLECTION_USERS)
+        Query query = db.collection(COLLECTION_USERS)
                 .document(currentUser.getUid())
                 .collection(COLLECTION_BUDGETS)
-                .whereGreaterThanOrEqualTo("startDate", startOfMonth)
-                .whereLessThanOrEqualTo("endDate", endOfMonth)
-                .orderBy("startDate", Query.Direction.DESCENDING)
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        Log.e("BudgetRepo", "Error loading active budgets", error);
-                        return;
-                    }
-
-                    if (value != null) {
-                        List<Budget> budgets = new ArrayList<>();
-                        double totalBudgetAmount = 0.0;
-
-                        for (QueryDocumentSnapshot document : value) {
-                            Budget budget = documentToBudget(document);
-                            budgets.add(budget);
-                            totalBudgetAmount += budget.getAmount();
-                        }
-
-                        // Cập nhật danh sách ngân sách
-                        activeBudgetsLiveData.setValue(budgets);
-                        totalBudgetLiveData.setValue(totalBudgetAmount);
-
-                        // Cập nhật chi tiêu cho mỗi ngân sách
-                        updateBudgetsWithSpentAmounts();
-                    }
-                });
+                .whereGreaterThanOrEqualTo("endDate", startOfToday)
+                .orderBy("endDate", Query.Direction.ASCENDING);
+
+        // Danh sách được dựng lại từ toàn bộ tài liệu nên chỉ cần ảnh chụp mới nhất của mỗi đợt
+        activeBudgetsDebouncer = new SnapshotDebouncer((snapshots, error) -> {
+            if (error != null) {
+                Log.e("BudgetRepo", "Error loading active budgets", error);
+                return;
+            }
+
+            QuerySnapshot value = snapshots.get(snapshots.size() - 1);
+            List<Budget> budgets = new ArrayList<>();
+            long totalBudgetAmount = 0;
+
+            for (QueryDocumentSnapshot document : value) {
+                Budget budget = documentToBudget(document);
+                // Firestore chỉ lọc được một phía của kỳ, bỏ các ngân sách chưa bắt đầu
+                if (budget.getStartDate().after(endOfToday)) {
+                    continue;
+                }
+                budgets.add(budget);
+                totalBudgetAmount += budget.getAmount();
+            }
+            // Giữ thứ tự hiển thị cũ: ngân sách bắt đầu gần đây nhất trước
+            budgets.sort((a, b) -> b.getStartDate().compareTo(a.getStartDate()));
+
+            // Cập nhật danh sách ngân sách, BudgetEvaluator dùng chung các đối tượng này
+            budgetEvaluator.setBudgets(budgets);
+            activeBudgetsLiveData.setValue(budgets);
+            totalBudgetLiveData.setValue(totalBudgetAmount);
+        });
+        activeBudgetsListener = SnapshotListenerRegistry.getInstance()
+                .subscribe(key, query, activeBudgetsDebouncer);
     }
 
     public LiveData<Budget> getBudgetById(String budgetId) {
@@ -194,12 +240,8 @@ public class BudgetRepository {
                     if (documentSnapshot.exists()) {
                         Budget budget = documentSnapshotToBudget(documentSnapshot);
 
-                        // Cập nhật số tiền đã chi tiêu từ dữ liệu giao dịch
-                        Map<String, Double> categorySpentAmounts = categorySpentAmountsLiveData.getValue();
-                        if (categorySpentAmounts != null) {
-                            Double spentAmount = categorySpentAmounts.getOrDefault(budget.getCategory(), 0.0);
-                            budget.setSpent(spentAmount);
-                        }
+                        // Cập nhật số tiền đã chi tiêu trong kỳ của ngân sách từ dữ liệu giao dịch
+                        applyWindowSpent(budget);
 
                         budgetLiveData.setValue(budget);
                     }
@@ -215,12 +257,8 @@ public class BudgetRepository {
         // Đặt userId cho ngân sách
         budget.setUserId(currentUser.getUid());
 
-        // Cập nhật số tiền đã chi tiêu từ dữ liệu giao dịch
-        Map<String, Double> categorySpentAmounts = categorySpentAmountsLiveData.getValue();
-        if (categorySpentAmounts != null) {
-            Double spentAmount = categorySpentAmounts.getOrDefault(budget.getCategory(), 0.0);
-            budget.setSpent(spentAmount);
-        }
+        // Cập nhật số tiền đã chi tiêu trong kỳ của ngân sách từ dữ liệu giao dịch
+        applyWindowSpent(budget);
 
         // Chuyển đổi thành Map
         Map<String, Object> budgetMap = budgetToMap(budget);
@@ -245,12 +283,8 @@ public class BudgetRepository {
             budget.setUserId(currentUser.getUid());
         }
 
-        // Cập nhật số tiền đã chi tiêu từ dữ liệu giao dịch
-        Map<String, Double> categorySpentAmounts = categorySpentAmountsLiveData.getValue();
-        if (categorySpentAmounts != null) {
-            Double spentAmount = categorySpentAmounts.getOrDefault(budget.getCategory(), 0.0);
-            budget.setSpent(spentAmount);
-        }
+        // Cập nhật số tiền đã chi tiêu trong kỳ của ngân sách từ dữ liệu giao dịch
+        applyWindowSpent(budget);
 
         Map<String, Object> budgetMap = budgetToMap(budget);
 
@@ -286,109 +320,89 @@ public class BudgetRepository {
     }
 
 
-    public LiveData<Budget> getBudgetByCategory(String category) {
-        MutableLiveData<Budget> budgetLiveData = new MutableLiveData<>();
-
-        FirebaseUser currentUser = auth.getCurrentUser();
-        if (currentUser == null) return budgetLiveData;
-
-        // Lấy tháng hiện tại
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        Date startOfMonth = calendar.getTime();
-
-        calendar.add(Calendar.MONTH, 1);
-        calendar.add(Calendar.MILLISECOND, -1);
-        Date endOfMonth = calendar.getTime();
-
-        // Đơn giản hóa truy vấn, chỉ lọc theo category
-        db.collection(COLLECTION_USERS)
-                .document(currentUser.getUid())
-                .collection(COLLECTION_BUDGETS)
-                .whereEqualTo("category", category)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    if (!queryDocumentSnapshots.isEmpty()) {
-                        // Lọc thủ công các budget thuộc tháng hiện tại
-                        for (DocumentSnapshot document : queryDocumentSnapshots.getDocuments()) {
-                            Date docStartDate = document.getDate("startDate");
-                            Date docEndDate = document.getDate("endDate");
-
-                            // Kiểm tra xem budget có thuộc tháng hiện tại không
-                            if (docStartDate != null && docEndDate != null &&
-                                    !docStartDate.after(endOfMonth) && !docEndDate.before(startOfMonth)) {
-
-                                Budget budget = documentSnapshotToBudget(document);
-
-                                // Cập nhật số tiền đã chi tiêu từ dữ liệu giao dịch
-                                Map<String, Double> categorySpentAmounts = categorySpentAmountsLiveData.getValue();
-                                if (categorySpentAmounts != null) {
-                                    Double spentAmount = categorySpentAmounts.getOrDefault(category, 0.0);
-                                    budget.setSpent(spentAmount);
-                                }
-
-                                budgetLiveData.setValue(budget);
-                                return;
-                            }
-                        }
-                    }
-                    budgetLiveData.setValue(null);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e("BudgetRepository", "Error getting budget for category: " + category, e);
-                    budgetLiveData.setValue(null);
-                });
+    /**
+     * Chờ ghi số tiền đã chi và trạng thái thông báo của ngân sách (main thread).
+     * Các thay đổi trong cùng một cửa sổ thời gian được gộp theo ngân sách (giữ giá trị mới nhất)
+     * và ghi lên Firestore trong một WriteBatch.
+     */
+    private void queueSpentUpdate(Budget budget) {
+        if (auth.getCurrentUser() == null || budget.getFirebaseId() == null) {
+            return;
+        }
 
-        return budgetLiveData;
+        boolean flushScheduled = !pendingSpentUpdates.isEmpty();
+        PendingSpentUpdate previous = pendingSpentUpdates.put(budget.getFirebaseId(),
+                new PendingSpentUpdate(budget.getSpent(), budget.isNotificationSent(),
+                        budget.isForecastAlertSent()));
+        if (previous != null) {
+            PerfMetrics.increment(PerfMetrics.BUDGET_SPENT_COALESCED);
+        }
+        if (!flushScheduled) {
+            mainHandler.postDelayed(flushSpentRunnable, SPENT_FLUSH_WINDOW_MS);
+        }
     }
 
     /**
-     * Cập nhật số tiền đã chi tiêu và reset trạng thái thông báo nếu cần
-     * @param category Danh mục cần cập nhật
-     * @param newSpentAmount Số tiền đã chi tiêu mới
+     * Ghi các thay đổi chi tiêu đang chờ trong một WriteBatch, chỉ cập nhật spent và trạng thái cảnh báo
      */
-    public void updateBudgetSpentAmount(String category, double newSpentAmount) {
-        FirebaseUser currentUser = auth.getCurrentUser();
-        if (currentUser == null) return;
+    private void flushSpentUpdates() {
+        if (pendingSpentUpdates.isEmpty()) {
+            return;
+        }
 
-        new Handler(Looper.getMainLooper()).post(() -> {
-            getBudgetByCategory(category).observeForever(new Observer<Budget>() {
-                @Override
-                public void onChanged(Budget budget) {
-                    // Hủy đăng ký observer sau khi nhận dữ liệu
-                    getBudgetByCategory(category).removeObserver(this);
+        Map<String, PendingSpentUpdate> updates = new LinkedHashMap<>();
+        for (Map.Entry<String, PendingSpentUpdate> entry : pendingSpentUpdates.entrySet()) {
+            // Bỏ qua ngân sách đã bị xóa trong lúc chờ, update() trên tài liệu
+            // không còn tồn tại sẽ làm hỏng cả batch
+            if (budgetEvaluator.getBudget(entry.getKey()) != null) {
+                updates.put(entry.getKey(), entry.getValue());
+            }
+        }
+        pendingSpentUpdates.clear();
 
-                    if (budget != null) {
-                        Log.d(TAG, "Updating budget for " + category +
-                                ": current spent=" + budget.getSpent() +
-                                ", new spent=" + newSpentAmount);
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null || updates.isEmpty()) {
+            return;
+        }
 
-                        // Luôn reset trạng thái thông báo khi chi tiêu thay đổi
-                        budget.resetNotificationStatus();
+        WriteBatch batch = db.batch();
+        for (Map.Entry<String, PendingSpentUpdate> entry : updates.entrySet()) {
+            PendingSpentUpdate update = entry.getValue();
+            DocumentReference budgetRef = db.collection(COLLECTION_USERS)
+                    .document(currentUser.getUid())
+                    .collection(COLLECTION_BUDGETS)
+                    .document(entry.getKey());
+            batch.update(budgetRef, "spent", update.spent, "notificationSent", update.notificationSent,
+                    "forecastAlertSent", update.forecastAlertSent);
+        }
 
-                        // Cập nhật số tiền đã chi
-                        budget.setSpent(newSpentAmount);
+        PerfMetrics.increment(PerfMetrics.BUDGET_SPENT_FLUSHES);
+        PerfMetrics.add(PerfMetrics.BUDGET_SPENT_WRITES, updates.size());
 
-                        // Cập nhật ngân sách trong Firebase
-                        updateBudget(budget);
+        batch.commit().addOnFailureListener(e ->
+                Log.e("BudgetRepository", "Error flushing budget spent updates", e));
+    }
 
-                        Log.d(TAG, "Budget updated and notification status reset for " + category);
-                    }
-                }
-            });
-        });
+    // Giá trị mới nhất cần ghi cho một ngân sách
+    private static class PendingSpentUpdate {
+        final long spent;
+        final boolean notificationSent;
+        final boolean forecastAlertSent;
+
+        PendingSpentUpdate(long spent, boolean notificationSent, boolean forecastAlertSent) {
+            this.spent = spent;
+            this.notificationSent = notificationSent;
+            this.forecastAlertSent = forecastAlertSent;
+        }
     }
-    private Budget extractBudgetFromDocument(DocumentSnapshot document, String firebaseId) {
+
+    static Budget extractBudgetFromDocument(DocumentSnapshot document, String firebaseId) {
         // Lấy các giá trị từ document, xử lý null an toàn
         long id = document.getLong("id") != null ? document.getLong("id") : System.currentTimeMillis();
         String userId = document.getString("userId");
         String category = document.getString("category") != null ? document.getString("category") : "";
-        double amount = document.getDouble("amount") != null ? document.getDouble("amount") : 0.0;
-        double spent = document.getDouble("spent") != null ? document.getDouble("spent") : 0.0;
+        long amount = CurrencyFormatter.toAmount(document.get("amount"));
+        long spent = CurrencyFormatter.toAmount(document.get("spent"));
         Date startDate = document.getDate("startDate") != null ? document.getDate("startDate") : new Date();
         Date endDate = document.getDate("endDate") != null ? document.getDate("endDate") : new Date();
         String note = document.getString("note");
@@ -404,6 +418,13 @@ public class BudgetRepository {
         Budget budget = new Budget(id, userId, category, amount, spent, startDate, endDate,
                 note, notificationsEnabled, notificationThreshold, notificationSent);
         budget.setFirebaseId(firebaseId);
+        if (Boolean.TRUE.equals(document.getBoolean("forecastAlertSent"))) {
+            budget.markForecastAlertSent();
+        }
+        budget.setAutoRollover(Boolean.TRUE.equals(document.getBoolean("autoRollover")));
+        budget.setCarryOverUnspent(Boolean.TRUE.equals(document.getBoolean("carryOverUnspent")));
+        budget.setCarriedOver(CurrencyFormatter.toAmount(document.get("carriedOver")));
+        budget.setRolledOver(Boolean.TRUE.equals(document.getBoolean("rolledOver")));
 
         // Lấy thông báo chi tiêu định kỳ nếu có
         Map<String, Boolean> recurringExpenseNotifications = (Map<String, Boolean>) document.get("recurringExpenseNotifications");
@@ -413,7 +434,7 @@ public class BudgetRepository {
 
         return budget;
     }
-    private Map<String, Object> budgetToMap(Budget budget) {
+    static Map<String, Object> budgetToMap(Budget budget) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", budget.getId());
         map.put("userId", budget.getUserId());
@@ -426,6 +447,11 @@ public class BudgetRepository {
         map.put("notificationsEnabled", budget.isNotificationsEnabled());
         map.put("notificationThreshold", budget.getNotificationThreshold());
         map.put("notificationSent", budget.isNotificationSent());
+        map.put("forecastAlertSent", budget.isForecastAlertSent());
+        map.put("autoRollover", budget.isAutoRollover());
+        map.put("carryOverUnspent", budget.isCarryOverUnspent());
+        map.put("carriedOver", budget.getCarriedOver());
+        map.put("rolledOver", budget.isRolledOver());
         map.put("recurringExpenseNotifications", budget.getRecurringExpenseNotifications());
 
         return map;
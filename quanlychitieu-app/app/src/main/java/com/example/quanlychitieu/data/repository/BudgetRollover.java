@@ -0,0 +1,240 @@
+package com.example.quanlychitieu.data.repository;
+
+import android.util.Log;
+
+import com.example.quanlychitieu.data.model.Budget;
+import com.example.quanlychitieu.utils.CurrencyFormatter;
+import com.example.quanlychitieu.utils.PerfMetrics;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Tạo ngân sách cho kỳ tiếp theo từ các ngân sách đã hết kỳ có bật tự động tạo lại.
+ * Ngày được tính theo múi giờ của thiết bị. Ngân sách theo tháng dương lịch được chuyển sang tháng kế tiếp,
+ * các kỳ khác được dời đúng bằng độ dài kỳ; nếu đã bỏ lỡ nhiều kỳ thì nhảy thẳng tới kỳ chứa hôm nay.
+ *
+ * Chạy lại nhiều lần hoặc chạy đồng thời trên nhiều thiết bị vẫn cho cùng kết quả:
+ * mỗi ngân sách gốc được xử lý trong một transaction đọc lại cờ rolledOver của nó, ngân sách mới
+ * có document id suy ra từ ngân sách gốc và ngày bắt đầu kỳ mới và chỉ được tạo khi tài liệu đó
+ * chưa tồn tại, nên không ghi đè ngân sách mà người dùng có thể đã sửa. Gọi đồng bộ trên luồng nền.
+ */
+public class BudgetRollover {
+    private static final String TAG = "BudgetRollover";
+    private static final String COLLECTION_USERS = "users";
+    private static final String COLLECTION_BUDGETS = "budgets";
+    private static final String COLLECTION_TRANSACTIONS = "transactions";
+    private static final AggregateField SUM_AMOUNT = AggregateField.sum("amount");
+
+    private final FirebaseFirestore db;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    public BudgetRollover() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    /**
+     * Tạo ngân sách kỳ mới cho người dùng, trả về số ngân sách đã tạo.
+     * Ném ngoại lệ nếu đọc hoặc ghi thất bại; các ngân sách gốc đã xử lý xong không bị xử lý lại
+     * ở lần chạy sau.
+     */
+    public int run(String userId) throws ExecutionException, InterruptedException {
+        DocumentReference userRef = db.collection(COLLECTION_USERS).document(userId);
+        CollectionReference budgetsRef = userRef.collection(COLLECTION_BUDGETS);
+        CollectionReference transactionsRef = userRef.collection(COLLECTION_TRANSACTIONS);
+        LocalDate today = LocalDate.now(zone);
+        Date startOfToday = toDate(today);
+
+        // Ngân sách cần tạo lại, lọc ngày phía client để chỉ cần index đơn trường
+        QuerySnapshot pending = Tasks.await(budgetsRef
+                .whereEqualTo("autoRollover", true)
+                .whereEqualTo("rolledOver", false)
+                .get());
+        List<Budget> expired = new ArrayList<>();
+        for (DocumentSnapshot document : pending.getDocuments()) {
+            Budget budget = BudgetRepository.extractBudgetFromDocument(document, document.getId());
+            if (budget.getEndDate().before(startOfToday)) {
+                expired.add(budget);
+            }
+        }
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        // Ngân sách đang áp dụng, để không tạo trùng khi người dùng đã tự tạo ngân sách cho kỳ mới
+        QuerySnapshot active = Tasks.await(budgetsRef
+                .whereGreaterThanOrEqualTo("endDate", startOfToday)
+                .get());
+        List<Budget> activeBudgets = new ArrayList<>();
+        for (DocumentSnapshot document : active.getDocuments()) {
+            activeBudgets.add(BudgetRepository.extractBudgetFromDocument(document, document.getId()));
+        }
+
+        int created = 0;
+        for (Budget source : expired) {
+            Budget next = nextPeriodBudget(source, today);
+            // Chỉ cộng dồn khi kỳ mới nối tiếp ngay kỳ cũ, số tiền gốc không gồm phần đã cộng dồn từ kỳ trước
+            if (source.isCarryOverUnspent()
+                    && toLocalDate(next.getStartDate()).equals(toLocalDate(source.getEndDate()).plusDays(1))) {
+                long carriedOver = Math.max(0, source.getAmount() - spentInPeriod(transactionsRef, source));
+                next.setAmount(next.getAmount() + carriedOver);
+                next.setCarriedOver(carriedOver);
+            }
+
+            String nextId = rolloverId(source, next);
+            boolean overlapping = hasOverlappingBudget(activeBudgets, next, nextId);
+            if (rollOver(budgetsRef.document(source.getFirebaseId()), budgetsRef.document(nextId),
+                    overlapping ? null : BudgetRepository.budgetToMap(next))) {
+                created++;
+            }
+        }
+
+        PerfMetrics.add(PerfMetrics.BUDGET_ROLLOVER_CREATED, created);
+        Log.d(TAG, "Rolled over " + expired.size() + " budgets, created " + created);
+        return created;
+    }
+
+    /**
+     * Đánh dấu ngân sách gốc đã tạo lại và tạo ngân sách kỳ mới trong một transaction:
+     * bỏ qua nếu thiết bị khác đã xử lý ngân sách gốc, không ghi đè ngân sách kỳ mới đã tồn tại
+     * @param nextBudget Dữ liệu ngân sách kỳ mới, null nếu chỉ cần đánh dấu ngân sách gốc
+     * @return true nếu đã tạo ngân sách kỳ mới
+     */
+    private boolean rollOver(DocumentReference sourceRef, DocumentReference nextRef, Map<String, Object> nextBudget)
+            throws ExecutionException, InterruptedException {
+        Boolean created = Tasks.await(db.runTransaction(transaction -> {
+            DocumentSnapshot source = transaction.get(sourceRef);
+            if (!source.exists() || Boolean.TRUE.equals(source.getBoolean("rolledOver"))) {
+                return false;
+            }
+            boolean create = nextBudget != null && !transaction.get(nextRef).exists();
+            if (create) {
+                transaction.set(nextRef, nextBudget);
+            }
+            transaction.update(sourceRef, "rolledOver", true);
+            return create;
+        }));
+        PerfMetrics.increment(PerfMetrics.BUDGET_ROLLOVER_TRANSACTIONS);
+        return Boolean.TRUE.equals(created);
+    }
+
+    /**
+     * Số tiền đã chi của danh mục trong kỳ của ngân sách, tính bằng truy vấn tổng hợp SUM trên server
+     * (số tiền đã chi lưu trong tài liệu ngân sách có thể chưa được cập nhật).
+     * Cùng định nghĩa với số đã chi hiển thị trên màn hình ngân sách (BudgetEvaluator): mọi khoản chi
+     * của danh mục trong kỳ, kể cả đóng góp mục tiêu.
+     */
+    private long spentInPeriod(CollectionReference transactionsRef, Budget source)
+            throws ExecutionException, InterruptedException {
+        AggregateQuerySnapshot total = Tasks.await(transactionsRef
+                .whereGreaterThanOrEqualTo("date", source.getStartDate())
+                .whereLessThanOrEqualTo("date", source.getEndDate())
+                .whereEqualTo("isIncome", false)
+                .whereEqualTo("category", source.getCategory())
+                .aggregate(SUM_AMOUNT)
+                .get(AggregateSource.SERVER));
+
+        // Chi tiêu lưu dưới dạng số âm
+        return Math.abs(CurrencyFormatter.toAmount(total.get(SUM_AMOUNT)));
+    }
+
+    /**
+     * Ngân sách cho kỳ tiếp theo chứa hôm nay (hoặc kỳ liền sau nếu kỳ đó chưa tới),
+     * chưa gồm phần cộng dồn từ kỳ cũ
+     */
+    private Budget nextPeriodBudget(Budget source, LocalDate today) {
+        LocalDate start = toLocalDate(source.getStartDate());
+        LocalDate end = toLocalDate(source.getEndDate());
+        LocalDate afterEnd = end.plusDays(1);
+
+        // Ngân sách theo tháng dương lịch (từ ngày 1 tới hết tháng) được tính theo tháng,
+        // vì số ngày của các tháng khác nhau
+        boolean calendarMonths = start.getDayOfMonth() == 1 && afterEnd.getDayOfMonth() == 1;
+        long step = Math.max(1, calendarMonths ? ChronoUnit.MONTHS.between(start, afterEnd)
+                : ChronoUnit.DAYS.between(start, afterEnd));
+
+        int periods = 0;
+        LocalDate nextStart;
+        LocalDate nextEnd;
+        do {
+            periods++;
+            nextStart = shift(start, step * periods, calendarMonths);
+            nextEnd = shift(start, step * (periods + 1), calendarMonths).minusDays(1);
+        } while (nextEnd.isBefore(today));
+
+        long baseAmount = Math.max(0, source.getAmount() - source.getCarriedOver());
+
+        Budget next = new Budget(
+                0,
+                source.getUserId(),
+                source.getCategory(),
+                baseAmount,
+                0,
+                toDate(nextStart),
+                new Date(toDate(nextEnd.plusDays(1)).getTime() - 1),
+                source.getNote(),
+                source.isNotificationsEnabled(),
+                source.getNotificationThreshold(),
+                false
+        );
+        next.setId(next.getStartDate().getTime());
+        next.setAutoRollover(true);
+        next.setCarryOverUnspent(source.isCarryOverUnspent());
+        next.setCarriedOver(0);
+        next.setRolledOver(false);
+        if (source.getRecurringExpenseNotifications() != null) {
+            next.setRecurringExpenseNotifications(source.getRecurringExpenseNotifications());
+        }
+        return next;
+    }
+
+    // Document id cố định cho cặp (ngân sách gốc, kỳ mới), để các lần chạy lặp lại ghi đè cùng một tài liệu
+    private String rolloverId(Budget source, Budget next) {
+        String key = source.getFirebaseId() + ":" + next.getStartDate().getTime();
+        return "rollover-" + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Đã có ngân sách khác cùng danh mục trùng kỳ mới (ngân sách do lần chạy trước tạo ra thì được ghi lại)
+    private boolean hasOverlappingBudget(List<Budget> activeBudgets, Budget next, String nextId) {
+        for (Budget budget : activeBudgets) {
+            if (budget.getFirebaseId().equals(nextId)
+                    || !budget.getCategory().equals(next.getCategory())) {
+                continue;
+            }
+            if (!budget.getStartDate().after(next.getEndDate())
+                    && !budget.getEndDate().before(next.getStartDate())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private LocalDate shift(LocalDate date, long amount, boolean months) {
+        return months ? date.plusMonths(amount) : date.plusDays(amount);
+    }
+
+    private LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(zone).toLocalDate();
+    }
+
+    private Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(zone).toInstant());
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.quanlychitieu.data.repository;
+
+import com.example.quanlychitieu.data.CategoryManager;
+import com.example.quanlychitieu.data.model.PeriodTotals;
+import com.example.quanlychitieu.data.model.Transaction;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Chỉ mục tổng theo ngày của toàn bộ giao dịch một người dùng, để trả lời tổng thu/chi và
+ * chi theo danh mục của bất kỳ khoảng trọn ngày [from, to] nào mà không đọc lại giao dịch.
+ * Mỗi đại lượng (thu, chi, số giao dịch, chi của từng danh mục) là một cây Fenwick theo ngày:
+ * sửa một giao dịch và truy vấn một khoảng đều tốn O(log số ngày).
+ * Được dựng từ ảnh chụp đầy đủ của listener đồng bộ, sau đó cập nhật theo delta của listener
+ * và các lần ghi của TransactionRepository (thay phần đóng góp theo document id nên áp dụng
+ * cùng một thay đổi hai lần vẫn đúng). Không tính các giao dịch đóng góp mục tiêu.
+ * An toàn khi gọi từ nhiều luồng.
+ */
+public class DailyTotalsIndex {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    // Chừa sẵn một năm phía sau ngày mới nhất để ít phải dựng lại khi thêm giao dịch mới
+    private static final int SPARE_DAYS = 366;
+
+    // Phần đóng góp hiện tại của một giao dịch
+    private static class Contribution {
+        final int day;
+        final boolean isIncome;
+        final int categoryId;
+        final long amount;
+
+        Contribution(int day, boolean isIncome, int categoryId, long amount) {
+            this.day = day;
+            this.isIncome = isIncome;
+            this.categoryId = categoryId;
+            this.amount = amount;
+        }
+    }
+
+    // Trạng thái dưới đây được bảo vệ bởi synchronized
+    private String userId;
+    private boolean ready = false;
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    private final TimeZone timeZone = TimeZone.getDefault();
+    // Ngày (tính từ epoch theo giờ địa phương) ứng với vị trí 0 và số ngày của các cây
+    private int firstDay;
+    private int dayCount;
+    // Cây Fenwick đánh chỉ số từ 1, phần tử i + 1 ứng với ngày firstDay + i
+    private long[] incomeTree = new long[1];
+    private long[] expenseTree = new long[1];
+    private long[] countTree = new long[1];
+    // Theo id danh mục của CategoryManager, chỉ tạo khi danh mục có khoản chi
+    private long[][] categoryTrees = new long[0][];
+
+    private static DailyTotalsIndex instance;
+
+    public static synchronized DailyTotalsIndex getInstance() {
+        if (instance == null) {
+            instance = new DailyTotalsIndex();
+        }
+        return instance;
+    }
+
+    private DailyTotalsIndex() {
+    }
+
+    /**
+     * Chỉ mục đã phản ánh đầy đủ giao dịch của người dùng này chưa
+     */
+    public synchronized boolean isReady(String userId) {
+        return ready && userId.equals(this.userId);
+    }
+
+    /**
+     * Dựng lại toàn bộ từ ảnh chụp đầy đủ của listener đồng bộ
+     */
+    public synchronized void replaceAll(String userId, List<Transaction> transactions) {
+        this.userId = userId;
+        contributions.clear();
+        for (Transaction transaction : transactions) {
+            Contribution contribution = toContribution(transaction);
+            if (contribution != null) {
+                contributions.put(transaction.getFirebaseId(), contribution);
+            }
+        }
+        rebuild();
+        ready = true;
+    }
+
+    /**
+     * Áp dụng các thay đổi gia tăng của listener đồng bộ
+     */
+    public synchronized void applyChanges(String userId, List<Transaction> upserts, List<String> removedIds) {
+        if (!isReady(userId)) {
+            // Ảnh chụp đầy đủ tiếp theo sẽ dựng lại chỉ mục
+            return;
+        }
+        for (Transaction transaction : upserts) {
+            replaceContribution(transaction.getFirebaseId(), toContribution(transaction));
+        }
+        for (String firebaseId : removedIds) {
+            replaceContribution(firebaseId, null);
+        }
+    }
+
+    // Ghi xuyên khi thêm hoặc sửa giao dịch
+    public synchronized void upsert(String userId, Transaction transaction) {
+        if (isReady(userId)) {
+            replaceContribution(transaction.getFirebaseId(), toContribution(transaction));
+        }
+    }
+
+    // Ghi xuyên khi xóa giao dịch
+    public synchronized void remove(String userId, String firebaseId) {
+        if (isReady(userId)) {
+            replaceContribution(firebaseId, null);
+        }
+    }
+
+    /**
+     * Điền tổng của từng khoảng từ chỉ mục
+     * @return false nếu chỉ mục chưa sẵn sàng hoặc có khoảng không trọn ngày,
+     *         khi đó buckets không bị thay đổi
+     */
+    public synchronized boolean fill(String userId, List<PeriodTotals> buckets, boolean withCategories) {
+        if (!isReady(userId)) {
+            return false;
+        }
+        for (PeriodTotals bucket : buckets) {
+            if (!isStartOfDay(bucket.getStartDate().getTime())
+                    || !isStartOfDay(bucket.getEndDate().getTime() + 1)) {
+                return false;
+            }
+        }
+
+        CategoryManager categoryManager = CategoryManager.getInstance();
+        for (PeriodTotals bucket : buckets) {
+            // Chuyển về vị trí trong các cây, phần nằm ngoài chỉ mục không có giao dịch
+            int from = Math.max(toDay(bucket.getStartDate().getTime()) - firstDay, 0);
+            int to = Math.min(toDay(bucket.getEndDate().getTime()) - firstDay, dayCount - 1);
+            if (from > to) {
+                continue;
+            }
+
+            bucket.setIncome(rangeSum(incomeTree, from, to));
+            bucket.setExpense(rangeSum(expenseTree, from, to));
+            bucket.setTransactionCount(rangeSum(countTree, from, to));
+            if (!withCategories) {
+                continue;
+            }
+            for (int id = 0; id < categoryTrees.length; id++) {
+                if (categoryTrees[id] == null) {
+                    continue;
+                }
+                long spent = rangeSum(categoryTrees[id], from, to);
+                if (spent != 0) {
+                    bucket.addCategoryExpense(categoryManager.getCategoryName(id), spent);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Xóa chỉ mục (ví dụ khi đổi người dùng)
+    public synchronized void clear() {
+        userId = null;
+        ready = false;
+        contributions.clear();
+        rebuild();
+    }
+
+    private Contribution toContribution(Transaction transaction) {
+        if (transaction.getDate() == null || transaction.isGoalContribution()) {
+            return null;
+        }
+        return new Contribution(toDay(transaction.getDate().getTime()), transaction.isIncome(),
+                transaction.getCategoryId(), Math.abs(transaction.getAmount()));
+    }
+
+    // Trừ phần đóng góp cũ của tài liệu rồi cộng phần đóng góp mới (null khi bị xóa)
+    private void replaceContribution(String firebaseId, Contribution newValue) {
+        if (firebaseId == null) {
+            return;
+        }
+
+        Contribution oldValue = newValue != null
+                ? contributions.put(firebaseId, newValue)
+                : contributions.remove(firebaseId);
+        if (oldValue != null) {
+            addContribution(oldValue, -1);
+        }
+        if (newValue == null) {
+            return;
+        }
+
+        if (newValue.day < firstDay || newValue.day >= firstDay + dayCount) {
+            // Ngày nằm ngoài các cây: dựng lại với khoảng rộng hơn (đã gồm giá trị mới)
+            rebuild();
+        } else {
+            addContribution(newValue, 1);
+        }
+    }
+
+    private void addContribution(Contribution contribution, int sign) {
+        int index = contribution.day - firstDay;
+        if (contribution.isIncome) {
+            add(incomeTree, index, sign * contribution.amount);
+        } else {
+            add(expenseTree, index, sign * contribution.amount);
+            add(categoryTree(contribution.categoryId), index, sign * contribution.amount);
+        }
+        add(countTree, index, sign);
+    }
+
+    private long[] categoryTree(int categoryId) {
+        if (categoryId >= categoryTrees.length) {
+            categoryTrees = Arrays.copyOf(categoryTrees, Math.max(categoryId + 1, categoryTrees.length * 2));
+        }
+        if (categoryTrees[categoryId] == null) {
+            categoryTrees[categoryId] = new long[dayCount + 1];
+        }
+        return categoryTrees[categoryId];
+    }
+
+    /**
+     * Cấp lại các cây cho khoảng ngày của mọi phần đóng góp và dựng trong O(n + số ngày):
+     * đặt giá trị từng ngày rồi đẩy mỗi nút lên nút cha một lần
+     */
+    private void rebuild() {
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = toDay(System.currentTimeMillis());
+        for (Contribution contribution : contributions.values()) {
+            minDay = Math.min(minDay, contribution.day);
+            maxDay = Math.max(maxDay, contribution.day);
+        }
+        firstDay = Math.min(minDay, maxDay);
+        dayCount = maxDay - firstDay + 1 + SPARE_DAYS;
+
+        incomeTree = new long[dayCount + 1];
+        expenseTree = new long[dayCount + 1];
+        countTree = new long[dayCount + 1];
+        categoryTrees = new long[Math.max(CategoryManager.getInstance().getCategoryCount(), 8)][];
+        for (Contribution contribution : contributions.values()) {
+            int position = contribution.day - firstDay + 1;
+            if (contribution.isIncome) {
+                incomeTree[position] += contribution.amount;
+            } else {
+                expenseTree[position] += contribution.amount;
+                categoryTree(contribution.categoryId)[position] += contribution.amount;
+            }
+            countTree[position]++;
+        }
+
+        pushUp(incomeTree);
+        pushUp(expenseTree);
+        pushUp(countTree);
+        for (long[] tree : categoryTrees) {
+            if (tree != null) {
+                pushUp(tree);
+            }
+        }
+    }
+
+    private static void pushUp(long[] tree) {
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    private static void add(long[] tree, int index, long delta) {
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Tổng các ngày từ vị trí 0 đến index
+    private static long prefixSum(long[] tree, int index) {
+        long sum = 0;
+        for (int i = index + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private static long rangeSum(long[] tree, int from, int to) {
+        return prefixSum(tree, to) - (from > 0 ? prefixSum(tree, from - 1) : 0);
+    }
+
+    // Số ngày từ epoch theo giờ địa phương
+    private int toDay(long millis) {
+        return (int) Math.floorDiv(millis + timeZone.getOffset(millis), DAY_MILLIS);
+    }
+
+    private boolean isStartOfDay(long millis) {
+        return Math.floorMod(millis + timeZone.getOffset(millis), DAY_MILLIS) == 0;
+    }
+}
@@ -7,10 +7,13 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.example.quanlychitieu.data.model.FinancialGoal;
 import com.example.quanlychitieu.data.model.Transaction;
+import com.example.quanlychitieu.utils.CurrencyFormatter;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
@@ -30,6 +33,10 @@ public class FinancialGoalRepository {
     private final MutableLiveData<List<FinancialGoal>> goalsLiveData;
     // Map để lưu trữ LiveData của từng mục tiêu riêng biệt
     private final Map<String, MutableLiveData<FinancialGoal>> goalLiveDataMap;
+    // Listener dùng chung qua SnapshotListenerRegistry, mỗi truy vấn chỉ đăng ký một lần
+    private final Map<String, ListenerRegistration> goalListeners = new HashMap<>();
+    private ListenerRegistration goalsListener;
+    private String goalsKey;
 
     private static FinancialGoalRepository instance;
 
@@ -62,28 +69,41 @@ public class FinancialGoalRepository {
             return;
         }
 
-        db.collection(COLLECTION_USERS)
+        // Mỗi lần gọi getGoals() không tạo thêm listener nếu đang nghe đúng truy vấn này
+        String key = ListenerKeys.query(currentUser.getUid(), COLLECTION_GOALS)
+                .orderBy("endDate", Query.Direction.ASCENDING)
+                .build();
+        if (goalsListener != null && key.equals(goalsKey)) {
+            return;
+        }
+        if (goalsListener != null) {
+            goalsListener.remove();
+        }
+        goalsKey = key;
+
+        Query query = db.collection(COLLECTION_USERS)
                 .document(currentUser.getUid())
                 .collection(COLLECTION_GOALS)
-                .orderBy("endDate", Query.Direction.ASCENDING)
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Error loading goals", error);
-                        return;
-                    }
+                .orderBy("endDate", Query.Direction.ASCENDING);
 
-                    if (value != null) {
-                        List<FinancialGoal> goals = new ArrayList<>();
-                        for (QueryDocumentSnapshot document : value) {
-                            FinancialGoal goal = documentToGoal(document);
-                            goals.add(goal);
+        goalsListener = SnapshotListenerRegistry.getInstance().subscribe(key, query, (value, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error loading goals", error);
+                return;
+            }
 
-                            // Cập nhật LiveData riêng cho từng mục tiêu
-                            updateGoalLiveData(goal);
-                        }
-                        goalsLiveData.setValue(goals);
-                    }
-                });
+            if (value != null) {
+                List<FinancialGoal> goals = new ArrayList<>();
+                for (QueryDocumentSnapshot document : value) {
+                    FinancialGoal goal = documentToGoal(document);
+                    goals.add(goal);
+
+                    // Cập nhật LiveData riêng cho từng mục tiêu
+                    updateGoalLiveData(goal);
+                }
+                goalsLiveData.setValue(goals);
+            }
+        });
     }
 
     // Cập nhật LiveData riêng lẻ cho từng mục tiêu
@@ -101,13 +121,11 @@ public class FinancialGoalRepository {
     public LiveData<FinancialGoal> getGoalById(String goalId) {
         if (!goalLiveDataMap.containsKey(goalId)) {
             goalLiveDataMap.put(goalId, new MutableLiveData<>());
-
-            fetchGoalById(goalId);
-        } else {
-            // Vẫn refresh để đảm bảo dữ liệu mới nhất
-            fetchGoalById(goalId);
         }
 
+        // Listener của tài liệu giữ dữ liệu luôn mới, chỉ cần đăng ký một lần
+        fetchGoalById(goalId);
+
         return goalLiveDataMap.get(goalId);
     }
 
@@ -115,21 +133,27 @@ public class FinancialGoalRepository {
         FirebaseUser currentUser = auth.getCurrentUser();
         if (currentUser == null) return;
 
-        db.collection(COLLECTION_USERS)
+        String key = ListenerKeys.document(currentUser.getUid(), COLLECTION_GOALS, goalId);
+        if (goalListeners.containsKey(key)) {
+            return;
+        }
+
+        DocumentReference document = db.collection(COLLECTION_USERS)
                 .document(currentUser.getUid())
                 .collection(COLLECTION_GOALS)
-                .document(goalId)
-                .addSnapshotListener((documentSnapshot, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Error fetching goal", error);
-                        return;
-                    }
-
-                    if (documentSnapshot != null && documentSnapshot.exists()) {
-                        FinancialGoal goal = documentSnapshotToGoal(documentSnapshot);
-                        updateGoalLiveData(goal);
-                    }
-                });
+                .document(goalId);
+
+        goalListeners.put(key, SnapshotListenerRegistry.getInstance().subscribe(key, document, (documentSnapshot, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error fetching goal", error);
+                return;
+            }
+
+            if (documentSnapshot != null && documentSnapshot.exists()) {
+                FinancialGoal goal = documentSnapshotToGoal(documentSnapshot);
+                updateGoalLiveData(goal);
+            }
+        }));
     }
 
     public void addGoal(FinancialGoal goal) {
@@ -187,6 +211,13 @@ public class FinancialGoalRepository {
                 .addOnSuccessListener(aVoid -> {
                     // Xóa khỏi map nếu tồn tại
                     goalLiveDataMap.remove(goalId);
+
+                    // Hủy listener của tài liệu đã xóa
+                    ListenerRegistration goalListener = goalListeners.remove(
+                            COLLECTION_USERS + "/" + currentUser.getUid() + "/" + COLLECTION_GOALS + "/" + goalId);
+                    if (goalListener != null) {
+                        goalListener.remove();
+                    }
                     loadGoals();
                 });
     }
@@ -194,7 +225,7 @@ public class FinancialGoalRepository {
     /**
      * Thêm tiền vào mục tiêu
      */
-    public void contributeToGoal(String goalId, double amount) {
+    public void contributeToGoal(String goalId, long amount) {
         FirebaseUser currentUser = auth.getCurrentUser();
         if (currentUser == null) return;
 
@@ -209,7 +240,7 @@ public class FinancialGoalRepository {
                         FinancialGoal goal = documentSnapshotToGoal(documentSnapshot);
 
                         // Cập nhật số tiền hiện tại
-                        double newAmount = goal.getCurrentAmount() + amount;
+                        long newAmount = goal.getCurrentAmount() + amount;
                         goal.setCurrentAmount(newAmount);
 
                         // Kiểm tra nếu đã đạt mục tiêu
@@ -232,7 +263,7 @@ public class FinancialGoalRepository {
     /**
      * Tạo giao dịch đóng góp vào mục tiêu và đồng thời cập nhật mục tiêu
      */
-    public void createContributionTransaction(String goalId, double amount) {
+    public void createContributionTransaction(String goalId, long amount) {
         FirebaseUser currentUser = auth.getCurrentUser();
         if (currentUser == null) return;
 
@@ -258,7 +289,7 @@ public class FinancialGoalRepository {
         }
     }
     // Phương thức hỗ trợ tạo giao dịch
-    private void createTransactionForGoal(FinancialGoal goal, double amount) {
+    private void createTransactionForGoal(FinancialGoal goal, long amount) {
         if (goal == null) return;
 
         FirebaseUser currentUser = auth.getCurrentUser();
@@ -301,8 +332,8 @@ public class FinancialGoalRepository {
         String userId = document.getString("userId");
         String name = document.getString("name") != null ? document.getString("name") : "";
         String description = document.getString("description") != null ? document.getString("description") : "";
-        double targetAmount = document.getDouble("targetAmount") != null ? document.getDouble("targetAmount") : 0.0;
-        double currentAmount = document.getDouble("currentAmount") != null ? document.getDouble("currentAmount") : 0.0;
+        long targetAmount = CurrencyFormatter.toAmount(document.get("targetAmount"));
+        long currentAmount = CurrencyFormatter.toAmount(document.get("currentAmount"));
         java.util.Date startDate = document.getDate("startDate") != null ? document.getDate("startDate") : new java.util.Date();
         java.util.Date endDate = document.getDate("endDate") != null ? document.getDate("endDate") : new java.util.Date();
         boolean completed = document.getBoolean("completed") != null ? document.getBoolean("completed") : false;
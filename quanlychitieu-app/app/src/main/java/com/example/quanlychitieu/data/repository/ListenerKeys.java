@@ -0,0 +1,68 @@
+package com.example.quanlychitieu.data.repository;
+
+import com.google.firebase.firestore.Query;
+
+import java.util.Date;
+
+/**
+ * Dựng khóa truy vấn cho SnapshotListenerRegistry, để mọi repository mô tả cùng một dạng truy vấn
+ * bằng đúng một chuỗi, ví dụ "users/{uid}/budgets?endDate>=1735664400000&orderBy=endDate asc".
+ * Các điều kiện phải được thêm theo đúng thứ tự của truy vấn Firestore tương ứng.
+ */
+final class ListenerKeys {
+    private static final String COLLECTION_USERS = "users";
+
+    private ListenerKeys() {
+    }
+
+    /**
+     * Khóa của toàn bộ một collection con của người dùng
+     */
+    static String collection(String userId, String collection) {
+        return COLLECTION_USERS + "/" + userId + "/" + collection;
+    }
+
+    /**
+     * Khóa của một tài liệu trong collection con của người dùng
+     */
+    static String document(String userId, String collection, String documentId) {
+        return collection(userId, collection) + "/" + documentId;
+    }
+
+    /**
+     * Bắt đầu dựng khóa cho một truy vấn trên collection con của người dùng
+     */
+    static QueryKey query(String userId, String collection) {
+        return new QueryKey(collection(userId, collection));
+    }
+
+    static final class QueryKey {
+        private final StringBuilder key;
+        private boolean hasParams = false;
+
+        private QueryKey(String path) {
+            key = new StringBuilder(path);
+        }
+
+        /**
+         * Thêm một điều kiện lọc, op là toán tử dạng chuỗi như "==", ">=", "<="
+         */
+        QueryKey where(String field, String op, Object value) {
+            return append(field + op + (value instanceof Date ? ((Date) value).getTime() : value));
+        }
+
+        QueryKey orderBy(String field, Query.Direction direction) {
+            return append("orderBy=" + field + (direction == Query.Direction.DESCENDING ? " desc" : " asc"));
+        }
+
+        String build() {
+            return key.toString();
+        }
+
+        private QueryKey append(String param) {
+            key.append(hasParams ? '&' : '?').append(param);
+            hasParams = true;
+            return this;
+        }
+    }
+}
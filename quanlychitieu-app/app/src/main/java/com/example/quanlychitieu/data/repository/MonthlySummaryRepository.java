@@ -0,0 +1,309 @@
+package com.example.quanlychitieu.data.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.quanlychitieu.data.model.MonthlySummary;
+import com.example.quanlychitieu.data.model.Transaction;
+import com.example.quanlychitieu.utils.CurrencyFormatter;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Quản lý các tài liệu tổng hợp theo tháng users/{uid}/monthlySummaries/{yyyyMM}.
+ * Tài liệu được cập nhật bằng FieldValue.increment trong cùng WriteBatch với thao tác
+ * ghi giao dịch, nên đọc tổng của một tháng chỉ cần một tài liệu. Mỗi lần cập nhật tăng trường revision
+ * để backfill nhận ra tài liệu đã bị ghi trong lúc đang tính lại.
+ */
+public class MonthlySummaryRepository {
+    private static final String TAG = "MonthlySummaryRepo";
+    private static final String COLLECTION_USERS = "users";
+    private static final String COLLECTION_TRANSACTIONS = "transactions";
+    private static final String COLLECTION_MONTHLY_SUMMARIES = "monthlySummaries";
+
+    private static final String PREFS_NAME = "monthly_summaries";
+    private static final String KEY_BACKFILL_VERSION_PREFIX = "backfill_version_";
+    // Tăng khi cấu trúc tài liệu tổng hợp thay đổi để chạy lại backfill
+    // (2: số tiền lưu dạng số nguyên đồng)
+    private static final int SUMMARY_VERSION = 2;
+
+    private final FirebaseFirestore db;
+    private final FirebaseAuth auth;
+    private boolean backfillRunning = false;
+
+    private static MonthlySummaryRepository instance;
+
+    public static synchronized MonthlySummaryRepository getInstance() {
+        if (instance == null) {
+            instance = new MonthlySummaryRepository();
+        }
+        return instance;
+    }
+
+    private MonthlySummaryRepository() {
+        db = FirebaseFirestore.getInstance();
+        auth = FirebaseAuth.getInstance();
+    }
+
+    /**
+     * Khóa tháng (ID tài liệu) của một ngày, dạng yyyyMM
+     */
+    public static String monthKey(Date date) {
+        return new SimpleDateFormat("yyyyMM", Locale.US).format(date);
+    }
+
+    private DocumentReference summaryRef(String userId, String monthKey) {
+        return db.collection(COLLECTION_USERS)
+                .document(userId)
+                .collection(COLLECTION_MONTHLY_SUMMARIES)
+                .document(monthKey);
+    }
+
+    /**
+     * Thêm vào batch các thao tác increment cho tài liệu tổng hợp:
+     * trừ phần đóng góp của giá trị cũ và cộng phần đóng góp của giá trị mới.
+     * @param oldTransaction Giá trị trước khi sửa, null khi thêm mới
+     * @param newTransaction Giá trị sau khi sửa, null khi xóa
+     */
+    public void applyDelta(WriteBatch batch, String userId,
+                           Transaction oldTransaction, Transaction newTransaction) {
+        // Giao dịch đổi ngày có thể ảnh hưởng tới hai tháng khác nhau
+        Map<String, MonthlySummary> deltas = new HashMap<>();
+        addToDeltas(deltas, oldTransaction, -1);
+        addToDeltas(deltas, newTransaction, 1);
+
+        for (MonthlySummary delta : deltas.values()) {
+            if (delta.isEmpty()) {
+                // Sửa không làm thay đổi tổng (ví dụ chỉ đổi ghi chú)
+                continue;
+            }
+            batch.set(summaryRef(userId, delta.getMonthKey()), toIncrementMap(delta), SetOptions.merge());
+        }
+    }
+
+    private void addToDeltas(Map<String, MonthlySummary> deltas, Transaction transaction, int sign) {
+        if (transaction == null || transaction.getDate() == null) {
+            return;
+        }
+
+        String key = monthKey(transaction.getDate());
+        MonthlySummary delta = deltas.get(key);
+        if (delta == null) {
+            delta = new MonthlySummary(key);
+            deltas.put(key, delta);
+        }
+        delta.addTransaction(transaction, sign);
+    }
+
+    private Map<String, Object> toIncrementMap(MonthlySummary delta) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("revision", FieldValue.increment(1));
+        if (delta.getIncome() != 0) {
+            map.put("income", FieldValue.increment(delta.getIncome()));
+        }
+        if (delta.getExpense() != 0) {
+            map.put("expense", FieldValue.increment(delta.getExpense()));
+        }
+        if (delta.getGoalContributions() != 0) {
+            map.put("goalContributions", FieldValue.increment(delta.getGoalContributions()));
+        }
+        if (delta.getTransactionCount() != 0) {
+            map.put("transactionCount", FieldValue.increment(delta.getTransactionCount()));
+        }
+
+        // Map lồng nhau với merge nên tên danh mục không bị hiểu là đường dẫn trường
+        Map<String, Object> categories = new HashMap<>();
+        for (Map.Entry<String, Long> entry : delta.getCategories().entrySet()) {
+            if (entry.getValue() != 0) {
+                categories.put(entry.getKey(), FieldValue.increment(entry.getValue()));
+            }
+        }
+        if (!categories.isEmpty()) {
+            map.put("categories", categories);
+        }
+        return map;
+    }
+
+    /**
+     * Đọc tài liệu tổng hợp của tháng chứa ngày đã cho
+     * @return Task trả về tổng hợp (rỗng nếu tháng chưa có giao dịch)
+     */
+    public Task<MonthlySummary> getMonthlySummary(Date month) {
+        return getMonthlySummary(month, Source.DEFAULT);
+    }
+
+    /**
+     * Đọc tài liệu tổng hợp từ nguồn chỉ định, ví dụ Source.CACHE để hiển thị ngay
+     * từ cache trên đĩa mà không chờ mạng (thất bại nếu tài liệu chưa có trong cache)
+     */
+    public Task<MonthlySummary> getMonthlySummary(Date month, Source source) {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null) {
+            return Tasks.forException(new Exception("User not logged in"));
+        }
+
+        String key = monthKey(month);
+        return summaryRef(currentUser.getUid(), key)
+                .get(source)
+                .continueWith(task -> {
+                    DocumentSnapshot document = task.getResult();
+                    if (document == null || !document.exists()) {
+                        return new MonthlySummary(key);
+                    }
+                    return documentToSummary(document);
+                });
+    }
+
+    private MonthlySummary documentToSummary(DocumentSnapshot document) {
+        MonthlySummary summary = new MonthlySummary(document.getId());
+        summary.setIncome(CurrencyFormatter.toAmount(document.get("income")));
+        summary.setExpense(CurrencyFormatter.toAmount(document.get("expense")));
+        summary.setGoalContributions(CurrencyFormatter.toAmount(document.get("goalContributions")));
+        summary.setTransactionCount(getCount(document, "transactionCount"));
+
+        Map<String, Long> categories = new HashMap<>();
+        Object categoriesObj = document.get("categories");
+        if (categoriesObj instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) categoriesObj).entrySet()) {
+                categories.put(String.valueOf(entry.getKey()), CurrencyFormatter.toAmount(entry.getValue()));
+            }
+        }
+        summary.setCategories(categories);
+        return summary;
+    }
+
+    // Trường đếm (số giao dịch, revision) là số nguyên, không đọc qua bộ chuyển đổi số tiền
+    private static long getCount(DocumentSnapshot document, String field) {
+        Long value = document.getLong(field);
+        return value != null ? value : 0;
+    }
+
+    // Tài liệu tổng hợp đầy đủ của một tháng (ghi đè), giữ nguyên revision hiện tại
+    private Map<String, Object> toSummaryMap(MonthlySummary summary, long revision) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("income", summary.getIncome());
+        map.put("expense", summary.getExpense());
+        map.put("goalContributions", summary.getGoalContributions());
+        map.put("transactionCount", summary.getTransactionCount());
+        map.put("categories", summary.getCategories());
+        map.put("revision", revision);
+        return map;
+    }
+
+    /**
+     * Tính lại toàn bộ tài liệu tổng hợp từ giao dịch hiện có, chạy một lần cho mỗi người dùng.
+     * Mỗi tài liệu được ghi đè bằng tổng đầy đủ nên chạy lại vẫn cho cùng kết quả.
+     * Revision của các tài liệu được đọc trước khi đọc giao dịch; tháng nào có giao dịch được ghi
+     * trong lúc tính lại (revision đã đổi) thì không bị ghi đè mà được tính lại ở lần chạy sau.
+     */
+    public void backfillIfNeeded(Context context) {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null || backfillRunning) {
+            return;
+        }
+
+        String userId = currentUser.getUid();
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getInt(KEY_BACKFILL_VERSION_PREFIX + userId, 0) >= SUMMARY_VERSION) {
+            return;
+        }
+
+        backfillRunning = true;
+        Map<String, Long> revisions = new HashMap<>();
+        db.collection(COLLECTION_USERS)
+                .document(userId)
+                .collection(COLLECTION_MONTHLY_SUMMARIES)
+                .get()
+                .continueWithTask(summariesTask -> {
+                    for (QueryDocumentSnapshot document : summariesTask.getResult()) {
+                        revisions.put(document.getId(), getCount(document, "revision"));
+                    }
+                    return db.collection(COLLECTION_USERS)
+                            .document(userId)
+                            .collection(COLLECTION_TRANSACTIONS)
+                            .get();
+                })
+                .addOnSuccessListener(snapshots -> {
+                    // Gom giao dịch theo tháng
+                    TransactionRepository transactionRepository = TransactionRepository.getInstance();
+                    Map<String, MonthlySummary> summaries = new HashMap<>();
+                    for (QueryDocumentSnapshot document : snapshots) {
+                        addToDeltas(summaries, transactionRepository.documentToTransaction(document), 1);
+                    }
+
+                    // Tháng đã có tài liệu nhưng không còn giao dịch nào được đưa về 0
+                    for (String monthKey : revisions.keySet()) {
+                        if (!summaries.containsKey(monthKey)) {
+                            summaries.put(monthKey, new MonthlySummary(monthKey));
+                        }
+                    }
+
+                    List<Task<Boolean>> writes = new ArrayList<>();
+                    for (MonthlySummary summary : summaries.values()) {
+                        Long revision = revisions.get(summary.getMonthKey());
+                        writes.add(writeBackfilledSummary(userId, summary, revision != null ? revision : 0));
+                    }
+
+                    Tasks.whenAll(writes)
+                            .addOnSuccessListener(aVoid -> {
+                                int skipped = 0;
+                                for (Task<Boolean> write : writes) {
+                                    if (!Boolean.TRUE.equals(write.getResult())) {
+                                        skipped++;
+                                    }
+                                }
+                                if (skipped == 0) {
+                                    prefs.edit().putInt(KEY_BACKFILL_VERSION_PREFIX + userId, SUMMARY_VERSION).apply();
+                                }
+                                backfillRunning = false;
+                                Log.d(TAG, "Backfilled " + (summaries.size() - skipped) + " monthly summaries, "
+                                        + skipped + " changed during backfill");
+                            })
+                            .addOnFailureListener(e -> {
+                                backfillRunning = false;
+                                Log.e(TAG, "Error writing monthly summaries", e);
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    backfillRunning = false;
+                    Log.e(TAG, "Error loading transactions for backfill", e);
+                });
+    }
+
+    /**
+     * Ghi đè tổng của một tháng nếu tài liệu chưa bị ghi kể từ lúc đọc revision
+     * @return Task trả về false nếu bỏ qua vì tài liệu đã thay đổi
+     */
+    private Task<Boolean> writeBackfilledSummary(String userId, MonthlySummary summary, long expectedRevision) {
+        DocumentReference ref = summaryRef(userId, summary.getMonthKey());
+        return db.runTransaction(firestoreTransaction -> {
+            DocumentSnapshot current = firestoreTransaction.get(ref);
+            long revision = current.exists() ? getCount(current, "revision") : 0;
+            if (revision != expectedRevision) {
+                return false;
+            }
+            firestoreTransaction.set(ref, toSummaryMap(summary, revision));
+            return true;
+        });
+    }
+}
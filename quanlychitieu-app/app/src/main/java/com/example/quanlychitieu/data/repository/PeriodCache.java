@@ -0,0 +1,224 @@
+package com.example.quanlychitieu.data.repository;
+
+import android.content.ComponentCallbacks2;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.quanlychitieu.data.model.PeriodTotals;
+import com.example.quanlychitieu.data.model.Transaction;
+import com.example.quanlychitieu.data.model.TransactionColumns;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache LRU trong bộ nhớ cho dữ liệu theo kỳ, khóa theo (uid, kỳ).
+ * Mỗi mục là một "lát" gồm toàn bộ giao dịch của kỳ (mọi loại, mọi danh mục) cùng tổng
+ * đã tính, hoặc chỉ các tổng theo khoảng của truy vấn tổng hợp.
+ * Kích thước tính theo số giao dịch/khoảng và được giới hạn theo bộ nhớ heap;
+ * listener đồng bộ của TransactionRepository gọi invalidate() khi tài liệu thay đổi.
+ * PeriodTotals được sao chép khi lưu và khi trả về, nên người gọi sửa kết quả không làm đổi cache.
+ * An toàn khi gọi từ nhiều luồng (LruCache đã đồng bộ).
+ */
+public class PeriodCache {
+    private static final String TAG = "PeriodCache";
+    // Ước lượng bộ nhớ của một giao dịch đã chuyển đổi
+    private static final int BYTES_PER_TRANSACTION = 512;
+    // Dùng tối đa 1/16 heap cho cache
+    private static final int MAX_WEIGHT = (int) Math.min(50_000,
+            Runtime.getRuntime().maxMemory() / 16 / BYTES_PER_TRANSACTION);
+
+    /**
+     * Giao dịch của một kỳ, sắp xếp theo ngày giảm dần, cùng tổng đã tính sẵn
+     */
+    public static class Slice {
+        private final Date startDate;
+        private final Date endDate;
+        private final List<Transaction> transactions;
+        private final Set<String> firebaseIds = new HashSet<>();
+        private TransactionColumns columns;
+        private PeriodTotals totals;
+
+        Slice(Date startDate, Date endDate, List<Transaction> transactions) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.transactions = Collections.unmodifiableList(new ArrayList<>(transactions));
+            for (Transaction transaction : transactions) {
+                firebaseIds.add(transaction.getFirebaseId());
+            }
+        }
+
+        public List<Transaction> getTransactions() {
+            return transactions;
+        }
+
+        /**
+         * Các giao dịch của kỳ dạng cột, dùng cho các vòng tính thống kê; chỉ tạo một lần
+         */
+        public synchronized TransactionColumns getColumns() {
+            if (columns == null) {
+                columns = TransactionColumns.of(transactions);
+            }
+            return columns;
+        }
+
+        /**
+         * Tổng thu/chi và chi theo danh mục của kỳ, chỉ tính một lần; mỗi lần gọi trả về một bản sao
+         */
+        public synchronized PeriodTotals getTotals() {
+            if (totals == null) {
+                totals = new PeriodTotals(startDate, endDate);
+                getColumns().addTo(totals);
+            }
+            return totals.copy();
+        }
+    }
+
+    // Mục trong cache: một lát giao dịch hoặc danh sách tổng theo khoảng
+    private static class Entry {
+        final String userId;
+        final Date startDate;
+        final Date endDate;
+        final Slice slice;
+        final List<PeriodTotals> buckets;
+
+        Entry(String userId, Date startDate, Date endDate, Slice slice, List<PeriodTotals> buckets) {
+            this.userId = userId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.slice = slice;
+            this.buckets = buckets;
+        }
+
+        int weight() {
+            return 1 + (slice != null ? slice.transactions.size() : buckets.size());
+        }
+
+        boolean overlaps(Date date) {
+            return !date.before(startDate) && !date.after(endDate);
+        }
+    }
+
+    private final LruCache<String, Entry> cache = new LruCache<String, Entry>(MAX_WEIGHT) {
+        @Override
+        protected int sizeOf(String key, Entry entry) {
+            return entry.weight();
+        }
+    };
+
+    private static PeriodCache instance;
+
+    public static synchronized PeriodCache getInstance() {
+        if (instance == null) {
+            instance = new PeriodCache();
+        }
+        return instance;
+    }
+
+    private PeriodCache() {
+    }
+
+    private static String sliceKey(String userId, Date startDate, Date endDate) {
+        return userId + "/slice/" + startDate.getTime() + "-" + endDate.getTime();
+    }
+
+    private static String bucketsKey(String userId, List<PeriodTotals> buckets, boolean withCategories) {
+        StringBuilder key = new StringBuilder(userId)
+                .append(withCategories ? "/buckets+categories" : "/buckets");
+        for (PeriodTotals bucket : buckets) {
+            key.append('/').append(bucket.getStartDate().getTime());
+        }
+        return key.append('-').append(buckets.get(buckets.size() - 1).getEndDate().getTime()).toString();
+    }
+
+    /**
+     * @return Lát giao dịch của kỳ, hoặc null nếu chưa có trong cache
+     */
+    public Slice getSlice(String userId, Date startDate, Date endDate) {
+        Entry entry = cache.get(sliceKey(userId, startDate, endDate));
+        return entry != null ? entry.slice : null;
+    }
+
+    public Slice putSlice(String userId, Date startDate, Date endDate, List<Transaction> transactions) {
+        Slice slice = new Slice(startDate, endDate, transactions);
+        cache.put(sliceKey(userId, startDate, endDate),
+                new Entry(userId, startDate, endDate, slice, null));
+        return slice;
+    }
+
+    /**
+     * @param buckets Các khoảng cần tìm (chỉ dùng ngày bắt đầu/kết thúc)
+     * @return Bản sao các tổng theo khoảng đã lưu, hoặc null nếu chưa có
+     */
+    public List<PeriodTotals> getBuckets(String userId, List<PeriodTotals> buckets, boolean withCategories) {
+        Entry entry = cache.get(bucketsKey(userId, buckets, withCategories));
+        return entry != null ? copyOf(entry.buckets) : null;
+    }
+
+    public void putBuckets(String userId, List<PeriodTotals> buckets, boolean withCategories) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        Date startDate = buckets.get(0).getStartDate();
+        Date endDate = buckets.get(buckets.size() - 1).getEndDate();
+        cache.put(bucketsKey(userId, buckets, withCategories), new Entry(userId, startDate, endDate, null,
+                Collections.unmodifiableList(copyOf(buckets))));
+    }
+
+    private static List<PeriodTotals> copyOf(List<PeriodTotals> buckets) {
+        List<PeriodTotals> copies = new ArrayList<>(buckets.size());
+        for (PeriodTotals bucket : buckets) {
+            copies.add(bucket.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * Xóa các mục bị ảnh hưởng bởi thay đổi của một giao dịch
+     * @param date Ngày của giao dịch (giá trị mới khi sửa)
+     * @param dateMayHaveChanged true khi giao dịch được sửa: ngày cũ không biết nên mọi tổng
+     *                           theo khoảng của người dùng đều bị xóa
+     */
+    public void invalidate(String userId, String firebaseId, Date date, boolean dateMayHaveChanged) {
+        for (Map.Entry<String, Entry> item : cache.snapshot().entrySet()) {
+            Entry entry = item.getValue();
+            if (!entry.userId.equals(userId)) {
+                continue;
+            }
+
+            boolean affected = date != null && entry.overlaps(date);
+            if (entry.slice != null) {
+                affected |= entry.slice.firebaseIds.contains(firebaseId);
+            } else {
+                affected |= dateMayHaveChanged;
+            }
+
+            if (affected) {
+                cache.remove(item.getKey());
+            }
+        }
+    }
+
+    /**
+     * Giải phóng bộ nhớ theo mức hệ thống yêu cầu (gọi từ Application.onTrimMemory)
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            cache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+        Log.d(TAG, "Trimmed to " + cache.size() + " (level " + level + ")");
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.quanlychitieu.data.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.quanlychitieu.utils.PerfMetrics;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gộp các ảnh chụp đến dồn dập của một truy vấn thành một lượt xử lý.
+ * - Ảnh chụp không có DocumentChange nào (chỉ đổi hasPendingWrites/isFromCache,
+ *   ví dụ khi server xác nhận một thao tác ghi cục bộ) bị bỏ qua.
+ * - Các ảnh chụp trong cùng một cửa sổ thời gian được giao cùng lúc, theo đúng thứ tự,
+ *   nên người nhận vẫn có thể áp dụng lần lượt DocumentChange của từng ảnh chụp.
+ * Số sự kiện bị bỏ qua hoặc bị gộp được ghi vào PerfMetrics.
+ * Phải được gọi trên main thread.
+ */
+public class SnapshotDebouncer implements EventListener<QuerySnapshot> {
+    // Thao tác ghi cục bộ và xác nhận của server thường đến cách nhau vài chục ms
+    public static final long DEFAULT_WINDOW_MS = 150;
+
+    private final long windowMs;
+    private final EventListener<List<QuerySnapshot>> listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+    private final List<QuerySnapshot> pending = new ArrayList<>();
+    private boolean received = false;
+
+    public SnapshotDebouncer(EventListener<List<QuerySnapshot>> listener) {
+        this(DEFAULT_WINDOW_MS, listener);
+    }
+
+    public SnapshotDebouncer(long windowMs, EventListener<List<QuerySnapshot>> listener) {
+        this.windowMs = windowMs;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onEvent(QuerySnapshot value, FirebaseFirestoreException error) {
+        if (error != null) {
+            listener.onEvent(null, error);
+            return;
+        }
+
+        if (value == null) {
+            return;
+        }
+
+        // Ảnh chụp đầu tiên luôn được giao, kể cả khi truy vấn không có kết quả
+        if (received && value.getDocumentChanges().isEmpty()) {
+            PerfMetrics.increment(PerfMetrics.SNAPSHOT_METADATA_ONLY);
+            return;
+        }
+        received = true;
+
+        pending.add(value);
+        if (pending.size() == 1) {
+            handler.postDelayed(flushRunnable, windowMs);
+        } else {
+            PerfMetrics.increment(PerfMetrics.SNAPSHOT_DEBOUNCED);
+        }
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<QuerySnapshot> snapshots = new ArrayList<>(pending);
+        pending.clear();
+        listener.onEvent(snapshots, null);
+    }
+
+    /**
+     * Hủy các ảnh chụp đang chờ, gọi khi hủy listener
+     */
+    public void cancel() {
+        handler.removeCallbacks(flushRunnable);
+        pending.clear();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.quanlychitieu.data.repository;
+
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sổ đăng ký snapshot listener dùng chung cho tất cả repository.
+ * Mỗi dạng truy vấn (khóa gồm collection, bộ lọc và thứ tự) chỉ có một
+ * ListenerRegistration thật trên Firestore; các nơi đăng ký cùng khóa được đếm tham chiếu
+ * và listener thật chỉ bị hủy khi người đăng ký cuối cùng rời đi.
+ * Các hàm phải được gọi trên main thread (cùng luồng nhận sự kiện của Firestore).
+ */
+public class SnapshotListenerRegistry {
+    private static final String TAG = "ListenerRegistry";
+
+    private interface Attacher<T> {
+        ListenerRegistration attach(EventListener<T> listener);
+    }
+
+    // Một listener thật trên Firestore cùng danh sách người đăng ký của nó
+    private static class SharedListener<T> {
+        final String key;
+        final List<EventListener<T>> subscribers = new ArrayList<>();
+        ListenerRegistration registration;
+        T lastValue;
+
+        SharedListener(String key) {
+            this.key = key;
+        }
+    }
+
+    private final Map<String, SharedListener<?>> listeners = new HashMap<>();
+    private final MutableLiveData<Map<String, Integer>> subscriberCounts =
+            new MutableLiveData<>(new LinkedHashMap<>());
+
+    private static SnapshotListenerRegistry instance;
+
+    public static synchronized SnapshotListenerRegistry getInstance() {
+        if (instance == null) {
+            instance = new SnapshotListenerRegistry();
+        }
+        return instance;
+    }
+
+    private SnapshotListenerRegistry() {
+    }
+
+    /**
+     * Đăng ký nghe một truy vấn
+     * @param key Khóa mô tả dạng truy vấn, dựng bằng ListenerKeys
+     * @return Gọi remove() để hủy đăng ký (giảm số tham chiếu)
+     */
+    public ListenerRegistration subscribe(String key, Query query, EventListener<QuerySnapshot> listener) {
+        return subscribe(key, query::addSnapshotListener, listener);
+    }
+
+    public ListenerRegistration subscribe(String key, Query query, MetadataChanges metadataChanges,
+                                          EventListener<QuerySnapshot> listener) {
+        return subscribe(key + "#" + metadataChanges,
+                shared -> query.addSnapshotListener(metadataChanges, shared), listener);
+    }
+
+    public ListenerRegistration subscribe(String key, DocumentReference document,
+                                          EventListener<DocumentSnapshot> listener) {
+        return subscribe(key, document::addSnapshotListener, listener);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ListenerRegistration subscribe(String key, Attacher<T> attacher, EventListener<T> listener) {
+        SharedListener<T> shared = (SharedListener<T>) listeners.get(key);
+
+        if (shared == null) {
+            SharedListener<T> created = new SharedListener<>(key);
+            listeners.put(key, created);
+            created.subscribers.add(listener);
+            created.registration = attacher.attach((value, error) -> {
+                if (error == null) {
+                    created.lastValue = value;
+                }
+                // Sao chép để người đăng ký có thể hủy ngay trong callback
+                for (EventListener<T> subscriber : new ArrayList<>(created.subscribers)) {
+                    subscriber.onEvent(value, error);
+                }
+            });
+            Log.d(TAG, "Attached listener " + key);
+        } else {
+            shared.subscribers.add(listener);
+            // Người đăng ký sau nhận ngay ảnh chụp gần nhất thay vì chờ thay đổi tiếp theo.
+            // Giao đồng bộ (đang ở main thread) để ảnh chụp cũ không thể đến sau một ảnh chụp mới hơn
+            if (shared.lastValue != null) {
+                listener.onEvent(shared.lastValue, null);
+            }
+        }
+
+        publishCounts();
+        return new ListenerRegistration() {
+            private boolean removed = false;
+
+            @Override
+            public void remove() {
+                if (!removed) {
+                    removed = true;
+                    unsubscribe(key, listener);
+                }
+            }
+        };
+    }
+
+    private void unsubscribe(String key, EventListener<?> listener) {
+        SharedListener<?> shared = listeners.get(key);
+        if (shared == null) {
+            return;
+        }
+
+        shared.subscribers.remove(listener);
+        if (shared.subscribers.isEmpty()) {
+            shared.registration.remove();
+            listeners.remove(key);
+            Log.d(TAG, "Detached listener " + key);
+        }
+        publishCounts();
+    }
+
+    private void publishCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (SharedListener<?> shared : listeners.values()) {
+            counts.put(shared.key, shared.subscribers.size());
+        }
+        subscriberCounts.setValue(counts);
+    }
+
+    /**
+     * Số listener thật đang mở trên Firestore
+     */
+    public int getListenerCount() {
+        return listeners.size();
+    }
+
+    /**
+     * Số người đăng ký theo từng khóa truy vấn, dùng cho chẩn đoán
+     */
+    public LiveData<Map<String, Integer>> getSubscriberCounts() {
+        return subscriberCounts;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.quanlychitieu.data.repository;
+
+import com.example.quanlychitieu.data.model.CategoryAmounts;
+import com.example.quanlychitieu.data.model.Transaction;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tổng hợp gia tăng cho một truy vấn giao dịch đang được lắng nghe.
+ * Mỗi DocumentChange được áp dụng như một delta có dấu: phần đóng góp cũ của tài liệu
+ * (lưu theo document id) bị trừ đi trước khi cộng phần đóng góp mới, nên một lần sửa
+ * chỉ tốn O(1) thay vì tính lại cả tháng. Số tiền là số nguyên (đồng) nên cộng trừ
+ * nhiều lần vẫn cho tổng chính xác.
+ */
+public class TransactionAggregator {
+    public interface Converter {
+        Transaction convert(QueryDocumentSnapshot document);
+    }
+
+    // Phần đóng góp hiện tại của từng tài liệu, theo document id
+    private final Map<String, Transaction> contributions = new HashMap<>();
+    // Danh sách giao dịch theo đúng thứ tự của truy vấn
+    private final List<Transaction> transactions = new ArrayList<>();
+    // Mọi khoản chi theo danh mục (dùng cho ngân sách)
+    private final CategoryAmounts spentByCategory = new CategoryAmounts();
+    // Khoản chi theo danh mục không tính đóng góp mục tiêu (dùng cho biểu đồ)
+    private final CategoryAmounts expenseByCategory = new CategoryAmounts();
+    private long totalIncome = 0;
+    private long totalExpenses = 0;
+    // Đã dựng trạng thái từ ảnh chụp đầy đủ đầu tiên chưa
+    private boolean initialized = false;
+
+    /**
+     * Áp dụng một ảnh chụp. Ảnh chụp đầu tiên sau khi tạo hoặc reset() được dựng lại từ
+     * toàn bộ tài liệu, vì listener dùng chung có thể phát lại ảnh chụp gần nhất cho
+     * người đăng ký mới; các ảnh chụp sau chỉ áp dụng DocumentChange.
+     */
+    public void applySnapshot(QuerySnapshot snapshot, Converter converter) {
+        if (initialized) {
+            applyChanges(snapshot.getDocumentChanges(), converter);
+            return;
+        }
+
+        initialized = true;
+        for (QueryDocumentSnapshot document : snapshot) {
+            Transaction transaction = converter.convert(document);
+            transactions.add(transaction);
+            replaceContribution(document.getId(), transaction);
+        }
+    }
+
+    /**
+     * Áp dụng các thay đổi của một ảnh chụp theo đúng thứ tự Firestore trả về
+     */
+    public void applyChanges(List<DocumentChange> changes, Converter converter) {
+        for (DocumentChange change : changes) {
+            String documentId = change.getDocument().getId();
+
+            switch (change.getType()) {
+                case ADDED: {
+                    Transaction transaction = converter.convert(change.getDocument());
+                    transactions.add(change.getNewIndex(), transaction);
+                    replaceContribution(documentId, transaction);
+                    break;
+                }
+                case MODIFIED: {
+                    Transaction transaction = converter.convert(change.getDocument());
+                    if (change.getOldIndex() == change.getNewIndex()) {
+                        transactions.set(change.getNewIndex(), transaction);
+                    } else {
+                        transactions.remove(change.getOldIndex());
+                        transactions.add(change.getNewIndex(), transaction);
+                    }
+                    replaceContribution(documentId, transaction);
+                    break;
+                }
+                case REMOVED:
+                    transactions.remove(change.getOldIndex());
+                    replaceContribution(documentId, null);
+                    break;
+            }
+        }
+    }
+
+    // Trừ phần đóng góp cũ của tài liệu rồi cộng phần đóng góp mới (null khi bị xóa)
+    private void replaceContribution(String documentId, Transaction newValue) {
+        Transaction oldValue = newValue != null
+                ? contributions.put(documentId, newValue)
+                : contributions.remove(documentId);
+
+        if (oldValue != null) {
+            addContribution(oldValue, -1);
+        }
+        if (newValue != null) {
+            addContribution(newValue, 1);
+        }
+    }
+
+    private void addContribution(Transaction transaction, int sign) {
+        long amount = sign * Math.abs(transaction.getAmount());
+        int categoryId = transaction.getCategoryId();
+
+        if (!transaction.isIncome()) {
+            spentByCategory.add(categoryId, amount);
+        }
+
+        // Tổng thu/chi và biểu đồ không tính giao dịch đóng góp mục tiêu
+        if (transaction.isGoalContribution()) {
+            return;
+        }
+
+        if (transaction.isIncome()) {
+            totalIncome += amount;
+        } else {
+            totalExpenses += amount;
+            expenseByCategory.add(categoryId, amount);
+        }
+    }
+
+    public long getTotalIncome() {
+        return totalIncome;
+    }
+
+    public long getTotalExpenses() {
+        return totalExpenses;
+    }
+
+    public long getSpent(String category) {
+        return spentByCategory.get(category);
+    }
+
+    public Map<String, Long> getSpentByCategory() {
+        return spentByCategory.toMap();
+    }
+
+    public Map<String, Long> getExpenseByCategory() {
+        return expenseByCategory.toMap();
+    }
+
+    public List<Transaction> getTransactions() {
+        return new ArrayList<>(transactions);
+    }
+
+    /**
+     * Lấy tối đa limit giao dịch đầu tiên theo thứ tự truy vấn, bỏ qua đóng góp mục tiêu
+     */
+    public List<Transaction> getFirst(int limit) {
+        List<Transaction> result = new ArrayList<>(limit);
+        for (Transaction transaction : transactions) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (transaction.isGoalContribution()) {
+                continue;
+            }
+            result.add(transaction);
+        }
+        return result;
+    }
+
+    // Xóa toàn bộ trạng thái khi đăng ký lại listener
+    public void reset() {
+        contributions.clear();
+        transactions.clear();
+        spentByCategory.clear();
+        expenseByCategory.clear();
+        totalIncome = 0;
+        totalExpenses = 0;
+        initialized = false;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.quanlychitieu.data.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.quanlychitieu.data.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Phân trang lịch sử giao dịch theo con trỏ (cursor).
+ * Mỗi trang bắt đầu sau phần tử cuối của trang trước, và chỉ giữ một cửa sổ
+ * tối đa MAX_PAGES_IN_MEMORY trang trong bộ nhớ. Khi cửa sổ trượt, trang bị loại
+ * có thể được tải lại nhờ con trỏ bắt đầu đã lưu của từng trang.
+ *
+ * @param <C> Kiểu con trỏ của nguồn dữ liệu (DocumentSnapshot cho Firestore,
+ *            khóa (date, firebaseId) cho kho cục bộ)
+ */
+public class TransactionPager<C> {
+    private static final String TAG = "TransactionPager";
+    public static final int PAGE_SIZE = 30;
+    private static final int MAX_PAGES_IN_MEMORY = 5;
+
+    public interface PageSource<C> {
+        /**
+         * Tải một trang bắt đầu ngay sau con trỏ startAfter (null cho trang đầu tiên)
+         */
+        void loadPage(C startAfter, int limit, PageCallback<C> callback);
+    }
+
+    public interface PageCallback<C> {
+        void onPageLoaded(List<Transaction> items, C last, boolean endReached);
+
+        void onError(Exception e);
+    }
+
+    private static class Page<C> {
+        final int index;
+        final List<Transaction> items;
+        final C last;
+
+        Page(int index, List<Transaction> items, C last) {
+            this.index = index;
+            this.items = items;
+            this.last = last;
+        }
+    }
+
+    private final PageSource<C> source;
+    // Chuyển kết quả của nguồn dữ liệu về main thread
+    private final Executor mainExecutor;
+    private final MutableLiveData<List<Transaction>> items = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
+
+    // Các trang đang nằm trong cửa sổ bộ nhớ, theo thứ tự
+    private final List<Page<C>> pages = new ArrayList<>();
+    // startCursors.get(i) là con trỏ mà trang i bắt đầu sau nó (null cho trang 0)
+    private final List<C> startCursors = new ArrayList<>();
+    private boolean endReached = false;
+    private boolean loading = false;
+
+    public TransactionPager(PageSource<C> source) {
+        this(source, new Handler(Looper.getMainLooper())::post);
+    }
+
+    // Unit test truyền executor chạy ngay trên luồng gọi
+    TransactionPager(PageSource<C> source, Executor mainExecutor) {
+        this.source = source;
+        this.mainExecutor = mainExecutor;
+        startCursors.add(null);
+    }
+
+    public LiveData<List<Transaction>> getItems() {
+        return items;
+    }
+
+    public LiveData<Boolean> getIsLoading() {
+        return isLoading;
+    }
+
+    public boolean hasMore() {
+        return !endReached;
+    }
+
+    /**
+     * Tải trang kế tiếp (hoặc trang đầu tiên nếu chưa tải gì)
+     */
+    public void loadNextPage() {
+        if (loading || endReached) {
+            return;
+        }
+
+        int nextIndex = pages.isEmpty() ? 0 : pages.get(pages.size() - 1).index + 1;
+        C startAfter = pages.isEmpty() ? null : pages.get(pages.size() - 1).last;
+        load(nextIndex, startAfter, true);
+    }
+
+    /**
+     * Tải lại trang phía trước cửa sổ đã bị loại khỏi bộ nhớ
+     */
+    public void loadPreviousPage() {
+        if (loading || pages.isEmpty() || pages.get(0).index == 0) {
+            return;
+        }
+
+        int previousIndex = pages.get(0).index - 1;
+        load(previousIndex, startCursors.get(previousIndex), false);
+    }
+
+    private void load(int index, C startAfter, boolean append) {
+        loading = true;
+        isLoading.setValue(true);
+
+        source.loadPage(startAfter, PAGE_SIZE, new PageCallback<C>() {
+            @Override
+            public void onPageLoaded(List<Transaction> pageItems, C last, boolean pageEndReached) {
+                mainExecutor.execute(() -> onPageResult(index, pageItems, last, pageEndReached, append));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                mainExecutor.execute(() -> {
+                    Log.e(TAG, "Error loading page " + index, e);
+                    loading = false;
+                    isLoading.setValue(false);
+                    if (pages.isEmpty()) {
+                        items.setValue(new ArrayList<>());
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPageResult(int index, List<Transaction> pageItems, C last,
+                              boolean pageEndReached, boolean append) {
+        Page<C> page = new Page<>(index, pageItems, last);
+
+        if (append) {
+            pages.add(page);
+            endReached = pageEndReached;
+            // Ghi nhớ con trỏ bắt đầu của trang tiếp theo
+            if (!pageEndReached && startCursors.size() == index + 1) {
+                startCursors.add(last);
+            }
+            // Loại trang đầu khi cửa sổ vượt quá giới hạn
+            if (pages.size() > MAX_PAGES_IN_MEMORY) {
+                pages.remove(0);
+            }
+        } else {
+            pages.add(0, page);
+            // Loại trang cuối, trang này có thể tải lại khi cuộn xuống
+            if (pages.size() > MAX_PAGES_IN_MEMORY) {
+                pages.remove(pages.size() - 1);
+                endReached = false;
+            }
+        }
+
+        loading = false;
+        isLoading.setValue(false);
+        publish();
+
+        // Trang rỗng không kích hoạt cuộn, nên tải tiếp ngay
+        if (append && pageItems.isEmpty() && !endReached) {
+            loadNextPage();
+        }
+    }
+
+    private void publish() {
+        List<Transaction> window = new ArrayList<>();
+        for (Page<C> page : pages) {
+            window.addAll(page.items);
+        }
+        items.setValue(window);
+    }
+}
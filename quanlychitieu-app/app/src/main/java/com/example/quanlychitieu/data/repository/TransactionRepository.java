@@ -17,41 +17,88 @@ import android.util.Log;
 import androidx.core.app.NotificationCompat;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
-import androidx.lifecycle.Observer;
 
 import com.example.quanlychitieu.MainActivity;
 import com.example.quanlychitieu.R;
 import com.example.quanlychitieu.data.CategoryManager;
+import com.example.quanlychitieu.data.local.TransactionLocalStore;
 import com.example.quanlychitieu.data.model.Budget;
+import com.example.quanlychitieu.data.model.BudgetForecast;
+import com.example.quanlychitieu.data.model.CurrentMonthSnapshot;
+import com.example.quanlychitieu.data.model.PeriodTotals;
 import com.example.quanlychitieu.data.model.Transaction;
+import com.example.quanlychitieu.data.model.TransactionColumns;
+import com.example.quanlychitieu.utils.CoalescingExecutor;
+import com.example.quanlychitieu.utils.CurrencyFormatter;
+import com.example.quanlychitieu.utils.PerfMetrics;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 public class TransactionRepository {
     private static final String COLLECTION_USERS = "users";
     private static final String COLLECTION_TRANSACTIONS = "transactions";
     private static final String CHANNEL_ID = "budget_notification_channel";
+    private static final int RECENT_TRANSACTIONS_LIMIT = 3;
+    private static final AggregateField SUM_AMOUNT = AggregateField.sum("amount");
+    private static final AggregateField.CountAggregateField COUNT = AggregateField.count();
 
     private final FirebaseFirestore db;
     private final FirebaseAuth auth;
     private final MutableLiveData<List<Transaction>> transactionsLiveData;
-    private final MutableLiveData<List<Transaction>> currentMonthTransactionsLiveData;
-    private final MutableLiveData<Map<String, Double>> categorySpentAmountsLiveData;
+    private final MutableLiveData<CurrentMonthSnapshot> currentMonthLiveData;
+    private final MutableLiveData<Map<String, Long>> categorySpentAmountsLiveData;
+    private final TransactionLocalStore localStore;
+    private final MonthlySummaryRepository monthlySummaryRepository;
+    private final SnapshotListenerRegistry listenerRegistry;
+    private final PeriodCache periodCache;
+    private final DailyTotalsIndex dailyIndex;
+    private final BudgetEvaluator budgetEvaluator;
+
+    // Listener duy nhất đồng bộ Firestore vào kho cục bộ
+    private ListenerRegistration syncListener;
+    // Listener và bộ tổng hợp gia tăng của giao dịch tháng hiện tại.
+    // Bộ tổng hợp chỉ được dùng trên luồng tính toán nền.
+    private ListenerRegistration currentMonthListener;
+    private SnapshotDebouncer currentMonthDebouncer;
+    private volatile String currentMonthKey;
+    private final TransactionAggregator currentMonthAggregator = new TransactionAggregator();
+    private final CoalescingExecutor currentMonthCompute = new CoalescingExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Số thứ tự ảnh chụp nhận được (main thread) và đã áp dụng (luồng nền)
+    private int receivedSnapshotCount = 0;
+    private int appliedSnapshotCount = 0;
+    private String appliedMonthKey;
+    private boolean initialSyncReceived = false;
 
     private Context context;
 
@@ -68,20 +115,101 @@ public class TransactionRepository {
         db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
         transactionsLiveData = new MutableLiveData<>(new ArrayList<>());
-        currentMonthTransactionsLiveData = new MutableLiveData<>(new ArrayList<>());
+        currentMonthLiveData = new MutableLiveData<>();
         categorySpentAmountsLiveData = new MutableLiveData<>(new HashMap<>());
+        localStore = TransactionLocalStore.getInstance();
+        monthlySummaryRepository = MonthlySummaryRepository.getInstance();
+        listenerRegistry = SnapshotListenerRegistry.getInstance();
+        periodCache = PeriodCache.getInstance();
+        dailyIndex = DailyTotalsIndex.getInstance();
+        budgetEvaluator = BudgetEvaluator.getInstance();
+        budgetEvaluator.setListener(this::onBudgetThresholdCrossed);
+        budgetEvaluator.setForecastListener(this::onBudgetOverrunForecast);
+
+        // Đồng bộ giao dịch của người dùng vào kho cục bộ
+        startLocalSync();
 
         // Tải giao dịch của tháng hiện tại khi khởi tạo
         loadCurrentMonthTransactions();
     }
 
+    /**
+     * Giữ kho cục bộ đồng bộ với Firestore bằng một snapshot listener duy nhất.
+     * Ảnh chụp đầy đủ đầu tiên từ server thay toàn bộ dữ liệu cục bộ,
+     * các ảnh chụp sau chỉ áp dụng những tài liệu đã thay đổi.
+     */
+    private void startLocalSync() {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null || syncListener != null) {
+            return;
+        }
+
+        String userId = currentUser.getUid();
+        Query query = db.collection(COLLECTION_USERS)
+                .document(userId)
+                .collection(COLLECTION_TRANSACTIONS);
+        syncListener = listenerRegistry.subscribe(
+                ListenerKeys.collection(userId, COLLECTION_TRANSACTIONS),
+                query, MetadataChanges.INCLUDE, (value, error) -> {
+                    if (error != null) {
+                        Log.e("TransactionRepo", "Error syncing transactions to local store", error);
+                        return;
+                    }
+
+                    if (value == null) {
+                        return;
+                    }
+
+                    List<DocumentChange> changes = value.getDocumentChanges();
+                    if (initialSyncReceived && changes.isEmpty()) {
+                        // Chỉ đổi hasPendingWrites/isFromCache, dữ liệu cục bộ không thay đổi
+                        PerfMetrics.increment(PerfMetrics.SNAPSHOT_METADATA_ONLY);
+                        return;
+                    }
+
+                    if (!initialSyncReceived && !value.getMetadata().isFromCache()) {
+                        // Ảnh chụp đầy đủ đầu tiên từ server
+                        List<Transaction> transactions = new ArrayList<>();
+                        for (QueryDocumentSnapshot document : value) {
+                            transactions.add(documentToTransaction(document));
+                        }
+                        localStore.replaceAll(userId, transactions);
+                        dailyIndex.replaceAll(userId, transactions);
+                        budgetEvaluator.replaceTransactions(transactions);
+                        // Dữ liệu trong cache theo kỳ có thể đã cũ trước khi có kết nối
+                        periodCache.clear();
+                        initialSyncReceived = true;
+                        return;
+                    }
+
+                    List<Transaction> upserts = new ArrayList<>();
+                    List<String> removedIds = new ArrayList<>();
+                    for (DocumentChange change : changes) {
+                        QueryDocumentSnapshot document = change.getDocument();
+                        periodCache.invalidate(userId, document.getId(), document.getDate("date"),
+                                change.getType() == DocumentChange.Type.MODIFIED);
+
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            removedIds.add(document.getId());
+                        } else {
+                            upserts.add(documentToTransaction(document));
+                        }
+                    }
+
+                    if (!upserts.isEmpty() || !removedIds.isEmpty()) {
+                        localStore.applyChanges(userId, upserts, removedIds);
+                        dailyIndex.applyChanges(userId, upserts, removedIds);
+                        budgetEvaluator.applyChanges(upserts, removedIds);
+                    }
+                });
+    }
+
     /**
      * Lấy giao dịch của tháng hiện tại và tính toán chi tiêu theo danh mục
      */
     private void loadCurrentMonthTransactions() {
         FirebaseUser currentUser = auth.getCurrentUser();
         if (currentUser == null) {
-            currentMonthTransactionsLiveData.setValue(new ArrayList<>());
             categorySpentAmountsLiveData.setValue(new HashMap<>());
             return;
         }
@@ -99,87 +227,104 @@ public class TransactionRepository {
         calendar.add(Calendar.MILLISECOND, -1);
         Date endOfMonth = calendar.getTime();
 
+        // Khóa của dạng truy vấn trong sổ đăng ký listener dùng chung
+        String key = ListenerKeys.query(currentUser.getUid(), COLLECTION_TRANSACTIONS)
+                .where("date", ">=", startOfMonth)
+                .where("date", "<=", endOfMonth)
+                .orderBy("date", Query.Direction.DESCENDING)
+                .build();
+        if (currentMonthListener != null && key.equals(currentMonthKey)) {
+            // Đang nghe đúng truy vấn này
+            return;
+        }
+
+        // Hủy listener cũ để không áp dụng cùng một delta hai lần
+        if (currentMonthListener != null) {
+            currentMonthListener.remove();
+            currentMonthDebouncer.cancel();
+        }
+        currentMonthKey = key;
+        receivedSnapshotCount = 0;
+
         // Truy vấn giao dịch trong tháng hiện tại
-        db.collection(COLLECTION_USERS)
+        Query query = db.collection(COLLECTION_USERS)
                 .document(currentUser.getUid())
                 .collection(COLLECTION_TRANSACTIONS)
                 .whereGreaterThanOrEqualTo("date", startOfMonth)
                 .whereLessThanOrEqualTo("date", endOfMonth)
-                .orderBy("date", Query.Direction.DESCENDING)
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        Log.e("TransactionRepo", "Error loading current month transactions", error);
-                        return;
-                    }
-
-                    if (value != null) {
-                        List<Transaction> transactions = new ArrayList<>();
-                        for (QueryDocumentSnapshot document : value) {
-                            Transaction transaction = documentToTransaction(document);
-                            transactions.add(transaction);
-                        }
+                .orderBy("date", Query.Direction.DESCENDING);
 
-                        // Cập nhật danh sách giao dịch tháng hiện tại
-                        currentMonthTransactionsLiveData.setValue(transactions);
+        // Các ảnh chụp dồn dập (ghi cục bộ rồi server xác nhận) được gộp thành một lượt tổng hợp
+        currentMonthDebouncer = new SnapshotDebouncer((snapshots, error) -> {
+            if (error != null) {
+                Log.e("TransactionRepo", "Error loading current month transactions", error);
+                return;
+            }
 
-                        // Tính toán chi tiêu theo danh mục
-                        calculateCategorySpentAmounts(transactions);
-                    }
-                });
+            // Tổng hợp trên luồng nền; nếu worker đang bận thì chỉ lượt mới nhất được xử lý
+            int firstSequence = receivedSnapshotCount + 1;
+            receivedSnapshotCount += snapshots.size();
+            currentMonthCompute.submit(() ->
+                    aggregateCurrentMonth(key, firstSequence, snapshots, startOfMonth, endOfMonth));
+        });
+        currentMonthListener = listenerRegistry.subscribe(key, query, currentMonthDebouncer);
     }
+
     /**
-     * Tính toán số tiền đã chi tiêu theo từng danh mục
+     * Áp dụng các ảnh chụp của tháng hiện tại vào bộ tổng hợp và phát kết quả (luồng nền)
+     * @param firstSequence Số thứ tự của ảnh chụp đầu tiên trong danh sách
      */
-    private void calculateCategorySpentAmounts(List<Transaction> transactions) {
-        Map<String, Double> spentByCategory = new HashMap<>();
-
-        for (Transaction transaction : transactions) {
-            // Chỉ tính các giao dịch chi tiêu (không phải thu nhập)
-            if (!transaction.isIncome()) {
-                String category = transaction.getCategory();
-                // Đảm bảo amount là số dương cho chi tiêu
-                double amount = Math.abs(transaction.getAmount());
-
-                // Cộng dồn vào tổng của danh mục
-                double currentAmount = spentByCategory.getOrDefault(category, 0.0);
-                spentByCategory.put(category, currentAmount + amount);
-            }
+    private void aggregateCurrentMonth(String key, int firstSequence, List<QuerySnapshot> snapshots,
+                                       Date startOfMonth, Date endOfMonth) {
+        CoalescingExecutor.assertNotMainThread("aggregateCurrentMonth");
+        if (!key.equals(currentMonthKey)) {
+            // Ảnh chụp của listener đã bị thay thế
+            return;
         }
 
-        // Lấy giá trị trước đó
-        Map<String, Double> previousSpentByCategory = categorySpentAmountsLiveData.getValue();
-
-        // Cập nhật LiveData
-        categorySpentAmountsLiveData.setValue(spentByCategory);
-
-        // Kiểm tra thay đổi và cập nhật ngân sách
-        if (previousSpentByCategory != null) {
-            BudgetRepository budgetRepository = BudgetRepository.getInstance();
-
-            for (Map.Entry<String, Double> entry : spentByCategory.entrySet()) {
-                String category = entry.getKey();
-                double newSpentAmount = entry.getValue();
-                double previousSpentAmount = previousSpentByCategory.getOrDefault(category, 0.0);
-
-                // Nếu chi tiêu thay đổi, cập nhật ngân sách
-                if (Math.abs(newSpentAmount - previousSpentAmount) > 0.01) {
-                    Log.d(TAG, "Spent amount changed for " + category +
-                            ": " + previousSpentAmount + " -> " + newSpentAmount);
-                    budgetRepository.updateBudgetSpentAmount(category, newSpentAmount);
-
-                    // Kiểm tra ngân sách sau khi cập nhật chi tiêu
-                    if (context != null && newSpentAmount > previousSpentAmount) {
-                        checkBudgetThresholdAfterTransaction(category);
-                    }
-                }
+        // Listener mới, hoặc đã bỏ qua một lượt khi gộp: các DocumentChange không còn
+        // nối tiếp trạng thái hiện tại nên dựng lại từ ảnh chụp mới nhất
+        boolean rebuild = !key.equals(appliedMonthKey) || firstSequence != appliedSnapshotCount + 1;
+        if (rebuild) {
+            currentMonthAggregator.reset();
+            currentMonthAggregator.applySnapshot(snapshots.get(snapshots.size() - 1), this::documentToTransaction);
+        } else {
+            for (QuerySnapshot snapshot : snapshots) {
+                currentMonthAggregator.applySnapshot(snapshot, this::documentToTransaction);
             }
         }
+        appliedMonthKey = key;
+        appliedSnapshotCount = firstSequence + snapshots.size() - 1;
+
+        // Phát dữ liệu tháng hiện tại kèm các tổng đã tính sẵn
+        currentMonthLiveData.postValue(new CurrentMonthSnapshot(startOfMonth, endOfMonth,
+                currentMonthAggregator.getTransactions(),
+                currentMonthAggregator.getTotalIncome(),
+                currentMonthAggregator.getTotalExpenses(),
+                currentMonthAggregator.getExpenseByCategory(),
+                currentMonthAggregator.getSpentByCategory(),
+                currentMonthAggregator.getFirst(RECENT_TRANSACTIONS_LIMIT)));
+
+        // Chi tiêu của từng ngân sách được tính theo kỳ riêng trong BudgetEvaluator,
+        // từ listener đồng bộ chứ không từ tổng theo tháng này
+        categorySpentAmountsLiveData.postValue(Collections.unmodifiableMap(
+                currentMonthAggregator.getSpentByCategory()));
+    }
+
+    /**
+     * Luồng dữ liệu duy nhất của tháng hiện tại, dùng chung cho Dashboard, Ngân sách và Thống kê.
+     * Tài liệu của tháng chỉ được đọc, chuyển đổi và tổng hợp một lần cho mỗi thay đổi.
+     */
+    public LiveData<CurrentMonthSnapshot> getCurrentMonth() {
+        // Đăng ký lại nếu đã sang tháng mới (không làm gì nếu vẫn là tháng đang nghe)
+        loadCurrentMonthTransactions();
+        return currentMonthLiveData;
     }
 
     /**
      * Lấy số tiền đã chi tiêu theo danh mục
      */
-    public LiveData<Map<String, Double>> getCategorySpentAmounts() {
+    public LiveData<Map<String, Long>> getCategorySpentAmounts() {
         return categorySpentAmountsLiveData;
     }
 
@@ -211,52 +356,48 @@ public class TransactionRepository {
         endCal.set(Calendar.MILLISECOND, 999);
         toDate = endCal.getTime();
 
-        // Query with date range filter
-        Query query = db.collection(COLLECTION_USERS)
-                .document(currentUser.getUid())
-                .collection(COLLECTION_TRANSACTIONS)
-                .whereGreaterThanOrEqualTo("date", fromDate)
-                .whereLessThanOrEqualTo("date", toDate)
-                .orderBy("date", Query.Direction.DESCENDING);
+        TransactionFilter filter = resolveFilter(category, type);
+        if (filter.matchesNothing) {
+            filteredData.setValue(new ArrayList<>());
+            return filteredData;
+        }
 
-        query.get().addOnSuccessListener(queryDocumentSnapshots -> {
-            List<Transaction> transactions = new ArrayList<>();
+        // Kỳ vừa xem được đọc lại từ bộ nhớ
+        String userId = currentUser.getUid();
+        PeriodCache.Slice slice = periodCache.getSlice(userId, fromDate, toDate);
+        if (slice != null) {
+            filteredData.setValue(filter.apply(slice.getTransactions()));
+            return filteredData;
+        }
 
-            for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                Transaction transaction = documentToTransaction(document);
-
-                // Áp dụng bộ lọc loại giao dịch
-                boolean typeMatch = false;
-                if (type.equals("Tất cả giao dịch")) {
-                    if (!category.equals("Tất cả danh mục")) {
-                        // Check if it's a valid category for this transaction's type
-                        if (transaction.isIncome() &&
-                                CategoryManager.getInstance().getIncomeCategories().contains(category)) {
-                            typeMatch = true;
-                        } else if (!transaction.isIncome() &&
-                                CategoryManager.getInstance().getExpenseCategories().contains(category)) {
-                            typeMatch = true;
-                        }
-                    } else {
-                        // No category filter, show all
-                        typeMatch = true;
-                    }
-                } else if (type.equals("Chi tiêu") && !transaction.isIncome()) {
-                    typeMatch = true;
-                } else if (type.equals("Thu nhập") && transaction.isIncome()) {
-                    typeMatch = true;
+        // Chỉ lưu vào cache khi đọc toàn bộ giao dịch của kỳ
+        boolean cacheResult = filter.category == null && filter.isIncome == null;
+        Date startDate = fromDate;
+        Date endDate = toDate;
+
+        // Đọc từ chỉ mục cục bộ khi kho đã được đồng bộ
+        if (localStore.isPrimed(userId)) {
+            localStore.query(userId, fromDate, toDate, filter.category, filter.isIncome, transactions -> {
+                if (cacheResult) {
+                    periodCache.putSlice(userId, startDate, endDate, transactions);
                 }
+                filteredData.postValue(transactions);
+            });
+            return filteredData;
+        }
 
-                // Áp dụng bộ lọc danh mục
-                boolean categoryMatch = category.equals("Tất cả danh mục") ||
-                        transaction.getCategory().equals(category);
+        // Bộ lọc danh mục và loại được đưa vào truy vấn, chỉ đọc các tài liệu khớp
+        Query query = filteredQuery(userId, fromDate, toDate, filter);
 
-                // Chỉ thêm giao dịch nếu thỏa mãn cả hai điều kiện
-                if (typeMatch && categoryMatch) {
-                    transactions.add(transaction);
-                }
+        query.get().addOnSuccessListener(queryDocumentSnapshots -> {
+            List<Transaction> transactions = new ArrayList<>();
+            for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                transactions.add(documentToTransaction(document));
             }
 
+            if (cacheResult && !queryDocumentSnapshots.getMetadata().isFromCache()) {
+                periodCache.putSlice(userId, startDate, endDate, transactions);
+            }
             filteredData.setValue(transactions);
         }).addOnFailureListener(e -> {
             filteredData.setValue(new ArrayList<>());
@@ -265,8 +406,450 @@ public class TransactionRepository {
         return filteredData;
     }
 
+    /**
+     * Tạo bộ phân trang cho lịch sử giao dịch với bộ lọc đã chọn.
+     * Đọc từ kho cục bộ khi đã đồng bộ, nếu không thì phân trang trực tiếp trên Firestore
+     * bằng limit + startAfter(lastDocument).
+     */
+    public TransactionPager<?> createPager(Date fromDate, Date toDate, String category, String type) {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        TransactionFilter filter = resolveFilter(category, type);
+        if (currentUser == null || filter.matchesNothing) {
+            return new TransactionPager<Void>((startAfter, limit, callback) ->
+                    callback.onPageLoaded(new ArrayList<>(), null, true));
+        }
+
+        String userId = currentUser.getUid();
+        Date startDate = startOfDay(fromDate);
+        Date endDate = endOfDay(toDate);
+
+        // Kỳ đã có trong cache: phân trang ngay trên danh sách trong bộ nhớ, con trỏ là vị trí
+        PeriodCache.Slice slice = periodCache.getSlice(userId, startDate, endDate);
+        if (slice != null) {
+            List<Transaction> transactions = filter.apply(slice.getTransactions());
+            return new TransactionPager<Integer>((startAfter, limit, callback) -> {
+                int from = startAfter != null ? startAfter : 0;
+                int to = Math.min(from + limit, transactions.size());
+                callback.onPageLoaded(new ArrayList<>(transactions.subList(from, to)), to,
+                        to >= transactions.size());
+            });
+        }
+
+        if (localStore.isPrimed(userId)) {
+            return new TransactionPager<TransactionLocalStore.PageCursor>((startAfter, limit, callback) ->
+                    localStore.queryPage(userId, startDate, endDate, filter.category, filter.isIncome,
+                            startAfter, limit, items -> {
+                                TransactionLocalStore.PageCursor last = items.isEmpty() ? startAfter
+                                        : new TransactionLocalStore.PageCursor(items.get(items.size() - 1));
+                                callback.onPageLoaded(items, last, items.size() < limit);
+                            }));
+        }
+
+        Query baseQuery = filteredQuery(userId, startDate, endDate, filter);
+
+        return new TransactionPager<DocumentSnapshot>((startAfter, limit, callback) -> {
+            Query pageQuery = startAfter != null ? baseQuery.startAfter(startAfter) : baseQuery;
+            pageQuery.limit(limit)
+                    .get()
+                    .addOnSuccessListener(queryDocumentSnapshots -> {
+                        List<Transaction> items = new ArrayList<>();
+                        for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                            items.add(documentToTransaction(document));
+                        }
+
+                        List<DocumentSnapshot> documents = queryDocumentSnapshots.getDocuments();
+                        DocumentSnapshot last = documents.isEmpty() ? startAfter
+                                : documents.get(documents.size() - 1);
+                        callback.onPageLoaded(items, last, documents.size() < limit);
+                    })
+                    .addOnFailureListener(callback::onError);
+        });
+    }
+
+    /**
+     * Truy vấn giao dịch trong khoảng ngày với bộ lọc danh mục/loại dưới dạng mệnh đề where.
+     * Các chỉ mục kết hợp cần thiết được khai báo trong firestore.indexes.json.
+     */
+    private Query filteredQuery(String userId, Date fromDate, Date toDate, TransactionFilter filter) {
+        Query query = db.collection(COLLECTION_USERS)
+                .document(userId)
+                .collection(COLLECTION_TRANSACTIONS);
+
+        if (filter.category != null) {
+            query = query.whereEqualTo("category", filter.category);
+        }
+        if (filter.isIncome != null) {
+            query = query.whereEqualTo("isIncome", filter.isIncome);
+        }
+
+        return query.whereGreaterThanOrEqualTo("date", fromDate)
+                .whereLessThanOrEqualTo("date", toDate)
+                .orderBy("date", Query.Direction.DESCENDING);
+    }
+
+    /**
+     * Chỉ mục theo ngày đã sẵn sàng: tổng của mọi khoảng trọn ngày có ngay, không cần
+     * tải giao dịch của khoảng
+     */
+    public boolean hasDailyIndex() {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        return currentUser != null && dailyIndex.isReady(currentUser.getUid());
+    }
+
+    /**
+     * Tính tổng thu/chi và chi theo danh mục của một khoảng thời gian
+     */
+    public LiveData<PeriodTotals> getPeriodTotals(Date fromDate, Date toDate) {
+        MutableLiveData<PeriodTotals> result = new MutableLiveData<>();
+        List<PeriodTotals> buckets = new ArrayList<>();
+        buckets.add(new PeriodTotals(startOfDay(fromDate), endOfDay(toDate)));
+        computePeriodTotals(buckets, true, totals -> result.postValue(totals.get(0)));
+        return result;
+    }
+
+    /**
+     * Tính tổng thu/chi cho từng khoảng liền nhau (ví dụ từng tháng trong năm).
+     * Khoảng thứ i bắt đầu tại bucketStarts[i] và kết thúc ngay trước khoảng kế tiếp,
+     * khoảng cuối kết thúc tại toDate.
+     */
+    public LiveData<List<PeriodTotals>> getPeriodTotals(List<Date> bucketStarts, Date toDate) {
+        MutableLiveData<List<PeriodTotals>> result = new MutableLiveData<>();
+        computePeriodTotals(toBuckets(bucketStarts, toDate), false, result::postValue);
+        return result;
+    }
+
+    // Mỗi khoảng kết thúc ngay trước mốc bắt đầu của khoảng kế tiếp
+    private List<PeriodTotals> toBuckets(List<Date> bucketStarts, Date toDate) {
+        List<PeriodTotals> buckets = new ArrayList<>();
+        for (int i = 0; i < bucketStarts.size(); i++) {
+            Date end = i + 1 < bucketStarts.size()
+                    ? new Date(bucketStarts.get(i + 1).getTime() - 1)
+                    : endOfDay(toDate);
+            buckets.add(new PeriodTotals(bucketStarts.get(i), end));
+        }
+        return buckets;
+    }
+
+    /**
+     * Tải trước một kỳ vào PeriodCache mà không phát LiveData, có thể gọi từ luồng nền
+     * @param bucketStarts Mốc các khoảng tháng/năm khi kỳ được đọc qua truy vấn tổng hợp,
+     *                     null nếu kỳ được đọc theo từng giao dịch
+     * @param executor Luồng xử lý kết quả truy vấn Firestore (không phải main thread)
+     * @param onDone Được gọi khi kết thúc (kể cả khi lỗi)
+     */
+    public void prefetchPeriod(Date fromDate, Date toDate, List<Date> bucketStarts,
+                               Executor executor, Runnable onDone) {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null) {
+            onDone.run();
+            return;
+        }
+
+        String userId = currentUser.getUid();
+        Date startDate = startOfDay(fromDate);
+        Date endDate = endOfDay(toDate);
+
+        if (bucketStarts != null) {
+            List<PeriodTotals> total = new ArrayList<>();
+            total.add(new PeriodTotals(startDate, endDate));
+            // Kết quả truy vấn tổng hợp được giao trên main thread, chuyển tiếp về executor của lượt tải trước
+            computePeriodTotals(total, true, totals -> dispatch(executor, () ->
+                    computePeriodTotals(toBuckets(bucketStarts, toDate), false,
+                            buckets -> dispatch(executor, onDone))));
+            return;
+        }
+
+        if (periodCache.getSlice(userId, startDate, endDate) != null) {
+            onDone.run();
+            return;
+        }
+
+        if (localStore.isPrimed(userId)) {
+            localStore.query(userId, startDate, endDate, null, null, transactions -> {
+                // Tính sẵn tổng của kỳ ngay trên luồng nền
+                periodCache.putSlice(userId, startDate, endDate, transactions).getTotals();
+                onDone.run();
+            });
+            return;
+        }
+
+        filteredQuery(userId, startDate, endDate, new TransactionFilter())
+                .get()
+                .addOnSuccessListener(executor, queryDocumentSnapshots -> {
+                    if (!queryDocumentSnapshots.getMetadata().isFromCache()) {
+                        List<Transaction> transactions = new ArrayList<>();
+                        for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                            transactions.add(documentToTransaction(document));
+                        }
+                        periodCache.putSlice(userId, startDate, endDate, transactions).getTotals();
+                    }
+                    onDone.run();
+                })
+                .addOnFailureListener(executor, e -> {
+                    Log.w(TAG, "Prefetch failed for " + startDate + " - " + endDate, e);
+                    onDone.run();
+                });
+    }
+
+    // Chạy trên executor của lượt tải trước; bỏ qua nếu executor đã bị tắt (lượt tải trước bị hủy)
+    private void dispatch(Executor executor, Runnable runnable) {
+        try {
+            executor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            // PeriodPrefetcher đã dừng, không còn ai chờ kết quả
+        }
+    }
+
+    private interface TotalsCallback {
+        void onTotalsLoaded(List<PeriodTotals> buckets);
+    }
+
+    /**
+     * Lấy từ chỉ mục theo ngày nếu đã sẵn sàng, nếu không thì đọc các tầng tổng hợp của kho
+     * cục bộ nếu đã đồng bộ (không tốn lượt đọc). Nếu chưa, gửi song song các
+     * truy vấn tổng hợp SUM/COUNT lên server theo loại và theo danh mục, và chỉ tải tài liệu
+     * từ bộ nhớ đệm để cộng phía client khi không có mạng.
+     */
+    private void computePeriodTotals(List<PeriodTotals> buckets, boolean withCategories,
+                                     TotalsCallback callback) {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null || buckets.isEmpty()) {
+            callback.onTotalsLoaded(buckets);
+            return;
+        }
+
+        String userId = currentUser.getUid();
+        Date fromDate = buckets.get(0).getStartDate();
+        Date toDate = buckets.get(buckets.size() - 1).getEndDate();
+
+        // Chỉ mục theo ngày trả lời mọi khoảng trọn ngày mà không đọc giao dịch nào
+        if (dailyIndex.fill(userId, buckets, withCategories)) {
+            callback.onTotalsLoaded(buckets);
+            return;
+        }
+
+        // Tổng của kỳ vừa xem được lấy từ cache
+        PeriodCache.Slice slice = buckets.size() == 1 ? periodCache.getSlice(userId, fromDate, toDate) : null;
+        if (slice != null) {
+            List<PeriodTotals> totals = new ArrayList<>();
+            totals.add(slice.getTotals());
+            callback.onTotalsLoaded(totals);
+            return;
+        }
+        List<PeriodTotals> cachedBuckets = periodCache.getBuckets(userId, buckets, withCategories);
+        if (cachedBuckets != null) {
+            callback.onTotalsLoaded(cachedBuckets);
+            return;
+        }
+
+        // Lưu kết quả vào cache trước khi trả về
+        TotalsCallback cachingCallback = result -> {
+            periodCache.putBuckets(userId, result, withCategories);
+            callback.onTotalsLoaded(result);
+        };
+
+        if (localStore.isPrimed(userId)) {
+            // Đọc từ tầng tổng hợp cục bộ thô nhất phù hợp (năm, tháng, tuần hoặc ngày)
+            localStore.queryTotals(userId, buckets, withCategories, cachingCallback::onTotalsLoaded);
+            return;
+        }
+
+        List<String> categories = withCategories
+                ? CategoryManager.getInstance().getExpenseCategories()
+                : new ArrayList<>();
+
+        // Giao dịch đóng góp mục tiêu trong khoảng được trừ khỏi các tổng phía client, vì lọc
+        // isGoalContribution == false trên server sẽ bỏ sót các tài liệu cũ không có trường này
+        Task<QuerySnapshot> goalContributionsTask = transactionsInRange(userId, fromDate, toDate)
+                .whereEqualTo("isGoalContribution", true)
+                .get();
+
+        // Thứ tự task: với mỗi khoảng gồm thu nhập, chi tiêu, rồi từng danh mục chi tiêu
+        List<Task<AggregateQuerySnapshot>> tasks = new ArrayList<>();
+        for (PeriodTotals bucket : buckets) {
+            Query periodQuery = periodTotalsQuery(userId, bucket);
+            tasks.add(periodQuery.whereEqualTo("isIncome", true)
+                    .aggregate(SUM_AMOUNT, COUNT)
+                    .get(AggregateSource.SERVER));
+            tasks.add(periodQuery.whereEqualTo("isIncome", false)
+                    .aggregate(SUM_AMOUNT, COUNT)
+                    .get(AggregateSource.SERVER));
+            for (String category : categories) {
+                tasks.add(periodQuery.whereEqualTo("isIncome", false)
+                        .whereEqualTo("category", category)
+                        .aggregate(SUM_AMOUNT)
+                        .get(AggregateSource.SERVER));
+            }
+        }
+
+        List<Task<?>> allTasks = new ArrayList<>(tasks);
+        allTasks.add(goalContributionsTask);
+        Tasks.whenAll(allTasks)
+                .addOnSuccessListener(aVoid -> {
+                    List<Transaction> goalContributions = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : goalContributionsTask.getResult()) {
+                        goalContributions.add(documentToTransaction(document));
+                    }
+
+                    int index = 0;
+                    for (PeriodTotals bucket : buckets) {
+                        // Phần đóng góp mục tiêu nằm trong khoảng này
+                        long goalIncome = 0;
+                        long goalExpense = 0;
+                        long goalCount = 0;
+                        Map<String, Long> goalByCategory = new HashMap<>();
+                        for (Transaction contribution : goalContributions) {
+                            if (contribution.getDate() == null || !bucket.contains(contribution.getDate())) {
+                                continue;
+                            }
+                            long amount = Math.abs(contribution.getAmount());
+                            goalCount++;
+                            if (contribution.isIncome()) {
+                                goalIncome += amount;
+                            } else {
+                                goalExpense += amount;
+                                goalByCategory.merge(contribution.getCategory(), amount, Long::sum);
+                            }
+                        }
+
+                        AggregateQuerySnapshot incomeSnapshot = tasks.get(index++).getResult();
+                        AggregateQuerySnapshot expenseSnapshot = tasks.get(index++).getResult();
+                        // Chi tiêu lưu dưới dạng số âm
+                        bucket.setIncome(Math.abs(aggregateSum(incomeSnapshot)) - goalIncome);
+                        bucket.setExpense(Math.abs(aggregateSum(expenseSnapshot)) - goalExpense);
+                        bucket.setTransactionCount(incomeSnapshot.get(COUNT) + expenseSnapshot.get(COUNT) - goalCount);
+
+                        long categorizedExpense = 0;
+                        for (String category : categories) {
+                            long spent = Math.abs(aggregateSum(tasks.get(index++).getResult()))
+                                    - goalByCategory.getOrDefault(category, 0L);
+                            if (spent > 0) {
+                                bucket.addCategoryExpense(category, spent);
+                                categorizedExpense += spent;
+                            }
+                        }
+
+                        // Phần chi của các danh mục đã bị xóa được gộp vào "Khác"
+                        long uncategorized = bucket.getExpense() - categorizedExpense;
+                        if (withCategories && uncategorized > 0) {
+                            bucket.addCategoryExpense("Khác", uncategorized);
+                        }
+                    }
+                    cachingCallback.onTotalsLoaded(buckets);
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Aggregate query failed, summing cached transactions", e);
+                    loadCachedTransactions(userId, fromDate, toDate, transactions -> {
+                        TransactionColumns.of(transactions).addToBuckets(buckets);
+                        callback.onTotalsLoaded(buckets);
+                    });
+                });
+    }
+
+    private Query periodTotalsQuery(String userId, PeriodTotals bucket) {
+        return transactionsInRange(userId, bucket.getStartDate(), bucket.getEndDate());
+    }
+
+    private Query transactionsInRange(String userId, Date fromDate, Date toDate) {
+        return db.collection(COLLECTION_USERS)
+                .document(userId)
+                .collection(COLLECTION_TRANSACTIONS)
+                .whereGreaterThanOrEqualTo("date", fromDate)
+                .whereLessThanOrEqualTo("date", toDate);
+    }
+
+    // Firestore trả về Long hoặc Double tùy giá trị của tổng
+    private long aggregateSum(AggregateQuerySnapshot snapshot) {
+        return CurrencyFormatter.toAmount(snapshot.get(SUM_AMOUNT));
+    }
+
+    // Đọc giao dịch trong khoảng từ bộ nhớ đệm Firestore khi không có mạng
+    private void loadCachedTransactions(String userId, Date fromDate, Date toDate,
+                                        TransactionLocalStore.Callback<List<Transaction>> callback) {
+        db.collection(COLLECTION_USERS)
+                .document(userId)
+                .collection(COLLECTION_TRANSACTIONS)
+                .whereGreaterThanOrEqualTo("date", fromDate)
+                .whereLessThanOrEqualTo("date", toDate)
+                .get(Source.CACHE)
+                .addOnSuccessListener(queryDocumentSnapshots -> {
+                    List<Transaction> transactions = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                        transactions.add(documentToTransaction(document));
+                    }
+                    callback.onResult(transactions);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error loading cached transactions", e);
+                    callback.onResult(new ArrayList<>());
+                });
+    }
+
+    private Date startOfDay(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+
+    private Date endOfDay(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 23);
+        calendar.set(Calendar.MINUTE, 59);
+        calendar.set(Calendar.SECOND, 59);
+        calendar.set(Calendar.MILLISECOND, 999);
+        return calendar.getTime();
+    }
+
+    // Bộ lọc đã được phân giải từ lựa chọn trên giao diện
+    private static class TransactionFilter {
+        String category;        // null nếu không lọc theo danh mục
+        Boolean isIncome;       // null nếu không lọc theo loại giao dịch
+        boolean matchesNothing; // danh mục không thuộc loại nào
+
+        // Lọc trong bộ nhớ, dùng khi đọc từ cache theo kỳ (so sánh id danh mục thay vì chuỗi)
+        List<Transaction> apply(List<Transaction> transactions) {
+            int categoryId = category != null ? CategoryManager.getInstance().getCategoryId(category) : -1;
+            List<Transaction> result = new ArrayList<>();
+            for (Transaction transaction : transactions) {
+                if ((categoryId < 0 || categoryId == transaction.getCategoryId())
+                        && (isIncome == null || isIncome == transaction.isIncome())) {
+                    result.add(transaction);
+                }
+            }
+            return result;
+        }
+    }
 
+    private TransactionFilter resolveFilter(String category, String type) {
+        TransactionFilter filter = new TransactionFilter();
+        if (!category.equals("Tất cả danh mục")) {
+            filter.category = category;
+        }
 
+        if (type.equals("Chi tiêu")) {
+            filter.isIncome = false;
+        } else if (type.equals("Thu nhập")) {
+            filter.isIncome = true;
+        } else if (filter.category != null) {
+            // Chỉ giữ loại giao dịch phù hợp với danh mục đã chọn
+            CategoryManager categoryManager = CategoryManager.getInstance();
+            boolean isIncomeCategory = categoryManager.isIncomeCategory(category);
+            boolean isExpenseCategory = categoryManager.isExpenseCategory(category);
+            if (isIncomeCategory && !isExpenseCategory) {
+                filter.isIncome = true;
+            } else if (isExpenseCategory && !isIncomeCategory) {
+                filter.isIncome = false;
+            } else if (!isIncomeCategory) {
+                filter.matchesNothing = true;
+            }
+        }
+        return filter;
+    }
 
     private void loadTransactions() {
         FirebaseUser currentUser = auth.getCurrentUser();
@@ -275,6 +858,11 @@ public class TransactionRepository {
             return;
         }
 
+        if (localStore.isPrimed(currentUser.getUid())) {
+            localStore.getAll(currentUser.getUid(), transactionsLiveData::postValue);
+            return;
+        }
+
         db.collection(COLLECTION_USERS)
                 .document(currentUser.getUid())
                 .collection(COLLECTION_TRANSACTIONS)
@@ -308,12 +896,29 @@ public class TransactionRepository {
             }
         }
 
-        // Nếu không tìm thấy, mới truy vấn Firestore
         FirebaseUser currentUser = auth.getCurrentUser();
         if (currentUser == null) return transactionLiveData;
 
+        // Tìm trong kho cục bộ trước, chỉ truy vấn Firestore khi không có
+        if (localStore.isPrimed(currentUser.getUid())) {
+            localStore.getById(transactionId, transaction -> {
+                if (transaction != null) {
+                    transactionLiveData.postValue(transaction);
+                } else {
+                    fetchTransactionById(currentUser.getUid(), transactionId, transactionLiveData);
+                }
+            });
+            return transactionLiveData;
+        }
+
+        fetchTransactionById(currentUser.getUid(), transactionId, transactionLiveData);
+        return transactionLiveData;
+    }
+
+    private void fetchTransactionById(String userId, String transactionId,
+                                      MutableLiveData<Transaction> transactionLiveData) {
         db.collection(COLLECTION_USERS)
-                .document(currentUser.getUid())
+                .document(userId)
                 .collection(COLLECTION_TRANSACTIONS)
                 .document(transactionId)
                 .get()
@@ -322,8 +927,6 @@ public class TransactionRepository {
                         transactionLiveData.setValue(documentSnapshotToTransaction(documentSnapshot));
                     }
                 });
-
-        return transactionLiveData;
     }
 
 
@@ -332,7 +935,7 @@ public class TransactionRepository {
         if (currentUser == null) {
             return;
         }
-        double amount = transaction.getAmount();
+        long amount = transaction.getAmount();
         if (!transaction.isIncome() && amount > 0) {
             // Nếu là chi tiêu nhưng số tiền là dương, chuyển thành số âm
             transaction.setAmount(-amount);
@@ -344,23 +947,22 @@ public class TransactionRepository {
         // Convert transaction to Map
         Map<String, Object> transactionMap = transactionToMap(transaction);
 
-        // Add to Firestore
-        db.collection(COLLECTION_USERS)
+        // Tạo ID tài liệu trước để ghi xuyên vào kho cục bộ
+        DocumentReference documentReference = db.collection(COLLECTION_USERS)
                 .document(currentUser.getUid())
                 .collection(COLLECTION_TRANSACTIONS)
-                .add(transactionMap)
-                .addOnSuccessListener(documentReference -> {
-                    transaction.setFirebaseId(documentReference.getId());
+                .document();
+        transaction.setFirebaseId(documentReference.getId());
+        localStore.upsert(currentUser.getUid(), transaction);
+        dailyIndex.upsert(currentUser.getUid(), transaction);
+        budgetEvaluator.upsert(transaction);
+
+        // Add to Firestore, cùng batch với tài liệu tổng hợp tháng
+        commitWithSummary(currentUser.getUid(), documentReference, transactionMap, null, transaction)
+                .addOnSuccessListener(aVoid -> {
                     loadTransactions(); // Cập nhật danh sách sau khi thêm
 
-                    // Cập nhật giao dịch tháng hiện tại nếu giao dịch thuộc tháng hiện tại
-                    if (isCurrentMonth(transaction.getDate())) {
-                        loadCurrentMonthTransactions();
-                    }
-                    // Kiểm tra ngân sách nếu là chi tiêu
-                    if (!transaction.isIncome()) {
-                        checkBudgetThresholdAfterTransaction(transaction.getCategory());
-                    }
+                    // Giao dịch tháng hiện tại tự cập nhật qua delta của listener đang mở
                 });
     }
 
@@ -370,106 +972,108 @@ public class TransactionRepository {
         Log.d(TAG, "Context set for TransactionRepository");
     }
 
-    private void checkBudgetThresholdAfterTransaction(String category) {
-        // Kiểm tra xem context đã được đặt chưa
+    // Gửi thông báo khi BudgetEvaluator báo chi tiêu của một danh mục vừa vượt ngưỡng (main thread)
+    private void onBudgetThresholdCrossed(Budget budget) {
         if (context == null) {
             return;
         }
+        sendBudgetNotification(budget);
+    }
 
-        // Sử dụng Handler để chạy trên main thread
-        new Handler(Looper.getMainLooper()).post(() -> {
-            // Lấy ngân sách cho danh mục này
-            BudgetRepository budgetRepository = BudgetRepository.getInstance();
-            budgetRepository.getBudgetByCategory(category).observeForever(new Observer<Budget>() {
-                @Override
-                public void onChanged(Budget budget) {
-                    // Hủy đăng ký observer sau khi nhận dữ liệu
-                    budgetRepository.getBudgetByCategory(category).removeObserver(this);
-
-                    if (budget != null) {
-                        // Kiểm tra xem thông báo có được bật cho ngân sách này không
-                        if (!budget.isNotificationsEnabled()) {
-                            return;
-                        }
 
-                        // Kiểm tra xem đã đạt ngưỡng thông báo chưa
-                        int progressPercentage = budget.getProgressPercentage();
-                        if (progressPercentage >= budget.getNotificationThreshold()) {
-                            // Gửi thông báo ngay lập tức
-                            sendBudgetNotification(budget);
-                        } else {
-                            Log.d(TAG, "Budget threshold not reached for " + category +
-                                    ": " + progressPercentage + "% < " +
-                                    budget.getNotificationThreshold() + "%");
-                        }
-                    } else {
-                        Log.d(TAG, "No budget found for category: " + category);
-                    }
-                }
-            });
-        });
+    // Gửi cảnh báo khi BudgetEvaluator dự kiến ngân sách sẽ vượt trước khi hết kỳ (main thread)
+    private void onBudgetOverrunForecast(Budget budget, BudgetForecast forecast) {
+        if (context == null) {
+            return;
+        }
+        sendBudgetForecastNotification(budget, forecast);
     }
 
-
     // Phương thức gửi thông báo ngân sách
     private void sendBudgetNotification(Budget budget) {
         try {
-            // Tạo kênh thông báo nếu cần
-            createNotificationChannelIfNeeded();
-
-            // Tạo intent để mở ứng dụng khi nhấn vào thông báo
-            Intent intent = new Intent(context, MainActivity.class);
-            intent.setAction(Intent.ACTION_MAIN);
-            intent.addCategory(Intent.CATEGORY_LAUNCHER);
-            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-
-            PendingIntent pendingIntent = PendingIntent.getActivity(
-                    context,
-                    0,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-
-            // Format số tiền
-            NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
-            String formattedAmount = currencyFormat.format(budget.getAmount())
-                    .replace("₫", "đ")
-                    .replace(",", ".");
-            String formattedSpent = currencyFormat.format(budget.getSpent())
-                    .replace("₫", "đ")
-                    .replace(",", ".");
-
-            // Tạo thông báo với các cài đặt để hiển thị dạng heads-up
-            NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
-                    .setSmallIcon(R.drawable.ic_notification)
-                    .setContentTitle("Cảnh báo ngân sách")
-                    .setContentText("Bạn đã chi tiêu " + budget.getProgressPercentage() + "% ngân sách " + budget.getCategory())
-                    .setStyle(new NotificationCompat.BigTextStyle()
-                            .bigText("Bạn đã chi tiêu " + formattedSpent + " trên tổng ngân sách " +
-                                    formattedAmount + " cho danh mục " + budget.getCategory() +
-                                    " (" + budget.getProgressPercentage() + "%)"))
-                    .setPriority(NotificationCompat.PRIORITY_HIGH) // Đặt độ ưu tiên cao
-                    .setVisibility(NotificationCompat.VISIBILITY_PUBLIC) // Hiển thị nội dung trên màn hình khóa
-                    .setAutoCancel(true)
-                    .setContentIntent(pendingIntent)
-                    .setVibrate(new long[]{0, 250, 250, 250}) // Thêm rung
-                    .setLights(Color.RED, 1000, 500); // Thêm đèn LED nháy màu đỏ
-
-            // Hiển thị thông báo
-            NotificationManager notificationManager =
-                    (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-            if (notificationManager != null) {
-                // Mỗi danh mục sẽ có ID thông báo riêng để tránh ghi đè
-                int notificationId = budget.getCategory().hashCode();
-                notificationManager.notify(notificationId, builder.build());
-            } else {
-                Log.e(TAG, "NotificationManager is null, couldn't send notification");
-            }
+            String formattedAmount = formatNotificationAmount(budget.getAmount());
+            String formattedSpent = formatNotificationAmount(budget.getSpent());
+
+            // Mỗi danh mục sẽ có ID thông báo riêng để tránh ghi đè
+            showBudgetNotification(budget.getCategory().hashCode(),
+                    "Cảnh báo ngân sách",
+                    "Bạn đã chi tiêu " + budget.getProgressPercentage() + "% ngân sách " + budget.getCategory(),
+                    "Bạn đã chi tiêu " + formattedSpent + " trên tổng ngân sách " +
+                            formattedAmount + " cho danh mục " + budget.getCategory() +
+                            " (" + budget.getProgressPercentage() + "%)");
         } catch (Exception e) {
             Log.e(TAG, "Error sending notification for budget: " + budget.getCategory(), e);
         }
     }
 
+    // Cảnh báo sớm: theo tốc độ chi hiện tại, ngân sách sẽ vượt trước khi hết kỳ
+    private void sendBudgetForecastNotification(Budget budget, BudgetForecast forecast) {
+        try {
+            String overrunDate = new SimpleDateFormat("dd/MM", Locale.getDefault())
+                    .format(forecast.getExpectedOverrunDate());
+            String formattedAmount = formatNotificationAmount(budget.getAmount());
+            String formattedProjection = formatNotificationAmount(forecast.getWeightedProjection());
+
+            // ID riêng để không ghi đè thông báo vượt ngưỡng của cùng danh mục
+            showBudgetNotification(("forecast:" + budget.getCategory()).hashCode(),
+                    "Dự kiến vượt ngân sách",
+                    "Ngân sách " + budget.getCategory() + " có thể vượt vào ngày " + overrunDate,
+                    "Với tốc độ chi gần đây, bạn sẽ chi khoảng " + formattedProjection +
+                            " cho danh mục " + budget.getCategory() + " đến cuối kỳ, vượt ngân sách " +
+                            formattedAmount + " từ ngày " + overrunDate + ".");
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending forecast notification for budget: " + budget.getCategory(), e);
+        }
+    }
+
+    private String formatNotificationAmount(long amount) {
+        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
+        return currencyFormat.format(amount)
+                .replace("₫", "đ")
+                .replace(",", ".");
+    }
+
+    private void showBudgetNotification(int notificationId, String title, String text, String bigText) {
+        // Tạo kênh thông báo nếu cần
+        createNotificationChannelIfNeeded();
+
+        // Tạo intent để mở ứng dụng khi nhấn vào thông báo
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.setAction(Intent.ACTION_MAIN);
+        intent.addCategory(Intent.CATEGORY_LAUNCHER);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                context,
+                0,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        // Tạo thông báo với các cài đặt để hiển thị dạng heads-up
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_notification)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(bigText))
+                .setPriority(NotificationCompat.PRIORITY_HIGH) // Đặt độ ưu tiên cao
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC) // Hiển thị nội dung trên màn hình khóa
+                .setAutoCancel(true)
+                .setContentIntent(pendingIntent)
+                .setVibrate(new long[]{0, 250, 250, 250}) // Thêm rung
+                .setLights(Color.RED, 1000, 500); // Thêm đèn LED nháy màu đỏ
+
+        // Hiển thị thông báo
+        NotificationManager notificationManager =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (notificationManager != null) {
+            notificationManager.notify(notificationId, builder.build());
+        } else {
+            Log.e(TAG, "NotificationManager is null, couldn't send notification");
+        }
+    }
+
 
     // Tạo kênh thông báo nếu cần
     private void createNotificationChannelIfNeeded() {
@@ -504,54 +1108,51 @@ public class TransactionRepository {
         FirebaseUser currentUser = auth.getCurrentUser();
         if (currentUser == null) return;
 
-        double amount = transaction.getAmount();
+        long amount = transaction.getAmount();
         transaction.setAmount(transaction.isIncome() ? Math.abs(amount) : -Math.abs(amount));
 
         Map<String, Object> transactionMap = transactionToMap(transaction);
 
-        db.collection(COLLECTION_USERS)
+        DocumentReference documentReference = db.collection(COLLECTION_USERS)
                 .document(currentUser.getUid())
                 .collection(COLLECTION_TRANSACTIONS)
-                .document(transaction.getFirebaseId())
-                .set(transactionMap)
+                .document(transaction.getFirebaseId());
+
+        // Đọc giá trị cũ trước khi ghi xuyên đè lên nó
+        Task<Transaction> previousValue = readPreviousValue(currentUser.getUid(), documentReference);
+
+        // Ghi xuyên vào kho cục bộ
+        localStore.upsert(currentUser.getUid(), transaction);
+        dailyIndex.upsert(currentUser.getUid(), transaction);
+        budgetEvaluator.upsert(transaction);
+
+        commitWithPreviousValue(currentUser.getUid(), documentReference, transactionMap, previousValue, transaction)
                 .addOnSuccessListener(aVoid -> {
                     loadTransactions();
 
-                    // Cập nhật giao dịch tháng hiện tại nếu giao dịch thuộc tháng hiện tại
-                    if (isCurrentMonth(transaction.getDate())) {
-                        loadCurrentMonthTransactions();
-                    }
-                    if (!transaction.isIncome()) {
-                        checkBudgetThresholdAfterTransaction(transaction.getCategory());
-                    }
-                });
+                    // Giao dịch tháng hiện tại tự cập nhật qua delta của listener đang mở
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error updating transaction", e));
     }
 
     public Task<Void> deleteTransaction(String transactionId) {
         FirebaseUser currentUser = auth.getCurrentUser();
         if (currentUser == null) return Tasks.forException(new Exception("User not logged in"));
 
-        // Trước khi xóa, kiểm tra xem giao dịch có thuộc tháng hiện tại không
-        boolean isCurrentMonthTransaction = false;
-        Transaction transactionToDelete = null;
-        List<Transaction> currentTransactions = transactionsLiveData.getValue();
-        if (currentTransactions != null) {
-            for (Transaction t : currentTransactions) {
-                if (t.getFirebaseId().equals(transactionId)) {
-                    transactionToDelete = t;
-                    break;
-                }
-            }
-        }
-        final Transaction finalTransactionToDelete = transactionToDelete;
-
-        final boolean needsCurrentMonthUpdate = isCurrentMonthTransaction;
-
-        return db.collection(COLLECTION_USERS)
+        DocumentReference documentReference = db.collection(COLLECTION_USERS)
                 .document(currentUser.getUid())
                 .collection(COLLECTION_TRANSACTIONS)
-                .document(transactionId)
-                .delete()
+                .document(transactionId);
+
+        // Đọc giá trị cũ trước khi ghi xuyên xóa nó
+        Task<Transaction> previousValue = readPreviousValue(currentUser.getUid(), documentReference);
+
+        // Ghi xuyên vào kho cục bộ
+        localStore.delete(transactionId);
+        dailyIndex.remove(currentUser.getUid(), transactionId);
+        budgetEvaluator.remove(transactionId);
+
+        return commitWithPreviousValue(currentUser.getUid(), documentReference, null, previousValue, null)
                 .addOnSuccessListener(aVoid -> {
                     // Update the local cache
                     List<Transaction> currentList = transactionsLiveData.getValue();
@@ -561,29 +1162,61 @@ public class TransactionRepository {
                         transactionsLiveData.setValue(updatedList);
                     }
 
-                    // Cập nhật giao dịch tháng hiện tại nếu cần
-                    if (needsCurrentMonthUpdate) {
-                        loadCurrentMonthTransactions();
-                        if (finalTransactionToDelete != null && !finalTransactionToDelete.isIncome()) {
-                            checkBudgetThresholdAfterTransaction(finalTransactionToDelete.getCategory());
-                        }
-                    }
-
+                    // Giao dịch tháng hiện tại tự cập nhật qua delta của listener đang mở
                 });
     }
 
     /**
-     * Kiểm tra xem một ngày có thuộc tháng hiện tại không
+     * Giá trị hiện tại của giao dịch, dùng để trừ phần đóng góp cũ khỏi tài liệu tổng hợp.
+     * Đọc từ kho cục bộ khi đã đồng bộ: lệnh đọc được xếp trên luồng đĩa trước lượt ghi xuyên
+     * nên luôn thấy bản trước khi sửa, và không cần mạng. Nếu chưa đồng bộ thì đọc tài liệu
+     * (Firestore trả từ bộ đệm khi ngoại tuyến).
      */
-    private boolean isCurrentMonth(Date date) {
-        if (date == null) return false;
+    private Task<Transaction> readPreviousValue(String userId, DocumentReference documentReference) {
+        if (localStore.isPrimed(userId)) {
+            TaskCompletionSource<Transaction> previousValue = new TaskCompletionSource<>();
+            localStore.getById(documentReference.getId(), previousValue::setResult);
+            return previousValue.getTask();
+        }
+        return documentReference.get().continueWith(task -> {
+            if (!task.isSuccessful()) {
+                Log.w(TAG, "Could not read previous value of " + documentReference.getId()
+                        + ", monthly summary may drift", task.getException());
+                return null;
+            }
+            DocumentSnapshot document = task.getResult();
+            return document != null && document.exists() ? documentSnapshotToTransaction(document) : null;
+        });
+    }
 
-        Calendar cal1 = Calendar.getInstance();
-        Calendar cal2 = Calendar.getInstance();
-        cal2.setTime(date);
+    /**
+     * Ghi thay đổi cùng tài liệu tổng hợp sau khi có giá trị cũ. Vẫn là WriteBatch như khi thêm
+     * nên sửa và xóa chạy được ngoại tuyến; phần lệch (nếu hai thiết bị cùng sửa một giao dịch)
+     * được backfill theo revision sửa lại.
+     */
+    private Task<Void> commitWithPreviousValue(String userId, DocumentReference documentReference,
+                                               Map<String, Object> transactionMap,
+                                               Task<Transaction> previousValue,
+                                               Transaction newTransaction) {
+        return previousValue.continueWithTask(task -> commitWithSummary(userId, documentReference,
+                transactionMap, task.getResult(), newTransaction));
+    }
 
-        return cal1.get(Calendar.YEAR) == cal2.get(Calendar.YEAR) &&
-                cal1.get(Calendar.MONTH) == cal2.get(Calendar.MONTH);
+    /**
+     * Ghi (hoặc xóa khi transactionMap là null) giao dịch và cập nhật tài liệu tổng hợp tháng
+     * trong cùng một WriteBatch để hai bên luôn khớp nhau
+     */
+    private Task<Void> commitWithSummary(String userId, DocumentReference documentReference,
+                                         Map<String, Object> transactionMap,
+                                         Transaction oldTransaction, Transaction newTransaction) {
+        WriteBatch batch = db.batch();
+        if (transactionMap != null) {
+            batch.set(documentReference, transactionMap);
+        } else {
+            batch.delete(documentReference);
+        }
+        monthlySummaryRepository.applyDelta(batch, userId, oldTransaction, newTransaction);
+        return batch.commit();
     }
 
     // Method for QueryDocumentSnapshot (from query results)
@@ -603,7 +1236,7 @@ public class TransactionRepository {
         // Use getters that handle null values safely
         long id = document.getLong("id") != null ? document.getLong("id") : System.currentTimeMillis();
         String description = document.getString("description") != null ? document.getString("description") : "";
-        double amount = document.getDouble("amount") != null ? document.getDouble("amount") : 0.0;
+        long amount = CurrencyFormatter.toAmount(document.get("amount"));
         String category = document.getString("category") != null ? document.getString("category") : "";
         Date date = document.getDate("date") != null ? document.getDate("date") : new Date();
         boolean isIncome = document.getBoolean("isIncome") != null ? document.getBoolean("isIncome") : false;
@@ -0,0 +1,90 @@
+package com.example.quanlychitieu.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.quanlychitieu.data.repository.BudgetRollover;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Công việc chạy mỗi ngày ngay sau nửa đêm (giờ thiết bị) để tạo ngân sách kỳ mới
+ * cho các ngân sách đã hết kỳ có bật tự động tạo lại.
+ */
+public class BudgetRolloverWorker extends Worker {
+    private static final String TAG = "BudgetRolloverWorker";
+    private static final String WORK_NAME = "budget_rollover";
+    // Chạy lúc 00:05 để ngân sách của ngày cuối kỳ đã chắc chắn hết hạn
+    private static final LocalTime RUN_TIME = LocalTime.of(0, 5);
+
+    public BudgetRolloverWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Lên lịch chạy hằng ngày, giữ nguyên lịch đã có nếu đã lên lịch trước đó
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                BudgetRolloverWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .setInitialDelay(delayUntilNextRun(), TimeUnit.MILLISECONDS)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    // Thời gian chờ tới lần chạy kế tiếp lúc RUN_TIME theo múi giờ của thiết bị
+    private static long delayUntilNextRun() {
+        ZoneId zone = ZoneId.systemDefault();
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        ZonedDateTime nextRun = LocalDate.now(zone).atTime(RUN_TIME).atZone(zone);
+        if (!nextRun.isAfter(now)) {
+            nextRun = LocalDate.now(zone).plusDays(1).atTime(RUN_TIME).atZone(zone);
+        }
+        return Duration.between(now, nextRun).toMillis();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser == null) {
+            return Result.success();
+        }
+
+        try {
+            int created = new BudgetRollover().run(currentUser.getUid());
+            Log.d(TAG, "Budget rollover finished, created " + created + " budgets");
+            return Result.success();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (Exception e) {
+            // Các ngân sách gốc đã xử lý không bị tạo lại ở lần thử sau nhờ cờ rolledOver
+            Log.e(TAG, "Error rolling over budgets", e);
+            return Result.retry();
+        }
+    }
+}
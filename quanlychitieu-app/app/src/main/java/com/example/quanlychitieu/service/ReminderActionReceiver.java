@@ -80,7 +80,7 @@ public class ReminderActionReceiver extends BroadcastReceiver {
             transaction.setDescription(reminder.getTitle());
         }
 
-        transaction.setAmount(reminder.getAmount());
+        transaction.setAmount(Math.round(reminder.getAmount()));
         transaction.setCategory("Khác"); // Danh mục mặc định là "Khác"
         transaction.setDate(new Date()); // Ngày hiện tại
         transaction.setIncome(false); // Đánh dấu là chi tiêu
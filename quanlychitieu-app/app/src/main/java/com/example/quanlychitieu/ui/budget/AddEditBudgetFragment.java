@@ -175,6 +175,11 @@ public class AddEditBudgetFragment extends Fragment {
             binding.threshold100.setChecked(true);
         }
 
+        // Đặt tùy chọn tự động tạo lại cho kỳ sau
+        binding.autoRolloverSwitch.setChecked(budget.isAutoRollover());
+        binding.carryOverSwitch.setChecked(budget.isCarryOverUnspent());
+        binding.carryOverOptions.setVisibility(budget.isAutoRollover() ? View.VISIBLE : View.GONE);
+
         // Đặt ghi chú
         if (budget.getNote() != null) {
             binding.noteInput.setText(budget.getNote());
@@ -279,6 +284,9 @@ public class AddEditBudgetFragment extends Fragment {
         binding.notificationSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
             binding.notificationOptions.setVisibility(isChecked ? View.VISIBLE : View.GONE);
         });
+        binding.autoRolloverSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            binding.carryOverOptions.setVisibility(isChecked ? View.VISIBLE : View.GONE);
+        });
     }
 
     private void setupSaveButton() {
@@ -336,11 +344,11 @@ public class AddEditBudgetFragment extends Fragment {
 
         // Phân tích số tiền
         String amountStr = binding.budgetAmountInput.getText().toString().trim();
-        double amount;
+        long amount;
         try {
             // Xóa dấu chấm trước khi phân tích
             amountStr = amountStr.replace(".", "");
-            amount = Double.parseDouble(amountStr);
+            amount = Math.round(Double.parseDouble(amountStr));
         } catch (NumberFormatException e) {
             binding.budgetAmountLayout.setError("Số tiền không hợp lệ");
             return;
@@ -363,11 +371,15 @@ public class AddEditBudgetFragment extends Fragment {
             notificationThreshold = 80; // Mặc định
         }
 
+        // Lấy cài đặt tự động tạo lại cho kỳ sau
+        final boolean autoRollover = binding.autoRolloverSwitch.isChecked();
+        final boolean carryOverUnspent = autoRollover && binding.carryOverSwitch.isChecked();
+
         // Lấy ghi chú
         String note = binding.noteInput.getText().toString().trim();
 
         // Tạo bản sao cuối cùng của các biến để sử dụng trong lambda
-        final double finalAmount = amount;
+        final long finalAmount = amount;
         final Date finalStartDate = startDate;
         final Date finalEndDate = endDate;
         final boolean finalNotificationsEnabled = notificationsEnabled;
@@ -380,7 +392,7 @@ public class AddEditBudgetFragment extends Fragment {
             viewModel.getBudgetById(budgetId).observe(getViewLifecycleOwner(), existingBudget -> {
                 if (existingBudget != null) {
                     // Giữ lại số tiền đã chi tiêu và trạng thái thông báo hiện có
-                    double spent = existingBudget.getSpent();
+                    long spent = existingBudget.getSpent();
                     boolean notificationSent = existingBudget.isNotificationSent();
 
                     Budget updatedBudget = new Budget(
@@ -399,6 +411,11 @@ public class AddEditBudgetFragment extends Fragment {
                     updatedBudget.setFirebaseId(budgetId); // Đặt ID Firebase để cập nhật đúng bản ghi
                     // Giữ lại cài đặt thông báo chi tiêu định kỳ (nếu có)
                     updatedBudget.setRecurringExpenseNotifications(existingBudget.getRecurringExpenseNotifications());
+                    // Giữ lại phần cộng dồn từ kỳ trước và trạng thái đã tạo kỳ sau
+                    updatedBudget.setAutoRollover(autoRollover);
+                    updatedBudget.setCarryOverUnspent(carryOverUnspent);
+                    updatedBudget.setCarriedOver(existingBudget.getCarriedOver());
+                    updatedBudget.setRolledOver(existingBudget.isRolledOver());
 
                     viewModel.updateBudget(updatedBudget);
                     Toast.makeText(requireContext(), "Ngân sách đã được cập nhật", Toast.LENGTH_SHORT).show();
@@ -420,6 +437,8 @@ public class AddEditBudgetFragment extends Fragment {
                     notificationThreshold,
                     false // thông báo chưa được gửi
             );
+            budget.setAutoRollover(autoRollover);
+            budget.setCarryOverUnspent(carryOverUnspent);
 
             viewModel.addBudget(budget);
             Toast.makeText(requireContext(), "Ngân sách đã được tạo", Toast.LENGTH_SHORT).show();
@@ -20,39 +20,39 @@ public class BudgetViewModel extends ViewModel {
     private final BudgetRepository repository; // Kho lưu trữ ngân sách
     private final TransactionRepository transactionRepository; // Kho lưu trữ giao dịch
     private final MediatorLiveData<List<Budget>> displayBudgets = new MediatorLiveData<>(); // LiveData trung gian để hiển thị danh sách ngân sách
-    private final MediatorLiveData<Double> totalBudget = new MediatorLiveData<>(); // LiveData trung gian cho tổng ngân sách
-    private final MediatorLiveData<Double> totalSpent = new MediatorLiveData<>(); // LiveData trung gian cho tổng chi tiêu
-    private final MutableLiveData<Double> remainingAmount = new MutableLiveData<>(0.0); // LiveData có thể thay đổi cho số tiền còn lại
+    private final MediatorLiveData<Long> totalBudget = new MediatorLiveData<>(); // LiveData trung gian cho tổng ngân sách
+    private final MediatorLiveData<Long> totalSpent = new MediatorLiveData<>(); // LiveData trung gian cho tổng chi tiêu
+    private final MutableLiveData<Long> remainingAmount = new MutableLiveData<>(0L); // LiveData có thể thay đổi cho số tiền còn lại
     private final MutableLiveData<Integer> progressPercentage = new MutableLiveData<>(0); // LiveData có thể thay đổi cho phần trăm tiến độ
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(true); // LiveData có thể thay đổi cho trạng thái đang tải
 
     // Theo dõi các nguồn dữ liệu hiện đang hoạt động
     private LiveData<List<Budget>> currentBudgetsSource = null; // Nguồn LiveData hiện tại cho danh sách ngân sách
-    private LiveData<Double> currentTotalBudgetSource = null; // Nguồn LiveData hiện tại cho tổng ngân sách
-    private LiveData<Double> currentTotalSpentSource = null; // Nguồn LiveData hiện tại cho tổng chi tiêu
-    private LiveData<Map<String, Double>> currentCategorySpentSource = null; // Nguồn LiveData hiện tại cho số tiền đã chi theo danh mục
+    private LiveData<Long> currentTotalBudgetSource = null; // Nguồn LiveData hiện tại cho tổng ngân sách
+    private LiveData<Long> currentTotalSpentSource = null; // Nguồn LiveData hiện tại cho tổng chi tiêu
+    private LiveData<Map<String, Long>> currentCategorySpentSource = null; // Nguồn LiveData hiện tại cho số tiền đã chi theo danh mục
 
     public BudgetViewModel() {
         repository = BudgetRepository.getInstance(); // Lấy instance của BudgetRepository
         transactionRepository = TransactionRepository.getInstance(); // Lấy instance của TransactionRepository
 
         // Khởi tạo với các giá trị mặc định
-        totalBudget.setValue(0.0);
-        totalSpent.setValue(0.0);
+        totalBudget.setValue(0L);
+        totalSpent.setValue(0L);
 
         // Tải ngân sách đang hoạt động và kết hợp với tất cả các danh mục
         loadBudgetsWithAllCategories();
     }
 
     private void updateRemainingAndProgress() {
-        Double budget = totalBudget.getValue(); // Lấy giá trị tổng ngân sách
-        Double spent = totalSpent.getValue(); // Lấy giá trị tổng chi tiêu
+        Long budget = totalBudget.getValue(); // Lấy giá trị tổng ngân sách
+        Long spent = totalSpent.getValue(); // Lấy giá trị tổng chi tiêu
 
         if (budget != null && spent != null) {
-            double remaining = budget - spent; // Tính số tiền còn lại
+            long remaining = budget - spent; // Tính số tiền còn lại
             remainingAmount.setValue(remaining);
 
-            int progress = budget > 0 ? (int) ((spent / budget) * 100) : 0; // Tính phần trăm tiến độ
+            int progress = budget > 0 ? (int) (spent * 100 / budget) : 0; // Tính phần trăm tiến độ
             progressPercentage.setValue(progress);
         }
     }
@@ -93,7 +93,8 @@ public class BudgetViewModel extends ViewModel {
         Map<String, Budget> budgetMap = new HashMap<>();
         if (activeBudgets != null) {
             for (Budget budget : activeBudgets) {
-                budgetMap.put(budget.getCategory(), budget);
+                // Nhiều ngân sách cùng danh mục có kỳ chồng nhau: hiển thị ngân sách bắt đầu gần đây nhất
+                budgetMap.putIfAbsent(budget.getCategory(), budget);
             }
         }
 
@@ -101,7 +102,7 @@ public class BudgetViewModel extends ViewModel {
         List<Budget> completeBudgetsList = new ArrayList<>();
 
         // Lấy số tiền đã chi theo danh mục
-        Map<String, Double> categorySpentAmounts = repository.getCategorySpentAmounts().getValue();
+        Map<String, Long> categorySpentAmounts = repository.getCategorySpentAmounts().getValue();
         if (categorySpentAmounts == null) {
             categorySpentAmounts = new HashMap<>();
         }
@@ -110,14 +111,17 @@ public class BudgetViewModel extends ViewModel {
         for (String category : allCategories) {
             Budget budget = budgetMap.get(category);
 
-            if (budget == null) {
+            if (budget != null) {
+                // Dự báo phụ thuộc vào ngày hiện tại nên được tính lại mỗi lần hiển thị
+                repository.getForecast(budget);
+            } else {
                 // Tạo một ngân sách giữ chỗ với số tiền là 0
                 budget = new Budget();
                 budget.setCategory(category);
                 budget.setAmount(0);
 
                 // Đặt số tiền đã chi từ các giao dịch
-                Double spentAmount = categorySpentAmounts.getOrDefault(category, 0.0);
+                long spentAmount = categorySpentAmounts.getOrDefault(category, 0L);
                 budget.setSpent(spentAmount);
             }
 
@@ -130,7 +134,7 @@ public class BudgetViewModel extends ViewModel {
 
     private void observeCategorySpentAmounts() {
         // Theo dõi số tiền đã chi theo danh mục từ repository
-        LiveData<Map<String, Double>> categorySpentAmounts = repository.getCategorySpentAmounts();
+        LiveData<Map<String, Long>> categorySpentAmounts = repository.getCategorySpentAmounts();
 
         // Xóa nguồn dữ liệu trước đó nếu có
         if (currentCategorySpentSource != null) {
@@ -143,7 +147,11 @@ public class BudgetViewModel extends ViewModel {
             List<Budget> currentBudgets = displayBudgets.getValue();
             if (currentBudgets != null) {
                 for (Budget budget : currentBudgets) {
-                    Double spentAmount = spentAmounts.getOrDefault(budget.getCategory(), 0.0);
+                    // Ngân sách thật đã có số tiền đã chi theo kỳ riêng, chỉ cập nhật ngân sách giữ chỗ
+                    if (budget.getFirebaseId() != null) {
+                        continue;
+                    }
+                    long spentAmount = spentAmounts.getOrDefault(budget.getCategory(), 0L);
                     budget.setSpent(spentAmount);
                 }
                 displayBudgets.setValue(currentBudgets);
@@ -156,7 +164,7 @@ public class BudgetViewModel extends ViewModel {
 
     private void observeTotals() {
         // Theo dõi tổng số tiền ngân sách từ repository
-        LiveData<Double> repositoryTotalBudget = repository.getTotalBudget();
+        LiveData<Long> repositoryTotalBudget = repository.getTotalBudget();
 
         // Xóa nguồn dữ liệu trước đó nếu có
         if (currentTotalBudgetSource != null) {
@@ -173,7 +181,7 @@ public class BudgetViewModel extends ViewModel {
         currentTotalBudgetSource = repositoryTotalBudget;
 
         // Theo dõi tổng số tiền đã chi từ repository
-        LiveData<Double> repositoryTotalSpent = repository.getTotalSpent();
+        LiveData<Long> repositoryTotalSpent = repository.getTotalSpent();
 
         // Xóa nguồn dữ liệu trước đó nếu có
         if (currentTotalSpentSource != null) {
@@ -216,15 +224,15 @@ public class BudgetViewModel extends ViewModel {
         loadBudgetsWithAllCategories();
     }
 
-    public LiveData<Double> getTotalBudget() {
+    public LiveData<Long> getTotalBudget() {
         return totalBudget;
     }
 
-    public LiveData<Double> getTotalSpent() {
+    public LiveData<Long> getTotalSpent() {
         return totalSpent;
     }
 
-    public LiveData<Double> getRemainingAmount() {
+    public LiveData<Long> getRemainingAmount() {
         return remainingAmount;
     }
 
@@ -71,7 +71,7 @@ public class ChartHelper {
     /**
      * Cập nhật dữ liệu cho biểu đồ chi tiêu
      */
-    public static void updateExpenseChart(PieChart chart, Map<String, Double> categoryExpenses, Context context) {
+    public static void updateExpenseChart(PieChart chart, Map<String, Long> categoryExpenses, Context context) {
         if (chart == null || categoryExpenses == null || categoryExpenses.isEmpty()) {
             chart.setNoDataText("Không có dữ liệu chi tiêu");
             chart.invalidate();
@@ -126,7 +126,7 @@ public class ChartHelper {
     /**
      * Cập nhật dữ liệu cho biểu đồ ngân sách
      */
-    public static void updateBudgetChart(PieChart chart, Map<String, Double> categoryBudgets, Context context) {
+    public static void updateBudgetChart(PieChart chart, Map<String, Long> categoryBudgets, Context context) {
         if (chart == null || categoryBudgets == null || categoryBudgets.isEmpty()) {
             chart.setNoDataText("Không có dữ liệu ngân sách");
             chart.invalidate();
@@ -136,7 +136,7 @@ public class ChartHelper {
         List<PieEntry> entries = new ArrayList<>();
 
         // Thêm dữ liệu vào biểu đồ
-        for (Map.Entry<String, Double> entry : categoryBudgets.entrySet()) {
+        for (Map.Entry<String, Long> entry : categoryBudgets.entrySet()) {
             if (entry.getValue() > 0) {
                 entries.add(new PieEntry(entry.getValue().floatValue(), entry.getKey()));
             }
@@ -286,17 +286,17 @@ public class DashboardFragment extends Fragment implements TransactionAdapter.On
 
     private void observeChartData() {
         // Theo dõi cả dữ liệu chi tiêu và ngân sách
-        MediatorLiveData<Pair<Map<String, Double>, Map<String, Double>>> combinedData = new MediatorLiveData<>();
+        MediatorLiveData<Pair<Map<String, Long>, Map<String, Long>>> combinedData = new MediatorLiveData<>();
 
         combinedData.addSource(dashboardViewModel.getCategoryExpensesData(), expenses -> {
-            Map<String, Double> budgets = dashboardViewModel.getCategoryBudgetsData().getValue();
+            Map<String, Long> budgets = dashboardViewModel.getCategoryBudgetsData().getValue();
             if (budgets != null) {
                 combinedData.setValue(new Pair<>(expenses, budgets));
             }
         });
 
         combinedData.addSource(dashboardViewModel.getCategoryBudgetsData(), budgets -> {
-            Map<String, Double> expenses = dashboardViewModel.getCategoryExpensesData().getValue();
+            Map<String, Long> expenses = dashboardViewModel.getCategoryExpensesData().getValue();
             if (expenses != null) {
                 combinedData.setValue(new Pair<>(expenses, budgets));
             }
@@ -305,8 +305,8 @@ public class DashboardFragment extends Fragment implements TransactionAdapter.On
         // Quan sát dữ liệu kết hợp
         combinedData.observe(getViewLifecycleOwner(), data -> {
             if (data != null) {
-                Map<String, Double> expenses = data.first;
-                Map<String, Double> budgets = data.second;
+                Map<String, Long> expenses = data.first;
+                Map<String, Long> budgets = data.second;
 
                 // Cập nhật biểu đồ
                 ChartHelper.updateExpenseChart(expenseChart, expenses, requireContext());
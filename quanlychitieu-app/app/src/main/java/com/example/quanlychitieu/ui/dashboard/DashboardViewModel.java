@@ -9,56 +9,58 @@ import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModel;
 
 import com.example.quanlychitieu.data.CategoryManager;
+import com.example.quanlychitieu.data.local.DashboardStateStore;
 import com.example.quanlychitieu.data.model.Budget;
+import com.example.quanlychitieu.data.model.CategoryAmounts;
+import com.example.quanlychitieu.data.model.CurrentMonthSnapshot;
+import com.example.quanlychitieu.data.model.DashboardState;
+import com.example.quanlychitieu.data.model.MonthlySummary;
 import com.example.quanlychitieu.data.model.Transaction;
 import com.example.quanlychitieu.data.repository.BudgetRepository;
+import com.example.quanlychitieu.data.repository.MonthlySummaryRepository;
 import com.example.quanlychitieu.data.repository.TransactionRepository;
+import com.example.quanlychitieu.utils.PerfMetrics;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.ListenerRegistration;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.Source;
 
-import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class DashboardViewModel extends ViewModel {
     private static final String TAG = "DashboardViewModel";
-    private static final String COLLECTION_USERS = "users";
-    private static final String COLLECTION_TRANSACTIONS = "transactions";
 
     public enum LoadingState { LOADING, SUCCESS, ERROR }
     private final MutableLiveData<LoadingState> loadingState = new MutableLiveData<>(LoadingState.LOADING);
 
     private final TransactionRepository transactionRepository;
     private final BudgetRepository budgetRepository;
-    private final FirebaseFirestore db;
     private final FirebaseAuth auth;
 
     // LiveData cho tất cả các thành phần trong dashboard
-    private final MutableLiveData<Double> income = new MutableLiveData<>();
-    private final MutableLiveData<Double> expenses = new MutableLiveData<>();
-    private final MutableLiveData<Double> balance = new MutableLiveData<>();
+    private final MutableLiveData<Long> income = new MutableLiveData<>();
+    private final MutableLiveData<Long> expenses = new MutableLiveData<>();
+    private final MutableLiveData<Long> balance = new MutableLiveData<>();
     private final MutableLiveData<List<Transaction>> recentTransactions = new MutableLiveData<>();
-    private final MutableLiveData<Map<String, Double>> categoryExpensesData = new MutableLiveData<>();
-    private final MutableLiveData<Map<String, Double>> categoryBudgetsData = new MutableLiveData<>();
+    private final MutableLiveData<Map<String, Long>> categoryExpensesData = new MutableLiveData<>();
+    private final MutableLiveData<Map<String, Long>> categoryBudgetsData = new MutableLiveData<>();
 
-    private ListenerRegistration transactionsListener;
+    // Theo dõi luồng dữ liệu tháng hiện tại dùng chung của TransactionRepository
+    private Observer<CurrentMonthSnapshot> currentMonthObserver;
     private Observer<List<Budget>> budgetObserver;
 
     // Biến để theo dõi xem dữ liệu đã được tải lần đầu chưa
     private boolean isInitialDataLoaded = false;
+    // Đã hiển thị dữ liệu tạm (trạng thái đã lưu hoặc cache) trong lúc chờ luồng dữ liệu tháng
+    private boolean isPlaceholderShown = false;
+    // Chỉ đo thời gian hiển thị đầu tiên một lần cho mỗi tiến trình
+    private static boolean firstPaintRecorded = false;
 
     public DashboardViewModel() {
         transactionRepository = TransactionRepository.getInstance();
         budgetRepository = BudgetRepository.getInstance();
-        db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
 
         // Đặt trạng thái đang tải
@@ -79,117 +81,130 @@ public class DashboardViewModel extends ViewModel {
             return;
         }
 
-        // Lấy ngày đầu và cuối tháng hiện tại
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        Date startOfMonth = calendar.getTime();
-
-        calendar = Calendar.getInstance();
-        calendar.set(Calendar.HOUR_OF_DAY, 23);
-        calendar.set(Calendar.MINUTE, 59);
-        calendar.set(Calendar.SECOND, 59);
-        calendar.set(Calendar.MILLISECOND, 999);
-        Date endOfMonth = calendar.getTime();
+        // Hủy theo dõi cũ nếu có
+        LiveData<CurrentMonthSnapshot> currentMonth = transactionRepository.getCurrentMonth();
+        if (currentMonthObserver != null) {
+            currentMonth.removeObserver(currentMonthObserver);
+        }
 
-        // Hủy đăng ký listener cũ nếu có
-        if (transactionsListener != null) {
-            transactionsListener.remove();
+        // Stale-while-revalidate: hiển thị ngay trạng thái đã lưu hoặc dữ liệu trong cache,
+        // sau đó cập nhật lại khi luồng dữ liệu tháng trả về
+        if (currentMonth.getValue() == null && !isPlaceholderShown) {
+            String monthKey = MonthlySummaryRepository.monthKey(new Date());
+            DashboardState savedState = DashboardStateStore.getInstance().load(currentUser.getUid());
+            if (savedState != null && monthKey.equals(savedState.getMonthKey())) {
+                publishSavedState(savedState);
+            } else {
+                // Đặt trạng thái đang tải
+                loadingState.setValue(LoadingState.LOADING);
+                loadMonthlySummary();
+            }
         }
 
-        // Đặt trạng thái đang tải
-        loadingState.setValue(LoadingState.LOADING);
+        // Các tổng đã được TransactionRepository tính sẵn, chỉ cần hiển thị
+        currentMonthObserver = snapshot -> {
+            if (snapshot == null) {
+                return;
+            }
 
-        // Lắng nghe thay đổi giao dịch theo thời gian thực
-        transactionsListener = db.collection(COLLECTION_USERS)
-                .document(currentUser.getUid())
-                .collection(COLLECTION_TRANSACTIONS)
-                .whereGreaterThanOrEqualTo("date", startOfMonth)
-                .whereLessThanOrEqualTo("date", endOfMonth)
-                .orderBy("date", Query.Direction.DESCENDING)
-                .addSnapshotListener((snapshots, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Error loading transactions", error);
-                        loadingState.setValue(LoadingState.ERROR);
-                        return;
-                    }
-
-                    List<Transaction> transactions = new ArrayList<>();
-                    if (snapshots != null && !snapshots.isEmpty()) {
-                        // Chuyển đổi dữ liệu từ Firestore
-                        for (QueryDocumentSnapshot document : snapshots) {
-                            Transaction transaction = transactionRepository.documentToTransaction(document);
-                            transactions.add(transaction);
-                        }
-                    }
-
-                    // Xử lý dữ liệu ngay cả khi danh sách trống
-                    processTransactions(transactions);
-
-                    // Đặt trạng thái thành công
-                    loadingState.setValue(LoadingState.SUCCESS);
-                    isInitialDataLoaded = true;
-                });
+            publishTotals(snapshot);
+            saveState(currentUser.getUid(), snapshot);
+
+            // Đặt trạng thái thành công
+            loadingState.setValue(LoadingState.SUCCESS);
+            isInitialDataLoaded = true;
+            recordFirstPaint("stream");
+        };
+        currentMonth.observeForever(currentMonthObserver);
 
         // Tải dữ liệu ngân sách
         loadBudgetData();
     }
 
     /**
-     * Xử lý danh sách giao dịch để cập nhật tất cả các thành phần
+     * Hiển thị trạng thái dashboard đã lưu từ lần mở trước
      */
-    private void processTransactions(List<Transaction> transactions) {
-        // Khởi tạo các giá trị mặc định
-        double totalIncome = 0;
-        double totalExpenses = 0;
-        List<Transaction> recent = new ArrayList<>();
-        Map<String, Double> spentByCategory = new HashMap<>();
+    private void publishSavedState(DashboardState state) {
+        income.setValue(state.getIncome());
+        expenses.setValue(state.getExpenses());
+        balance.setValue(state.getBalance());
+        recentTransactions.setValue(state.getRecentTransactions());
+        categoryExpensesData.setValue(withAllCategories(state.getCategoryExpenses()));
+
+        isPlaceholderShown = true;
+        loadingState.setValue(LoadingState.SUCCESS);
+        recordFirstPaint("saved_state");
+    }
 
-        // Khởi tạo map với tất cả các danh mục
-        List<String> expenseCategories = CategoryManager.getInstance().getExpenseCategories();
-        for (String category : expenseCategories) {
-            spentByCategory.put(category, 0.0);
+    /**
+     * Đọc tài liệu tổng hợp của tháng hiện tại, chỉ dùng khi listener chưa trả dữ liệu.
+     * Đọc cache trên đĩa trước, chỉ hỏi server khi tài liệu chưa có trong cache.
+     */
+    private void loadMonthlySummary() {
+        MonthlySummaryRepository summaryRepository = MonthlySummaryRepository.getInstance();
+        summaryRepository.getMonthlySummary(new Date(), Source.CACHE)
+                .addOnSuccessListener(summary -> publishSummary(summary, "cache"))
+                .addOnFailureListener(cacheError -> summaryRepository.getMonthlySummary(new Date())
+                        .addOnSuccessListener(summary -> publishSummary(summary, "summary"))
+                        .addOnFailureListener(e -> Log.e(TAG, "Error loading monthly summary", e)));
+    }
+
+    private void publishSummary(MonthlySummary summary, String source) {
+        if (isInitialDataLoaded) {
+            return;
         }
 
-        if (transactions != null && !transactions.isEmpty()) {
-            // 1. Cập nhật giao dịch gần đây (lấy 3 giao dịch mới nhất)
-            recent = transactions.stream()
-                    .filter(t -> !t.isGoalContribution()) // Lọc bỏ giao dịch đóng góp mục tiêu
-                    .sorted((t1, t2) -> t2.getDate().compareTo(t1.getDate()))
-                    .limit(3)
-                    .collect(Collectors.toList());
-
-            // 2. Tính toán tổng quan tài chính
-            for (Transaction transaction : transactions) {
-                // Bỏ qua các giao dịch đóng góp mục tiêu
-                if (transaction.isGoalContribution()) {
-                    continue;
-                }
+        income.setValue(summary.getIncome());
+        expenses.setValue(summary.getExpense());
+        balance.setValue(summary.getBalance());
+        categoryExpensesData.setValue(withAllCategories(summary.getCategories()));
 
-                double amount = Math.abs(transaction.getAmount());
-                boolean isIncome = transaction.isIncome();
+        isPlaceholderShown = true;
+        loadingState.setValue(LoadingState.SUCCESS);
+        recordFirstPaint(source);
+    }
 
-                if (isIncome) {
-                    totalIncome += amount;
-                } else {
-                    totalExpenses += amount;
+    // Lưu trạng thái vừa hiển thị cho lần mở ứng dụng sau
+    private void saveState(String userId, CurrentMonthSnapshot snapshot) {
+        DashboardStateStore.getInstance().save(userId, new DashboardState(
+                MonthlySummaryRepository.monthKey(snapshot.getStartDate()),
+                snapshot.getIncome(),
+                snapshot.getExpenses(),
+                snapshot.getExpenseByCategory(),
+                snapshot.getRecentTransactions()));
+    }
 
-                    // 3. Cập nhật chi tiêu theo danh mục cho biểu đồ
-                    String category = transaction.getCategory();
-                    double currentAmount = spentByCategory.getOrDefault(category, 0.0);
-                    spentByCategory.put(category, currentAmount + amount);
-                }
-            }
+    private void recordFirstPaint(String source) {
+        if (firstPaintRecorded) {
+            return;
         }
+        firstPaintRecorded = true;
+        PerfMetrics.recordTiming(PerfMetrics.DASHBOARD_FIRST_PAINT, PerfMetrics.sinceProcessStart());
+        Log.d(TAG, "First dashboard paint from " + source);
+    }
+
+    // Bổ sung các danh mục chưa có chi tiêu với số tiền 0
+    private Map<String, Long> withAllCategories(Map<String, Long> expenseByCategory) {
+        Map<String, Long> spentByCategory = new HashMap<>();
+        for (String category : CategoryManager.getInstance().getExpenseCategories()) {
+            spentByCategory.put(category, 0L);
+        }
+        spentByCategory.putAll(expenseByCategory);
+        return spentByCategory;
+    }
+
+    /**
+     * Cập nhật tất cả các thành phần từ dữ liệu tháng hiện tại
+     */
+    private void publishTotals(CurrentMonthSnapshot snapshot) {
+        // Khởi tạo map với tất cả các danh mục
+        Map<String, Long> spentByCategory = withAllCategories(snapshot.getExpenseByCategory());
 
         // Cập nhật tất cả LiveData cùng một lúc để tránh nhấp nháy
-        income.setValue(totalIncome);
-        expenses.setValue(totalExpenses);
-        balance.setValue(totalIncome - totalExpenses);
-        recentTransactions.setValue(recent);
+        income.setValue(snapshot.getIncome());
+        expenses.setValue(snapshot.getExpenses());
+        balance.setValue(snapshot.getBalance());
+        recentTransactions.setValue(snapshot.getRecentTransactions());
         categoryExpensesData.setValue(spentByCategory);
     }
 
@@ -206,20 +221,17 @@ public class DashboardViewModel extends ViewModel {
         budgetObserver = budgets -> {
             // Khởi tạo map với tất cả các danh mục
             List<String> expenseCategories = CategoryManager.getInstance().getExpenseCategories();
-            Map<String, Double> budgetMap = new HashMap<>();
-            for (String category : expenseCategories) {
-                budgetMap.put(category, 0.0);
-            }
+            CategoryAmounts budgetAmounts = new CategoryAmounts();
 
             if (budgets != null) {
-                // Cập nhật ngân sách cho từng danh mục
+                // Cập nhật ngân sách cho từng danh mục, mỗi danh mục chỉ hiển thị một ngân sách
                 for (Budget budget : budgets) {
-                    budgetMap.put(budget.getCategory(), budget.getAmount());
+                    budgetAmounts.set(budget.getCategory(), budget.getAmount());
                 }
             }
 
             // Cập nhật LiveData
-            categoryBudgetsData.setValue(budgetMap);
+            categoryBudgetsData.setValue(budgetAmounts.toMap(expenseCategories));
         };
 
         budgetRepository.getActiveBudgets().observeForever(budgetObserver);
@@ -231,15 +243,15 @@ public class DashboardViewModel extends ViewModel {
     }
 
     // Getters cho các LiveData
-    public LiveData<Double> getIncome() {
+    public LiveData<Long> getIncome() {
         return income;
     }
 
-    public LiveData<Double> getExpenses() {
+    public LiveData<Long> getExpenses() {
         return expenses;
     }
 
-    public LiveData<Double> getBalance() {
+    public LiveData<Long> getBalance() {
         return balance;
     }
 
@@ -247,11 +259,11 @@ public class DashboardViewModel extends ViewModel {
         return recentTransactions;
     }
 
-    public LiveData<Map<String, Double>> getCategoryExpensesData() {
+    public LiveData<Map<String, Long>> getCategoryExpensesData() {
         return categoryExpensesData;
     }
 
-    public LiveData<Map<String, Double>> getCategoryBudgetsData() {
+    public LiveData<Map<String, Long>> getCategoryBudgetsData() {
         return categoryBudgetsData;
     }
 
@@ -270,8 +282,8 @@ public class DashboardViewModel extends ViewModel {
         super.onCleared();
 
         // Hủy đăng ký tất cả listener khi ViewModel bị hủy
-        if (transactionsListener != null) {
-            transactionsListener.remove();
+        if (currentMonthObserver != null) {
+            transactionRepository.getCurrentMonth().removeObserver(currentMonthObserver);
         }
 
         if (budgetObserver != null) {
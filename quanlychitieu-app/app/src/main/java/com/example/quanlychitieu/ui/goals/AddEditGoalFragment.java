@@ -347,14 +347,14 @@ public class AddEditGoalFragment extends Fragment {
         // Parse số tiền mục tiêu
         String targetAmountStr = binding.targetAmountInput.getText().toString().trim();
         targetAmountStr = targetAmountStr.replace(".", "");
-        double targetAmount = Double.parseDouble(targetAmountStr);
+        long targetAmount = Math.round(Double.parseDouble(targetAmountStr));
 
         // Parse số tiền ban đầu (nếu có)
-        double initialAmount = 0.0;
+        long initialAmount = 0;
         String initialAmountStr = binding.initialAmountInput.getText().toString().trim();
         if (!initialAmountStr.isEmpty()) {
             initialAmountStr = initialAmountStr.replace(".", "");
-            initialAmount = Double.parseDouble(initialAmountStr);
+            initialAmount = Math.round(Double.parseDouble(initialAmountStr));
         }
 
         // Lấy ngày bắt đầu và kết thúc
@@ -183,7 +183,7 @@ public class ContributeGoalDialogFragment extends DialogFragment {
     private void contributeToGoal() {
         String amountText = binding.amountInput.getText().toString().trim();
         String cleanAmount = amountText.replace(".", "");
-        double amount = Double.parseDouble(cleanAmount);
+        long amount = Math.round(Double.parseDouble(cleanAmount));
 
         viewModel.contributeToGoal(goalId, amount);
 
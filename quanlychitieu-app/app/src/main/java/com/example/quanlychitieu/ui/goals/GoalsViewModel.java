@@ -35,12 +35,12 @@ public class GoalsViewModel extends ViewModel {
         repository.deleteGoal(goalId);
     }
 
-    public void contributeToGoal(String goalId, double amount) {
+    public void contributeToGoal(String goalId, long amount) {
         // Lấy mục tiêu hiện tại
         FinancialGoal goal = repository.getGoalById(goalId).getValue();
         if (goal != null) {
             // Cập nhật số tiền hiện tại
-            double newAmount = goal.getCurrentAmount() + amount;
+            long newAmount = goal.getCurrentAmount() + amount;
             goal.setCurrentAmount(newAmount);
 
             // Kiểm tra xem mục tiêu đã hoàn thành chưa
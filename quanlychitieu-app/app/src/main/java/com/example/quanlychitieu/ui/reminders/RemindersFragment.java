@@ -202,7 +202,7 @@ public class RemindersFragment extends Fragment implements ReminderAdapter.OnRem
             transaction.setDescription(reminder.getTitle());
         }
 
-        transaction.setAmount(reminder.getAmount());
+        transaction.setAmount(Math.round(reminder.getAmount()));
         transaction.setCategory("Khác"); // Danh mục mặc định là "Khác"
         transaction.setDate(new Date()); // Ngày hiện tại
         transaction.setIncome(false); // Đánh dấu là chi tiêu
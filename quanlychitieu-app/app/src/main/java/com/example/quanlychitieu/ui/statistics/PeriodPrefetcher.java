@@ -0,0 +1,131 @@
+package com.example.quanlychitieu.ui.statistics;
+
+import android.os.Process;
+
+import com.example.quanlychitieu.data.repository.TransactionRepository;
+import com.example.quanlychitieu.utils.PerfMetrics;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tải trước các kỳ liền kề (tuần/tháng/năm trước và sau) vào PeriodCache
+ * trên một hàng đợi nền độ ưu tiên thấp, từng kỳ một.
+ * Khi đổi loại kỳ, các kỳ đang chờ của loại cũ bị hủy.
+ */
+class PeriodPrefetcher {
+
+    /**
+     * Một kỳ cần tải trước
+     */
+    static class Period {
+        final Date startDate;
+        final Date endDate;
+        final List<Date> bucketStarts;   // null nếu kỳ được đọc theo từng giao dịch
+
+        Period(Date startDate, Date endDate, List<Date> bucketStarts) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.bucketStarts = bucketStarts;
+        }
+
+        String key() {
+            return startDate.getTime() + "-" + endDate.getTime();
+        }
+    }
+
+    private final TransactionRepository repository;
+    private final ExecutorService queueExecutor = Executors.newSingleThreadExecutor(runnable ->
+            new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "prefetch"));
+
+    // Trạng thái dưới đây được bảo vệ bởi synchronized
+    private final Queue<Period> queue = new ArrayDeque<>();
+    // Các kỳ đã tải trước nhưng người dùng chưa mở
+    private final Set<String> prefetched = new HashSet<>();
+    private String periodType;
+    private boolean running = false;
+
+    PeriodPrefetcher(TransactionRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Xếp hàng tải trước các kỳ, gọi sau khi kỳ hiện tại đã hiển thị xong
+     */
+    synchronized void prefetch(String periodType, List<Period> periods) {
+        if (!periodType.equals(this.periodType)) {
+            cancel();
+            this.periodType = periodType;
+        }
+
+        for (Period period : periods) {
+            if (!prefetched.contains(period.key())) {
+                queue.add(period);
+            }
+        }
+        if (!running) {
+            runNext();
+        }
+    }
+
+    /**
+     * Hủy các kỳ đang chờ (kỳ đang tải dở vẫn được hoàn tất vào cache)
+     */
+    synchronized void cancel() {
+        if (!queue.isEmpty()) {
+            PerfMetrics.add(PerfMetrics.PREFETCH_CANCELLED, queue.size());
+            queue.clear();
+        }
+        prefetched.clear();
+    }
+
+    /**
+     * Ghi nhận người dùng mở một kỳ để đo tỉ lệ trúng của việc tải trước
+     */
+    synchronized void recordVisit(Date startDate, Date endDate) {
+        String key = startDate.getTime() + "-" + endDate.getTime();
+        if (prefetched.remove(key)) {
+            PerfMetrics.increment(PerfMetrics.PREFETCH_HIT);
+        } else {
+            PerfMetrics.increment(PerfMetrics.PREFETCH_MISS);
+        }
+    }
+
+    // Chạy kỳ tiếp theo trong hàng đợi; chỉ một kỳ được tải tại một thời điểm
+    private synchronized void runNext() {
+        Period period = queue.poll();
+        if (period == null) {
+            running = false;
+            return;
+        }
+
+        running = true;
+        String type = periodType;
+        PerfMetrics.increment(PerfMetrics.PREFETCH_ISSUED);
+        queueExecutor.execute(() -> repository.prefetchPeriod(period.startDate, period.endDate,
+                period.bucketStarts, queueExecutor, () -> onPrefetched(type, period)));
+    }
+
+    private synchronized void onPrefetched(String type, Period period) {
+        if (type.equals(periodType)) {
+            prefetched.add(period.key());
+        }
+        runNext();
+    }
+
+    void shutdown() {
+        synchronized (this) {
+            queue.clear();
+        }
+        queueExecutor.shutdownNow();
+    }
+}
@@ -277,6 +277,9 @@ public class StatisticsFragment extends Fragment {
         Date startDate = dateRange.first;
         Date endDate = dateRange.second;
 
+        // Kỳ trước và kỳ sau là nơi người dùng thường bấm tiếp theo, được tải trước
+        viewModel.setAdjacentPeriods(currentPeriodType, getAdjacentDateRanges());
+
         // Tải dữ liệu tài chính cho khoảng thời gian
         viewModel.loadFinancialData(startDate, endDate);
 
@@ -312,7 +315,7 @@ public class StatisticsFragment extends Fragment {
         });
     }
 
-    private void updatePieChart(Map<String, Double> categoryExpenses) {
+    private void updatePieChart(Map<String, Long> categoryExpenses) {
         if (categoryExpenses.isEmpty()) {
             pieChart.setData(null);
             pieChart.invalidate();
@@ -387,9 +390,36 @@ public class StatisticsFragment extends Fragment {
         barChart.invalidate();
     }
 
+    private List<Pair<Date, Date>> getAdjacentDateRanges() {
+        int field;
+        switch (currentPeriodType) {
+            case "week":
+                field = Calendar.WEEK_OF_YEAR;
+                break;
+            case "year":
+                field = Calendar.YEAR;
+                break;
+            default:
+                field = Calendar.MONTH;
+                break;
+        }
+
+        List<Pair<Date, Date>> ranges = new ArrayList<>();
+        for (int direction : new int[]{-1, 1}) {
+            Calendar period = (Calendar) currentPeriod.clone();
+            period.add(field, direction);
+            ranges.add(getDateRangeForPeriod(period));
+        }
+        return ranges;
+    }
+
     private Pair<Date, Date> getDateRangeForPeriod() {
-        Calendar start = (Calendar) currentPeriod.clone();
-        Calendar end = (Calendar) currentPeriod.clone();
+        return getDateRangeForPeriod(currentPeriod);
+    }
+
+    private Pair<Date, Date> getDateRangeForPeriod(Calendar period) {
+        Calendar start = (Calendar) period.clone();
+        Calendar end = (Calendar) period.clone();
 
         switch (currentPeriodType) {
             case "week":
@@ -486,9 +516,9 @@ public class StatisticsFragment extends Fragment {
             reportContent.append("Số dư: ").append(binding.balanceAmount.getText()).append("\n\n");
 
             reportContent.append("CHI TIẾT CHI TIÊU THEO DANH MỤC:\n");
-            Map<String, Double> categoryExpenses = viewModel.getCategoryExpenses().getValue();
+            Map<String, Long> categoryExpenses = viewModel.getCategoryExpenses().getValue();
             if (categoryExpenses != null) {
-                for (Map.Entry<String, Double> entry : categoryExpenses.entrySet()) {
+                for (Map.Entry<String, Long> entry : categoryExpenses.entrySet()) {
                     reportContent.append(entry.getKey()).append(": ")
                             .append(formatCurrency(entry.getValue())).append("\n");
                 }
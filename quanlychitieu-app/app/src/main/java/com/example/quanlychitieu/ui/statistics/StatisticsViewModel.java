@@ -1,43 +1,93 @@
 package com.example.quanlychitieu.ui.statistics;
 
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.Pair;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModel;
 
+import com.example.quanlychitieu.data.model.PeriodTotals;
 import com.example.quanlychitieu.data.model.Transaction;
+import com.example.quanlychitieu.data.model.TransactionColumns;
 import com.example.quanlychitieu.data.repository.TransactionRepository;
+import com.example.quanlychitieu.utils.CoalescingExecutor;
+import com.example.quanlychitieu.utils.PerfMetrics;
+import com.example.quanlychitieu.utils.TimeBuckets;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.TreeMap;
 
 public class StatisticsViewModel extends ViewModel {
     private final TransactionRepository repository;
-    private final MutableLiveData<Double> income = new MutableLiveData<>(0.0);
-    private final MutableLiveData<Double> expenses = new MutableLiveData<>(0.0);
-    private final MutableLiveData<Double> balance = new MutableLiveData<>(0.0);
-    private final MutableLiveData<Map<String, Double>> categoryExpenses = new MutableLiveData<>(new HashMap<>());
+    private final MutableLiveData<Long> income = new MutableLiveData<>(0L);
+    private final MutableLiveData<Long> expenses = new MutableLiveData<>(0L);
+    private final MutableLiveData<Long> balance = new MutableLiveData<>(0L);
+    private final MutableLiveData<Map<String, Long>> categoryExpenses = new MutableLiveData<>(new HashMap<>());
     private final MutableLiveData<TimeSeriesData> timeSeriesData = new MutableLiveData<>(new TimeSeriesData());
 
+    // Các observer của lần tải hiện tại, được gỡ khi đổi kỳ hoặc khi ViewModel bị hủy
+    private final List<Runnable> activeObservers = new ArrayList<>();
+
+    // Tổng hợp chạy trên luồng nền; kết quả của kỳ cũ bị bỏ qua nhờ số thế hệ
+    private final CoalescingExecutor compute = new CoalescingExecutor();
+    private volatile int loadGeneration = 0;
+
+    // Tải trước các kỳ liền kề sau khi kỳ hiện tại hiển thị xong
+    private final PeriodPrefetcher prefetcher;
+    private String adjacentPeriodType;
+    private List<Pair<Date, Date>> adjacentRanges = new ArrayList<>();
+    private List<PeriodPrefetcher.Period> pendingPrefetch;
+
     public StatisticsViewModel() {
         repository = TransactionRepository.getInstance();
+        prefetcher = new PeriodPrefetcher(repository);
+    }
+
+    /**
+     * Đặt các kỳ liền kề của kỳ sắp tải (gọi trước loadFinancialData)
+     * @param periodType "week", "month" hoặc "year"
+     */
+    public void setAdjacentPeriods(String periodType, List<Pair<Date, Date>> ranges) {
+        adjacentPeriodType = periodType;
+        adjacentRanges = ranges;
     }
 
     public void loadFinancialData(Date startDate, Date endDate) {
+        clearObservers();
+        loadGeneration++;
+        prefetcher.recordVisit(startDate, endDate);
+        preparePrefetch();
+
+        if (isWithinCurrentMonth(startDate, endDate)) {
+            // Dùng luồng dữ liệu tháng hiện tại của repository thay vì truy vấn lại
+            observe(repository.getCurrentMonth(), snapshot -> {
+                if (snapshot != null && snapshot.covers(startDate, endDate)) {
+                    // Các cột của tháng được quét trực tiếp theo khoảng ngày (ví dụ một tuần trong tháng)
+                    processColumns(snapshot.getColumns(), startDate, endDate);
+                }
+            });
+            return;
+        }
+
+        TimeBuckets.Unit unit = TimeBuckets.unitFor(startDate, endDate);
+        if (unit != TimeBuckets.Unit.DAY || repository.hasDailyIndex()) {
+            // Khoảng dài, hoặc đã có chỉ mục theo ngày: chỉ lấy các tổng, không tải từng giao dịch
+            loadAggregatedData(startDate, endDate, new TimeBuckets(startDate, endDate, unit));
+            return;
+        }
+
         // Lấy các giao dịch cho khoảng thời gian
-        repository.getFilteredTransactions(startDate, endDate, "Tất cả danh mục", "Tất cả giao dịch")
-                .observeForever(transactions -> {
+        observe(repository.getFilteredTransactions(startDate, endDate, "Tất cả danh mục", "Tất cả giao dịch"),
+                transactions -> {
                     if (transactions != null) {
                         processTransactions(transactions, startDate, endDate);
                     } else {
@@ -46,188 +96,215 @@ public class StatisticsViewModel extends ViewModel {
                 });
     }
 
-    private void processTransactions(List<Transaction> transactions, Date startDate, Date endDate) {
-        double totalIncome = 0;
-        double totalExpenses = 0;
-        Map<String, Double> expensesByCategory = new HashMap<>();
-
-        // Xử lý từng giao dịch
-        for (Transaction transaction : transactions) {
-            // Bỏ qua các giao dịch đóng góp mục tiêu
-            if (transaction.isGoalContribution()) {
+    private synchronized void preparePrefetch() {
+        List<PeriodPrefetcher.Period> periods = new ArrayList<>();
+        if (repository.hasDailyIndex()) {
+            // Mọi kỳ đều được trả lời ngay từ chỉ mục theo ngày, không cần tải trước
+            pendingPrefetch = periods;
+            return;
+        }
+        Date now = new Date();
+        for (Pair<Date, Date> range : adjacentRanges) {
+            // Kỳ tương lai không có dữ liệu, kỳ trong tháng hiện tại đọc từ luồng dữ liệu tháng
+            if (range.first.after(now) || isWithinCurrentMonth(range.first, range.second)) {
                 continue;
             }
 
-            double amount = Math.abs(transaction.getAmount());
-
-            if (transaction.isIncome()) {
-                totalIncome += amount;
-            } else {
-                totalExpenses += amount;
-
-                // Thêm vào chi phí theo danh mục
-                String category = transaction.getCategory();
-                double currentAmount = expensesByCategory.getOrDefault(category, 0.0);
-                expensesByCategory.put(category, currentAmount + amount);
-            }
+            TimeBuckets.Unit unit = TimeBuckets.unitFor(range.first, range.second);
+            periods.add(new PeriodPrefetcher.Period(range.first, range.second, unit == TimeBuckets.Unit.DAY
+                    ? null : new TimeBuckets(range.first, range.second, unit).getStarts()));
         }
-
-        // Cập nhật các giá trị LiveData
-        income.setValue(totalIncome);
-        expenses.setValue(totalExpenses);
-        balance.setValue(totalIncome - totalExpenses);
-
-        // Sắp xếp các danh mục theo số tiền (giảm dần)
-        Map<String, Double> sortedExpenses = sortCategoriesByAmount(expensesByCategory);
-        categoryExpenses.setValue(sortedExpenses);
-
-        // Xử lý dữ liệu chuỗi thời gian
-        processTimeSeriesData(transactions, startDate, endDate);
+        pendingPrefetch = periods;
     }
 
-    private Map<String, Double> sortCategoriesByAmount(Map<String, Double> unsortedMap) {
-        // Chuyển đổi thành danh sách để sắp xếp
-        List<Map.Entry<String, Double>> list = new ArrayList<>(unsortedMap.entrySet());
+    // Kỳ hiện tại đã hiển thị xong, bắt đầu tải trước các kỳ liền kề (có thể gọi từ luồng nền)
+    private synchronized void onPeriodSettled(int generation) {
+        if (generation != loadGeneration || pendingPrefetch == null || adjacentPeriodType == null) {
+            return;
+        }
+        prefetcher.prefetch(adjacentPeriodType, pendingPrefetch);
+        pendingPrefetch = null;
+    }
 
-        // Sắp xếp theo giá trị (số tiền) theo thứ tự giảm dần
-        Collections.sort(list, (o1, o2) -> o2.getValue().compareTo(o1.getValue()));
+    private <T> void observe(LiveData<T> source, Observer<T> observer) {
+        source.observeForever(observer);
+        activeObservers.add(() -> source.removeObserver(observer));
+    }
 
-        // Đặt lại vào LinkedHashMap để duy trì thứ tự
-        Map<String, Double> sortedMap = new LinkedHashMap<>();
-        for (Map.Entry<String, Double> entry : list) {
-            sortedMap.put(entry.getKey(), entry.getValue());
+    private void clearObservers() {
+        for (Runnable removeObserver : activeObservers) {
+            removeObserver.run();
         }
-
-        return sortedMap;
+        activeObservers.clear();
     }
 
-    private void processTimeSeriesData(List<Transaction> transactions, Date startDate, Date endDate) {
-        // Xác định khoảng thời gian dựa trên phạm vi ngày
+    private boolean isWithinCurrentMonth(Date startDate, Date endDate) {
+        Calendar now = Calendar.getInstance();
         Calendar start = Calendar.getInstance();
         start.setTime(startDate);
-
         Calendar end = Calendar.getInstance();
         end.setTime(endDate);
 
-        long rangeDays = (end.getTimeInMillis() - start.getTimeInMillis()) / (24 * 60 * 60 * 1000);
-        String interval;
-
-        if (rangeDays <= 31) {
-            interval = "day";
-        } else if (rangeDays <= 366) {
-            interval = "month";
-        } else {
-            interval = "year";
-        }
+        return start.get(Calendar.YEAR) == now.get(Calendar.YEAR)
+                && start.get(Calendar.MONTH) == now.get(Calendar.MONTH)
+                && end.get(Calendar.YEAR) == now.get(Calendar.YEAR)
+                && end.get(Calendar.MONTH) == now.get(Calendar.MONTH);
+    }
 
-        // Tạo dữ liệu chuỗi thời gian
-        TimeSeriesData data = createTimeSeriesData(transactions, startDate, endDate, interval);
-        timeSeriesData.setValue(data);
-    }
-
-    private TimeSeriesData createTimeSeriesData(List<Transaction> transactions,
-                                                Date startDate,
-                                                Date endDate,
-                                                String interval) {
-        // Tạo bản đồ cho thu nhập và chi phí theo khoảng thời gian
-        Map<String, Double> incomeByPeriod = new TreeMap<>();
-        Map<String, Double> expensesByPeriod = new TreeMap<>();
-
-        // Định dạng mẫu dựa trên khoảng thời gian
-        String pattern;
-        int calendarField;
-
-        switch (interval) {
-            case "day":
-                pattern = "dd/MM";
-                calendarField = Calendar.DAY_OF_MONTH;
-                break;
-            case "month":
-                pattern = "MM/yyyy";
-                calendarField = Calendar.MONTH;
-                break;
-            case "year":
-                pattern = "yyyy";
-                calendarField = Calendar.YEAR;
-                break;
-            default:
-                pattern = "dd/MM/yyyy";
-                calendarField = Calendar.DAY_OF_MONTH;
-                break;
-        }
+    private void processTransactions(List<Transaction> transactions, Date startDate, Date endDate) {
+        int generation = loadGeneration;
+        compute.submit(() -> computeStatistics(generation, TransactionColumns.of(transactions), startDate, endDate));
+    }
 
-        SimpleDateFormat formatter = new SimpleDateFormat(pattern, Locale.getDefault());
+    private void processColumns(TransactionColumns columns, Date startDate, Date endDate) {
+        int generation = loadGeneration;
+        compute.submit(() -> computeStatistics(generation, columns, startDate, endDate));
+    }
 
-        // Khởi tạo các khoảng thời gian
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(startDate);
+    /**
+     * Tính tổng thu/chi, chi theo danh mục và chuỗi thời gian (luồng nền).
+     * Chỉ quét các mảng của TransactionColumns, không đọc lại từng Transaction.
+     */
+    private void computeStatistics(int generation, TransactionColumns columns, Date startDate, Date endDate) {
+        CoalescingExecutor.assertNotMainThread("computeStatistics");
+
+        // Tổng của cả kỳ và thu/chi theo từng khoảng trong một lượt quét
+        // (bỏ qua các giao dịch đóng góp mục tiêu)
+        TimeBuckets timeBuckets = new TimeBuckets(startDate, endDate, TimeBuckets.unitFor(startDate, endDate));
+        PeriodTotals totals = new PeriodTotals(startDate, endDate);
+        long[] incomeByBucket = new long[timeBuckets.size()];
+        long[] expenseByBucket = new long[timeBuckets.size()];
+        long started = SystemClock.elapsedRealtime();
+        columns.aggregate(timeBuckets, totals, incomeByBucket, expenseByBucket);
+        PerfMetrics.recordTiming(PerfMetrics.STATISTICS_AGGREGATE, SystemClock.elapsedRealtime() - started);
 
-        Calendar endCalendar = Calendar.getInstance();
-        endCalendar.setTime(endDate);
+        // Sắp xếp các danh mục theo số tiền (giảm dần)
+        Map<String, Long> sortedExpenses = sortCategoriesByAmount(totals.getExpenseByCategory());
 
-        while (!calendar.after(endCalendar)) {
-            String periodKey = formatter.format(calendar.getTime());
-            incomeByPeriod.put(periodKey, 0.0);
-            expensesByPeriod.put(periodKey, 0.0);
+        // Xử lý dữ liệu chuỗi thời gian
+        TimeSeriesData data = createTimeSeriesData(timeBuckets, incomeByBucket, expenseByBucket);
 
-            // Tăng lên khoảng thời gian tiếp theo
-            calendar.add(calendarField, 1);
+        if (generation != loadGeneration) {
+            // Người dùng đã chuyển sang kỳ khác trong lúc tính
+            return;
         }
 
-        // Xử lý các giao dịch
-        for (Transaction transaction : transactions) {
-            // Bỏ qua các giao dịch đóng góp mục tiêu
-            if (transaction.isGoalContribution()) {
-                continue;
-            }
+        // Cập nhật các giá trị LiveData
+        income.postValue(totals.getIncome());
+        expenses.postValue(totals.getExpense());
+        balance.postValue(totals.getBalance());
+        categoryExpenses.postValue(sortedExpenses);
+        timeSeriesData.postValue(data);
+        onPeriodSettled(generation);
+    }
 
-            String periodKey = formatter.format(transaction.getDate());
-            double amount = Math.abs(transaction.getAmount());
+    /**
+     * Tải tổng thu/chi, chi theo danh mục và chuỗi thời gian theo ngày/tháng/năm
+     * từ chỉ mục theo ngày hoặc các truy vấn tổng hợp của TransactionRepository
+     */
+    private void loadAggregatedData(Date startDate, Date endDate, TimeBuckets timeBuckets) {
+        observe(repository.getPeriodTotals(startDate, endDate), totals -> {
+            if (totals == null) {
+                resetData();
+                return;
+            }
 
-            if (transaction.isIncome()) {
-                double currentAmount = incomeByPeriod.getOrDefault(periodKey, 0.0);
-                incomeByPeriod.put(periodKey, currentAmount + amount);
-            } else {
-                double currentAmount = expensesByPeriod.getOrDefault(periodKey, 0.0);
-                expensesByPeriod.put(periodKey, currentAmount + amount);
+            income.setValue(totals.getIncome());
+            expenses.setValue(totals.getExpense());
+            balance.setValue(totals.getBalance());
+
+            // Sắp xếp danh mục trên luồng nền
+            int generation = loadGeneration;
+            compute.submit(() -> {
+                Map<String, Long> sortedExpenses = sortCategoriesByAmount(totals.getExpenseByCategory());
+                if (generation == loadGeneration) {
+                    categoryExpenses.postValue(sortedExpenses);
+                }
+            });
+        });
+
+        int generation = loadGeneration;
+        observe(repository.getPeriodTotals(timeBuckets.getStarts(), endDate), buckets -> {
+            List<String> labels = new ArrayList<>(buckets.size());
+            List<Float> incomeValues = new ArrayList<>(buckets.size());
+            List<Float> expenseValues = new ArrayList<>(buckets.size());
+
+            for (int i = 0; i < buckets.size(); i++) {
+                labels.add(timeBuckets.label(i));
+                incomeValues.add((float) buckets.get(i).getIncome());
+                expenseValues.add((float) buckets.get(i).getExpense());
             }
+
+            timeSeriesData.setValue(new TimeSeriesData(labels, incomeValues, expenseValues));
+            onPeriodSettled(generation);
+        });
+    }
+
+    private Map<String, Long> sortCategoriesByAmount(Map<String, Long> unsortedMap) {
+        // Chuyển đổi thành danh sách để sắp xếp
+        List<Map.Entry<String, Long>> list = new ArrayList<>(unsortedMap.entrySet());
+
+        // Sắp xếp theo giá trị (số tiền) theo thứ tự giảm dần
+        Collections.sort(list, (o1, o2) -> o2.getValue().compareTo(o1.getValue()));
+
+        // Đặt lại vào LinkedHashMap để duy trì thứ tự
+        Map<String, Long> sortedMap = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : list) {
+            sortedMap.put(entry.getKey(), entry.getValue());
         }
 
-        // Chuyển đổi thành danh sách cho biểu đồ
-        List<String> labels = new ArrayList<>(incomeByPeriod.keySet());
-        List<Float> incomeValues = new ArrayList<>();
-        List<Float> expenseValues = new ArrayList<>();
+        return Collections.unmodifiableMap(sortedMap);
+    }
+
+    /**
+     * Chuyển thu/chi theo chỉ số khoảng thành dữ liệu biểu đồ, nhãn chỉ được tạo cho từng khoảng
+     */
+    private TimeSeriesData createTimeSeriesData(TimeBuckets timeBuckets, long[] incomeByBucket,
+                                                long[] expenseByBucket) {
+        int count = timeBuckets.size();
 
-        for (String label : labels) {
-            incomeValues.add(incomeByPeriod.get(label).floatValue());
-            expenseValues.add(expensesByPeriod.get(label).floatValue());
+        // Chuyển đổi thành danh sách cho biểu đồ
+        List<String> labels = new ArrayList<>(count);
+        List<Float> incomeValues = new ArrayList<>(count);
+        List<Float> expenseValues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            labels.add(timeBuckets.label(i));
+            incomeValues.add((float) incomeByBucket[i]);
+            expenseValues.add((float) expenseByBucket[i]);
         }
 
         return new TimeSeriesData(labels, incomeValues, expenseValues);
     }
 
     private void resetData() {
-        income.setValue(0.0);
-        expenses.setValue(0.0);
-        balance.setValue(0.0);
+        income.setValue(0L);
+        expenses.setValue(0L);
+        balance.setValue(0L);
         categoryExpenses.setValue(new HashMap<>());
         timeSeriesData.setValue(new TimeSeriesData());
     }
 
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        clearObservers();
+        prefetcher.shutdown();
+    }
+
     // Getters cho LiveData
-    public LiveData<Double> getIncome() {
+    public LiveData<Long> getIncome() {
         return income;
     }
 
-    public LiveData<Double> getExpenses() {
+    public LiveData<Long> getExpenses() {
         return expenses;
     }
 
-    public LiveData<Double> getBalance() {
+    public LiveData<Long> getBalance() {
         return balance;
     }
 
-    public LiveData<Map<String, Double>> getCategoryExpenses() {
+    public LiveData<Map<String, Long>> getCategoryExpenses() {
         return categoryExpenses;
     }
 
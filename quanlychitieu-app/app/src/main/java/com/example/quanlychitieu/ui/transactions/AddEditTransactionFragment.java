@@ -427,11 +427,11 @@ public class AddEditTransactionFragment extends Fragment {
 
         // Parse the formatted amount
         String amountStr = binding.amountInput.getText().toString().trim();
-        double amount;
+        long amount;
         try {
             // Remove all dots (thousand separators) before parsing
             amountStr = amountStr.replace(".", "");
-            amount = Double.parseDouble(amountStr);
+            amount = Math.round(Double.parseDouble(amountStr));
         } catch (NumberFormatException e) {
             binding.amountLayout.setError("Số tiền không hợp lệ");
             return;
@@ -385,6 +385,18 @@ public class TransactionsFragment extends Fragment implements TransactionAdapter
 
     private void setupRecyclerView() {
         adapter = new TransactionAdapter(this);
+        // Tải thêm trang khi người dùng cuộn danh sách
+        adapter.setOnLoadMoreListener(new TransactionAdapter.OnLoadMoreListener() {
+            @Override
+            public void onLoadNext() {
+                viewModel.loadNextPage();
+            }
+
+            @Override
+            public void onLoadPrevious() {
+                viewModel.loadPreviousPage();
+            }
+        });
         binding.transactionsRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.transactionsRecyclerView.setAdapter(adapter);
 
@@ -6,6 +6,7 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 import com.example.quanlychitieu.data.model.Transaction;
+import com.example.quanlychitieu.data.repository.TransactionPager;
 import com.example.quanlychitieu.data.repository.TransactionRepository;
 
 import java.util.Calendar;
@@ -21,6 +22,9 @@ public class TransactionsViewModel extends ViewModel {
     private final MutableLiveData<String> selectedType = new MutableLiveData<>("Tất cả giao dịch");
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(true);
 
+    // Bộ phân trang của bộ lọc hiện tại
+    private TransactionPager<?> pager;
+
     public interface FilterCallback {
         void onFilterComplete(List<Transaction> transactions);
     }
@@ -88,19 +92,46 @@ public class TransactionsViewModel extends ViewModel {
         Date endDate = endCal.getTime();
 
         isLoading.setValue(true);
-        LiveData<List<Transaction>> source = repository.getFilteredTransactions(
-                startDate, endDate, category, type);
+        startPaging(startDate, endDate, category, type, callback);
+    }
 
-        transactions.addSource(source, transactionList -> {
+    /**
+     * Tạo bộ phân trang mới cho bộ lọc và tải trang đầu tiên
+     */
+    private void startPaging(Date startDate, Date endDate, String category, String type,
+                             FilterCallback callback) {
+        if (pager != null) {
+            transactions.removeSource(pager.getItems());
+        }
+
+        pager = repository.createPager(startDate, endDate, category, type);
+        final boolean[] firstPage = {true};
+        transactions.addSource(pager.getItems(), transactionList -> {
             transactions.setValue(transactionList);
-            isLoading.setValue(false);
 
-            if (callback != null) {
-                callback.onFilterComplete(transactionList);
+            if (firstPage[0]) {
+                firstPage[0] = false;
+                isLoading.setValue(false);
+                if (callback != null) {
+                    callback.onFilterComplete(transactionList);
+                }
             }
-
-            transactions.removeSource(source);
         });
+        pager.loadNextPage();
+    }
+
+    // Tải thêm trang tiếp theo khi người dùng cuộn gần cuối danh sách
+    public void loadNextPage() {
+        if (pager != null) {
+            pager.loadNextPage();
+        }
+    }
+
+    // Tải lại trang phía trước khi người dùng cuộn ngược lên đầu cửa sổ
+    public void loadPreviousPage() {
+        if (pager != null) {
+            pager.loadPreviousPage();
+        }
     }
 
     public void refreshTransactions() {
@@ -127,14 +158,7 @@ public class TransactionsViewModel extends ViewModel {
         endCal.set(Calendar.SECOND, 59);
         Date adjustedEndDate = endCal.getTime();
 
-        LiveData<List<Transaction>> source = repository.getFilteredTransactions(
-                adjustedStartDate, adjustedEndDate, category, type);
-
-        transactions.addSource(source, transactionList -> {
-            transactions.setValue(transactionList);
-            isLoading.setValue(false);
-            transactions.removeSource(source);
-        });
+        startPaging(adjustedStartDate, adjustedEndDate, category, type, null);
     }
 
     // Các getter cho các giá trị bộ lọc để sử dụng trong UI
@@ -0,0 +1,51 @@
+package com.example.quanlychitieu.utils;
+
+import android.os.Looper;
+
+import com.example.quanlychitieu.BuildConfig;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tầng tính toán nền nằm giữa repository và LiveData.
+ * Mỗi instance là một "làn" chỉ giữ tác vụ mới nhất: khi nhiều ảnh chụp đến liên tiếp
+ * trong lúc worker đang bận, các tác vụ chưa chạy bị thay thế và chỉ tác vụ cuối cùng được chạy.
+ * Mọi làn dùng chung một luồng nền nên các tác vụ không bao giờ chạy song song.
+ * Kết quả nên được phát bằng postValue dưới dạng đối tượng không thay đổi.
+ */
+public class CoalescingExecutor {
+    private static final ExecutorService COMPUTE_THREAD = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "compute"));
+
+    // Tác vụ đang chờ của làn này (null nếu không có)
+    private final AtomicReference<Runnable> pending = new AtomicReference<>();
+
+    /**
+     * Gửi tác vụ lên luồng nền, thay thế tác vụ đang chờ (nếu có) của làn này
+     */
+    public void submit(Runnable task) {
+        if (pending.getAndSet(task) == null) {
+            // Chưa có lượt chạy nào được lên lịch cho làn này
+            COMPUTE_THREAD.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        Runnable task;
+        while ((task = pending.getAndSet(null)) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Kiểm tra (chỉ ở bản debug) rằng phần tổng hợp nặng không chạy trên main looper
+     * @param operation Tên thao tác, dùng trong thông báo lỗi
+     */
+    public static void assertNotMainThread(String operation) {
+        if (BuildConfig.DEBUG && Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException(operation + " must not run on the main thread");
+        }
+    }
+}
@@ -54,5 +54,14 @@ public class CurrencyFormatter {
             return 0;
         }
     }
-    
+
+    // Chuyển giá trị số đọc từ Firestore sang số tiền (đồng).
+    // Dữ liệu cũ lưu dạng Double nên được làm tròn, dữ liệu mới lưu dạng Long
+    public static long toAmount(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return Math.round(((Number) value).doubleValue());
+        }
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
 }
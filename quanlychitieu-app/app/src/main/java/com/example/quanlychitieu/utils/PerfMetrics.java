@@ -0,0 +1,95 @@
+package com.example.quanlychitieu.utils;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bộ đếm hiệu năng đơn giản trong bộ nhớ, an toàn khi gọi từ nhiều luồng.
+ * Dùng để theo dõi số sự kiện bị bỏ qua, số lần ghi, tỉ lệ trúng cache...
+ */
+public class PerfMetrics {
+    private static final String TAG = "PerfMetrics";
+
+    // Ảnh chụp chỉ đổi metadata (hasPendingWrites/isFromCache) nên không tính lại
+    public static final String SNAPSHOT_METADATA_ONLY = "snapshot.metadata_only";
+    // Ảnh chụp được gộp vào cùng một lượt tổng hợp
+    public static final String SNAPSHOT_DEBOUNCED = "snapshot.debounced";
+    // Thời gian từ lúc tiến trình khởi động tới khi dashboard hiển thị dữ liệu thật (ms)
+    public static final String DASHBOARD_FIRST_PAINT = "dashboard.first_paint_ms";
+    // Tải trước kỳ liền kề trong màn hình thống kê: số kỳ đã tải, số lần người dùng mở
+    // đúng kỳ đã tải (hit) hoặc kỳ chưa tải (miss), số kỳ bị hủy khi đổi loại kỳ
+    public static final String PREFETCH_ISSUED = "prefetch.issued";
+    public static final String PREFETCH_HIT = "prefetch.hit";
+    public static final String PREFETCH_MISS = "prefetch.miss";
+    public static final String PREFETCH_CANCELLED = "prefetch.cancelled";
+    // Thời gian tổng hợp một kỳ thống kê từ TransactionColumns (ms)
+    public static final String STATISTICS_AGGREGATE = "statistics.aggregate_ms";
+    // Ghi chi tiêu ngân sách: số WriteBatch đã gửi, tổng số tài liệu được cập nhật trong các batch
+    // (chia cho số batch để có số lần ghi mỗi lượt), số thay đổi bị gộp vào thay đổi mới hơn
+    public static final String BUDGET_SPENT_FLUSHES = "budget.spent_flushes";
+    public static final String BUDGET_SPENT_WRITES = "budget.spent_writes";
+    public static final String BUDGET_SPENT_COALESCED = "budget.spent_coalesced";
+    // Tự động tạo ngân sách kỳ sau: số transaction đã chạy (mỗi ngân sách gốc một transaction),
+    // số ngân sách mới được tạo
+    public static final String BUDGET_ROLLOVER_TRANSACTIONS = "budget.rollover_transactions";
+    public static final String BUDGET_ROLLOVER_CREATED = "budget.rollover_created";
+
+    private static final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    public static void increment(String name) {
+        add(name, 1);
+    }
+
+    public static void add(String name, long delta) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.addAndGet(delta);
+    }
+
+    /**
+     * Ghi lại một khoảng thời gian (ghi đè giá trị trước đó)
+     */
+    public static void recordTiming(String name, long millis) {
+        counters.put(name, new AtomicLong(millis));
+        Log.d(TAG, name + " = " + millis + "ms");
+    }
+
+    /**
+     * Số ms kể từ khi tiến trình ứng dụng được khởi động
+     */
+    public static long sinceProcessStart() {
+        return SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+    }
+
+    public static long get(String name) {
+        AtomicLong counter = counters.get(name);
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * Giá trị hiện tại của mọi bộ đếm, sắp xếp theo tên
+     */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        return values;
+    }
+
+    public static void log() {
+        Log.d(TAG, snapshot().toString());
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.quanlychitieu.utils;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Chia một khoảng thời gian thành các khoảng ngày, tuần ISO (bắt đầu thứ Hai), tháng hoặc năm
+ * theo giờ địa phương và ánh xạ mốc thời gian sang chỉ số khoảng bằng phép tính java.time,
+ * không định dạng chuỗi. Khoảng đầu tiên bắt đầu tại startDate, khoảng cuối kết thúc tại endDate.
+ * Nhãn chỉ được tạo khi gọi label() cho khoảng cần vẽ.
+ * Không thay đổi được sau khi tạo nên có thể dùng chung giữa các luồng.
+ */
+public class TimeBuckets {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    public enum Unit {
+        DAY("dd/MM"),
+        WEEK("dd/MM"),
+        MONTH("MM/yyyy"),
+        YEAR("yyyy");
+
+        private final DateTimeFormatter formatter;
+
+        Unit(String pattern) {
+            formatter = DateTimeFormatter.ofPattern(pattern);
+        }
+    }
+
+    private final Unit unit;
+    private final ZoneRules rules;
+    // Độ lệch múi giờ cố định (ms), hoặc Long.MIN_VALUE nếu múi giờ có giờ mùa hè
+    private final long fixedOffsetMillis;
+    private final long startMillis;
+    private final long endMillis;
+    // Ngày chứa startDate, ngày đầu tiên của đơn vị chứa startDate và số thứ tự của đơn vị đó
+    private final LocalDate firstDay;
+    private final LocalDate firstUnitStart;
+    private final long firstOrdinal;
+    private final long[] bucketStartMillis;
+
+    public TimeBuckets(Date startDate, Date endDate, Unit unit) {
+        this(startDate, endDate, unit, ZoneId.systemDefault());
+    }
+
+    public TimeBuckets(Date startDate, Date endDate, Unit unit, ZoneId zone) {
+        this.unit = unit;
+        this.rules = zone.getRules();
+        this.fixedOffsetMillis = rules.isFixedOffset()
+                ? rules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L
+                : Long.MIN_VALUE;
+        this.startMillis = startDate.getTime();
+        this.endMillis = endDate.getTime();
+
+        firstDay = LocalDate.ofEpochDay(toEpochDay(startMillis));
+        firstUnitStart = unitStart(firstDay);
+        firstOrdinal = ordinal(firstUnitStart);
+        int count = endMillis < startMillis ? 0
+                : (int) (ordinal(LocalDate.ofEpochDay(toEpochDay(endMillis))) - firstOrdinal + 1);
+
+        bucketStartMillis = new long[count];
+        for (int i = 0; i < count; i++) {
+            bucketStartMillis[i] = i == 0 ? startMillis
+                    : unitStartAt(i).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+    }
+
+    /**
+     * Chọn đơn vị theo độ dài khoảng: ngày cho tối đa một tháng, tuần cho tối đa một quý,
+     * tháng cho tối đa một năm, còn lại theo năm
+     */
+    public static Unit unitFor(Date startDate, Date endDate) {
+        long rangeDays = (endDate.getTime() - startDate.getTime()) / DAY_MILLIS;
+        if (rangeDays <= 31) {
+            return Unit.DAY;
+        } else if (rangeDays <= 92) {
+            return Unit.WEEK;
+        } else if (rangeDays <= 366) {
+            return Unit.MONTH;
+        } else {
+            return Unit.YEAR;
+        }
+    }
+
+    public Unit getUnit() {
+        return unit;
+    }
+
+    public int size() {
+        return bucketStartMillis.length;
+    }
+
+    /**
+     * Chỉ số khoảng chứa mốc thời gian, -1 nếu nằm ngoài [startDate, endDate]
+     */
+    public int indexOf(long epochMillis) {
+        if (epochMillis < startMillis || epochMillis > endMillis) {
+            return -1;
+        }
+
+        long epochDay = toEpochDay(epochMillis);
+        switch (unit) {
+            case DAY:
+                return (int) (epochDay - firstUnitStart.toEpochDay());
+            case WEEK:
+                return (int) ((epochDay - firstUnitStart.toEpochDay()) / 7);
+            default:
+                return (int) (ordinal(LocalDate.ofEpochDay(epochDay)) - firstOrdinal);
+        }
+    }
+
+    public Date getStart(int index) {
+        return new Date(bucketStartMillis[index]);
+    }
+
+    public Date getEnd(int index) {
+        return new Date(index + 1 < bucketStartMillis.length ? bucketStartMillis[index + 1] - 1 : endMillis);
+    }
+
+    /**
+     * Mốc bắt đầu của mọi khoảng theo thứ tự thời gian
+     */
+    public List<Date> getStarts() {
+        List<Date> starts = new ArrayList<>(bucketStartMillis.length);
+        for (long start : bucketStartMillis) {
+            starts.add(new Date(start));
+        }
+        return starts;
+    }
+
+    /**
+     * Nhãn của khoảng theo ngày bắt đầu của khoảng (dd/MM, MM/yyyy hoặc yyyy);
+     * khoảng đầu tiên bắt đầu tại startDate nên không hiện ngày đầu tuần trước đó
+     */
+    public String label(int index) {
+        return unit.formatter.format(index == 0 ? firstDay : unitStartAt(index));
+    }
+
+    // Số ngày từ epoch theo giờ địa phương
+    private long toEpochDay(long epochMillis) {
+        long offset = fixedOffsetMillis != Long.MIN_VALUE ? fixedOffsetMillis
+                : rules.getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds() * 1000L;
+        return Math.floorDiv(epochMillis + offset, DAY_MILLIS);
+    }
+
+    // Ngày đầu của đơn vị chứa date
+    private LocalDate unitStart(LocalDate date) {
+        switch (unit) {
+            case DAY:
+                return date;
+            case WEEK:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return date.withDayOfMonth(1);
+            default:
+                return date.withDayOfYear(1);
+        }
+    }
+
+    private LocalDate unitStartAt(int index) {
+        switch (unit) {
+            case DAY:
+                return firstUnitStart.plusDays(index);
+            case WEEK:
+                return firstUnitStart.plusWeeks(index);
+            case MONTH:
+                return firstUnitStart.plusMonths(index);
+            default:
+                return firstUnitStart.plusYears(index);
+        }
+    }
+
+    // Số thứ tự liên tục của đơn vị chứa date
+    private long ordinal(LocalDate date) {
+        switch (unit) {
+            case DAY:
+                return date.toEpochDay();
+            case WEEK:
+                // Ngày 0 của epoch là thứ Năm, thứ Hai đầu tiên là ngày -3
+                return Math.floorDiv(unitStart(date).toEpochDay() + 3, 7);
+            case MONTH:
+                return date.getYear() * 12L + date.getMonthValue() - 1;
+            default:
+                return date.getYear();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.quanlychitieu.data.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.example.quanlychitieu.data.CategoryManager;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * So sánh số byte được cấp phát khi cộng dồn chi tiêu theo danh mục:
+ * cách cũ (HashMap<String, Double> với getOrDefault + put) và CategoryAmounts (mảng long theo id).
+ */
+public class AmountAggregationBenchmarkTest {
+    private static final int TRANSACTIONS = 200_000;
+    private static final String[] CATEGORIES = {"Ăn uống", "Di chuyển", "Mua sắm", "Hóa đơn", "Khác"};
+
+    private final String[] categories = new String[TRANSACTIONS];
+    private final int[] categoryIds = new int[TRANSACTIONS];
+    private final double[] doubleAmounts = new double[TRANSACTIONS];
+    private final long[] longAmounts = new long[TRANSACTIONS];
+
+    public AmountAggregationBenchmarkTest() {
+        Random random = new Random(42);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            categories[i] = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            categoryIds[i] = CategoryManager.getInstance().getCategoryId(categories[i]);
+            longAmounts[i] = 1_000L * (1 + random.nextInt(500));
+            doubleAmounts[i] = longAmounts[i];
+        }
+    }
+
+    @BeforeClass
+    public static void setUpCategories() {
+        CategoryManager.initWithoutFirebase();
+    }
+
+    @Test
+    public void categoryAmountsDoesNotAllocatePerTransaction() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue("Allocation counters are not available on this JVM",
+                threadBean instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threadBean;
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // Khởi động JIT cho cả hai cách
+        for (int round = 0; round < 5; round++) {
+            sumBoxed();
+            sumPrimitive();
+        }
+
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        Map<String, Double> boxed = sumBoxed();
+        long boxedBytes = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        before = allocations.getThreadAllocatedBytes(threadId);
+        CategoryAmounts primitive = sumPrimitive();
+        long primitiveBytes = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        System.out.println("Aggregating " + TRANSACTIONS + " transactions: HashMap<String, Double> allocated "
+                + boxedBytes + " bytes, CategoryAmounts allocated " + primitiveBytes + " bytes");
+
+        // Cùng kết quả
+        for (String category : CATEGORIES) {
+            assertEquals(boxed.get(category).longValue(), primitive.get(category));
+        }
+        // Cách cũ tạo ít nhất một Double cho mỗi giao dịch, CategoryAmounts chỉ cấp phát mảng ban đầu
+        assertTrue(boxedBytes >= (long) TRANSACTIONS * 16);
+        assertTrue(primitiveBytes < 4_096);
+    }
+
+    private Map<String, Double> sumBoxed() {
+        Map<String, Double> totals = new HashMap<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            totals.put(categories[i], totals.getOrDefault(categories[i], 0.0) + doubleAmounts[i]);
+        }
+        return totals;
+    }
+
+    private CategoryAmounts sumPrimitive() {
+        CategoryAmounts totals = new CategoryAmounts();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            totals.add(categoryIds[i], longAmounts[i]);
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.quanlychitieu.data.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.quanlychitieu.data.CategoryManager;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+public class CategoryAmountsTest {
+    @BeforeClass
+    public static void setUpCategories() {
+        CategoryManager.initWithoutFirebase();
+    }
+
+    @Test
+    public void addByNameAndByIdShareTheSameCell() {
+        CategoryAmounts amounts = new CategoryAmounts();
+        int id = CategoryManager.getInstance().getCategoryId("Ăn uống");
+
+        amounts.add("Ăn uống", 50_000);
+        amounts.add(id, 25_000);
+
+        assertEquals(75_000, amounts.get("Ăn uống"));
+        assertEquals(75_000, amounts.get(id));
+        assertEquals(0, amounts.get("Di chuyển"));
+    }
+
+    @Test
+    public void growsForCategoriesCreatedAfterConstruction() {
+        CategoryAmounts amounts = new CategoryAmounts();
+        // Cấp thêm nhiều id mới sau khi mảng đã được tạo
+        int lastId = -1;
+        for (int i = 0; i < 40; i++) {
+            lastId = CategoryManager.getInstance().getCategoryId("CategoryAmountsTest.grow." + i);
+        }
+
+        amounts.add(lastId, 1_000);
+
+        assertEquals(1_000, amounts.get(lastId));
+        assertEquals(0, amounts.get(lastId + 100));
+    }
+
+    @Test
+    public void setKeepsTheLastValue() {
+        CategoryAmounts amounts = new CategoryAmounts();
+        amounts.set("Ăn uống", 2_000_000);
+        amounts.set("Ăn uống", 1_500_000);
+        amounts.add("Ăn uống", 500);
+
+        assertEquals(1_500_500, amounts.get("Ăn uống"));
+    }
+
+    @Test
+    public void addAllMergesEveryCategory() {
+        CategoryAmounts first = new CategoryAmounts();
+        first.add("Ăn uống", 10_000);
+        first.add("Mua sắm", 20_000);
+        CategoryAmounts second = new CategoryAmounts();
+        second.add("Mua sắm", 5_000);
+        second.add("Hóa đơn", 7_000);
+
+        first.addAll(second);
+
+        assertEquals(10_000, first.get("Ăn uống"));
+        assertEquals(25_000, first.get("Mua sắm"));
+        assertEquals(7_000, first.get("Hóa đơn"));
+        // Nguồn không bị thay đổi
+        assertEquals(5_000, second.get("Mua sắm"));
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        CategoryAmounts original = new CategoryAmounts();
+        original.add("Ăn uống", 10_000);
+
+        CategoryAmounts copy = original.copy();
+        copy.add("Ăn uống", 1);
+        original.add("Di chuyển", 3_000);
+
+        assertEquals(10_000, original.get("Ăn uống"));
+        assertEquals(10_001, copy.get("Ăn uống"));
+        assertEquals(0, copy.get("Di chuyển"));
+    }
+
+    @Test
+    public void toMapSkipsZeroAmountsUnlessRequested() {
+        CategoryAmounts amounts = new CategoryAmounts();
+        amounts.add("Ăn uống", 10_000);
+        amounts.add("Mua sắm", 5_000);
+        amounts.add("Mua sắm", -5_000);
+
+        Map<String, Long> map = amounts.toMap();
+        assertEquals(1, map.size());
+        assertEquals(Long.valueOf(10_000), map.get("Ăn uống"));
+
+        Map<String, Long> withDefaults = amounts.toMap(Arrays.asList("Mua sắm", "Hóa đơn"));
+        assertEquals(3, withDefaults.size());
+        assertEquals(Long.valueOf(0), withDefaults.get("Mua sắm"));
+        assertEquals(Long.valueOf(0), withDefaults.get("Hóa đơn"));
+    }
+
+    @Test
+    public void clearEmptiesEveryCell() {
+        CategoryAmounts amounts = new CategoryAmounts();
+        assertTrue(amounts.isEmpty());
+
+        amounts.add("Ăn uống", 10_000);
+        assertFalse(amounts.isEmpty());
+
+        amounts.clear();
+        assertTrue(amounts.isEmpty());
+        assertEquals(0, amounts.get("Ăn uống"));
+    }
+
+    @Test
+    public void largeTotalsStayExact() {
+        CategoryAmounts amounts = new CategoryAmounts();
+        // 1 triệu giao dịch gần 1 tỷ đồng, tổng vẫn đúng tới từng đồng
+        for (int i = 0; i < 1_000_000; i++) {
+            amounts.add("Hóa đơn", 999_999_999L);
+        }
+        assertEquals(999_999_999_000_000L, amounts.get("Hóa đơn"));
+    }
+}
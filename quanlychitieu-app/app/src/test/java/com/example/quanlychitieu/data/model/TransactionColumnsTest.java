@@ -0,0 +1,171 @@
+package com.example.quanlychitieu.data.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.example.quanlychitieu.data.CategoryManager;
+import com.example.quanlychitieu.utils.TimeBuckets;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+public class TransactionColumnsTest {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    private static final String[] CATEGORIES = {"Ăn uống", "Di chuyển", "Mua sắm", "Hóa đơn"};
+
+    @BeforeClass
+    public static void setUpCategories() {
+        CategoryManager.initWithoutFirebase();
+    }
+
+    @Test
+    public void addToMatchesPeriodTotalsAddTransaction() {
+        List<Transaction> transactions = randomTransactions(2_000, 1);
+        PeriodTotals expected = new PeriodTotals(date(2024, 3, 1), endOfDay(2024, 3, 31));
+        for (Transaction transaction : transactions) {
+            if (transaction.getDate() != null && expected.contains(transaction.getDate())) {
+                expected.addTransaction(transaction);
+            }
+        }
+
+        PeriodTotals actual = new PeriodTotals(expected.getStartDate(), expected.getEndDate());
+        TransactionColumns.of(transactions).addTo(actual);
+
+        assertTotalsEqual(expected, actual);
+    }
+
+    @Test
+    public void goalContributionsAndMissingDatesAreSkipped() {
+        Transaction expense = transaction(50_000, "Ăn uống", date(2024, 3, 5), false);
+        Transaction contribution = transaction(200_000, "Tiết kiệm", date(2024, 3, 5), false);
+        contribution.setGoalContribution(true);
+        Transaction noDate = transaction(70_000, "Ăn uống", null, false);
+
+        PeriodTotals totals = new PeriodTotals(date(2024, 3, 1), endOfDay(2024, 3, 31));
+        TransactionColumns.of(Arrays.asList(expense, contribution, noDate)).addTo(totals);
+
+        assertEquals(50_000, totals.getExpense());
+        assertEquals(1, totals.getTransactionCount());
+        assertEquals(Long.valueOf(50_000), totals.getExpenseByCategory().get("Ăn uống"));
+    }
+
+    @Test
+    public void amountsAreStoredAsAbsoluteValues() {
+        Transaction refund = transaction(-30_000, "Mua sắm", date(2024, 3, 5), false);
+
+        PeriodTotals totals = new PeriodTotals(date(2024, 3, 1), endOfDay(2024, 3, 31));
+        TransactionColumns.of(Arrays.asList(refund)).addTo(totals);
+
+        assertEquals(30_000, totals.getExpense());
+    }
+
+    @Test
+    public void addToBucketsPutsEachTransactionInItsBucket() {
+        List<Transaction> transactions = randomTransactions(3_000, 2);
+        List<PeriodTotals> expected = new ArrayList<>();
+        List<PeriodTotals> actual = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            LocalDate first = LocalDate.of(2024, month, 1);
+            Date start = date(2024, month, 1);
+            Date end = new Date(date(first.plusMonths(1)).getTime() - 1);
+            expected.add(new PeriodTotals(start, end));
+            actual.add(new PeriodTotals(start, end));
+        }
+        for (Transaction transaction : transactions) {
+            for (PeriodTotals bucket : expected) {
+                if (transaction.getDate() != null && bucket.contains(transaction.getDate())) {
+                    bucket.addTransaction(transaction);
+                }
+            }
+        }
+
+        TransactionColumns.of(transactions).addToBuckets(actual);
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertTotalsEqual(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void aggregateMatchesBucketLoop() {
+        List<Transaction> transactions = randomTransactions(5_000, 3);
+        Date start = date(2024, 2, 10);
+        Date end = endOfDay(2024, 4, 20);
+        TimeBuckets buckets = new TimeBuckets(start, end, TimeBuckets.Unit.WEEK, ZONE);
+
+        PeriodTotals expectedTotals = new PeriodTotals(start, end);
+        long[] expectedIncome = new long[buckets.size()];
+        long[] expectedExpense = new long[buckets.size()];
+        for (Transaction transaction : transactions) {
+            if (transaction.getDate() == null || transaction.isGoalContribution()) {
+                continue;
+            }
+            int index = buckets.indexOf(transaction.getDate().getTime());
+            if (index < 0) {
+                continue;
+            }
+            expectedTotals.addTransaction(transaction);
+            if (transaction.isIncome()) {
+                expectedIncome[index] += Math.abs(transaction.getAmount());
+            } else {
+                expectedExpense[index] += Math.abs(transaction.getAmount());
+            }
+        }
+
+        PeriodTotals totals = new PeriodTotals(start, end);
+        long[] income = new long[buckets.size()];
+        long[] expense = new long[buckets.size()];
+        TransactionColumns.of(transactions).aggregate(buckets, totals, income, expense);
+
+        assertTotalsEqual(expectedTotals, totals);
+        assertArrayEquals(expectedIncome, income);
+        assertArrayEquals(expectedExpense, expense);
+    }
+
+    static List<Transaction> randomTransactions(int count, long seed) {
+        Random random = new Random(seed);
+        long from = date(2023, 1, 1).getTime();
+        long to = date(2025, 1, 1).getTime();
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Date date = random.nextInt(100) == 0 ? null
+                    : new Date(from + (long) (random.nextDouble() * (to - from)));
+            Transaction transaction = transaction(1_000L * (1 + random.nextInt(2_000)),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], date, random.nextInt(4) == 0);
+            transaction.setGoalContribution(random.nextInt(20) == 0);
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    private static Transaction transaction(long amount, String category, Date date, boolean isIncome) {
+        return new Transaction(0, "Giao dịch", amount, category, date, isIncome, "", false);
+    }
+
+    private static void assertTotalsEqual(PeriodTotals expected, PeriodTotals actual) {
+        assertEquals(expected.getIncome(), actual.getIncome());
+        assertEquals(expected.getExpense(), actual.getExpense());
+        assertEquals(expected.getTransactionCount(), actual.getTransactionCount());
+        assertEquals(expected.getExpenseByCategory(), actual.getExpenseByCategory());
+    }
+
+    private static Date date(int year, int month, int day) {
+        return date(LocalDate.of(year, month, day));
+    }
+
+    private static Date date(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZONE).toInstant());
+    }
+
+    private static Date endOfDay(int year, int month, int day) {
+        return new Date(date(LocalDate.of(year, month, day).plusDays(1)).getTime() - 1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.quanlychitieu.data.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.example.quanlychitieu.data.CategoryManager;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * So sánh bộ nhớ cần cho 50 000 giao dịch khi giữ dạng danh sách Transaction
+ * và khi chuyển sang TransactionColumns (đo bằng số byte được cấp phát trên luồng hiện tại).
+ */
+public class TransactionFootprintBenchmarkTest {
+    private static final int TRANSACTIONS = 50_000;
+    private static final String[] CATEGORIES = {"Ăn uống", "Di chuyển", "Mua sắm", "Hóa đơn", "Khác"};
+
+    @BeforeClass
+    public static void setUpCategories() {
+        CategoryManager.initWithoutFirebase();
+    }
+
+    @Test
+    public void columnsUseFarLessMemoryThanTransactionObjects() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue("Allocation counters are not available on this JVM",
+                threadBean instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threadBean;
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // Khởi động JIT và nạp lớp trước khi đo
+        TransactionColumns.of(createTransactions(1_000));
+
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        List<Transaction> transactions = createTransactions(TRANSACTIONS);
+        long objectBytes = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        before = allocations.getThreadAllocatedBytes(threadId);
+        TransactionColumns columns = TransactionColumns.of(transactions);
+        long columnBytes = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        System.out.println(TRANSACTIONS + " transactions: Transaction objects " + objectBytes / TRANSACTIONS
+                + " bytes each (" + objectBytes + " total), TransactionColumns " + columnBytes / TRANSACTIONS
+                + " bytes each (" + columnBytes + " total)");
+
+        assertEquals(TRANSACTIONS, columns.size());
+        // Mỗi dòng cột gồm ngày (8), số tiền (8), id danh mục (4) và hai bit cờ
+        assertTrue(columnBytes < TRANSACTIONS * 24L);
+        assertTrue(columnBytes * 4 < objectBytes);
+    }
+
+    // Giao dịch giống dữ liệu đọc từ Firestore: mỗi tài liệu có chuỗi và Date riêng
+    private static List<Transaction> createTransactions(int count) {
+        Random random = new Random(7);
+        long now = System.currentTimeMillis();
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction(
+                    "doc" + i,
+                    i,
+                    "Giao dịch số " + i,
+                    1_000L * (1 + random.nextInt(2_000)),
+                    new String(CATEGORIES[random.nextInt(CATEGORIES.length)]),
+                    new Date(now - random.nextInt(365) * 86_400_000L),
+                    random.nextInt(4) == 0,
+                    "Ghi chú " + i,
+                    false,
+                    "user-" + (i % 3),
+                    null,
+                    null);
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+}
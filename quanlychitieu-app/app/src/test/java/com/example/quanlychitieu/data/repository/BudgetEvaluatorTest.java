@@ -0,0 +1,130 @@
+package com.example.quanlychitieu.data.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.quanlychitieu.data.model.Budget;
+import com.example.quanlychitieu.data.model.Transaction;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class BudgetEvaluatorTest {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final long now = System.currentTimeMillis();
+    private final Date start = new Date(now - 10 * DAY_MILLIS);
+    private final Date end = new Date(now + 20 * DAY_MILLIS);
+
+    @Test
+    public void writeThroughBeforeFirstSyncIsIgnored() {
+        BudgetEvaluator evaluator = new BudgetEvaluator();
+        Budget budget = budget(1_000_000, 80, 0, false);
+        evaluator.setBudgets(Collections.singletonList(budget));
+
+        Transaction first = expense("t1", 100_000, now - DAY_MILLIS);
+        evaluator.upsert(first);
+        evaluator.remove("t0");
+        assertFalse(evaluator.isLoaded());
+        assertEquals(0, budget.getSpent());
+
+        // Lượt đầu của listener đồng bộ đã gồm giao dịch vừa ghi
+        evaluator.applyChanges(Arrays.asList(first, expense("t2", 50_000, now - 2 * DAY_MILLIS)),
+                Collections.emptyList());
+        assertTrue(evaluator.isLoaded());
+        assertEquals(150_000, budget.getSpent());
+
+        // Sau đó ghi xuyên rồi delta của listener cho cùng thay đổi chỉ được tính một lần
+        Transaction third = expense("t3", 30_000, now);
+        evaluator.upsert(third);
+        evaluator.applyChanges(Collections.singletonList(third), Collections.emptyList());
+        assertEquals(180_000, budget.getSpent());
+    }
+
+    @Test
+    public void changedAmountIsReevaluated() {
+        BudgetEvaluator evaluator = new BudgetEvaluator();
+        Budget budget = budget(1_000_000, 80, 0, false);
+        evaluator.setBudgets(Collections.singletonList(budget));
+        evaluator.replaceTransactions(Collections.singletonList(expense("t1", 900_000, now - DAY_MILLIS)));
+        assertEquals(900_000, budget.getSpent());
+
+        // Tài liệu vẫn ghi đã gửi thông báo nhưng số tiền được nâng lên, chi tiêu không còn vượt ngưỡng
+        Budget raised = budget(2_000_000, 80, 900_000, true);
+        evaluator.setBudgets(Collections.singletonList(raised));
+        assertEquals(900_000, raised.getSpent());
+        assertFalse(raised.isNotificationSent());
+
+        // Đổi ngưỡng cũng được đánh giá lại
+        Budget lowered = budget(2_000_000, 40, 900_000, false);
+        evaluator.setBudgets(Collections.singletonList(lowered));
+        assertEquals(900_000, lowered.getSpent());
+    }
+
+    @Test
+    public void forecastAlertResetsOnlyWellBelowBudget() {
+        BudgetEvaluator evaluator = new BudgetEvaluator();
+        int[] alerts = {0};
+        evaluator.setForecastListener((budget, forecast) -> alerts[0]++);
+
+        // Kỳ 31 ngày: đã qua 11 ngày (gồm hôm nay), còn 20 ngày
+        LocalDate today = LocalDate.now();
+        Budget budget = new Budget(0, "user-1", "Ăn uống", 1_000_000, 0,
+                startOfDay(today.minusDays(10)), new Date(startOfDay(today.plusDays(21)).getTime() - 1),
+                "", true, 100, false);
+        budget.setFirebaseId("budget-forecast");
+        evaluator.setBudgets(Collections.singletonList(budget));
+        evaluator.replaceTransactions(Collections.emptyList());
+
+        // 60 000 mỗi ngày trong 9 ngày: dự báo tuyến tính 540 000 * 31 / 11, vượt ngân sách
+        List<Transaction> daily = new ArrayList<>();
+        for (int i = 1; i <= 9; i++) {
+            daily.add(expense("d" + i, 60_000, startOfDay(today.minusDays(i)).getTime() + 12 * 3_600_000L));
+        }
+        evaluator.applyChanges(daily, Collections.emptyList());
+        assertEquals(1, alerts[0]);
+        assertTrue(budget.isForecastAlertSent());
+
+        // Còn 330 000: dự báo khoảng 930 000, dưới ngân sách nhưng chưa đủ xa để cảnh báo lại
+        Transaction smaller = expense("d4", 30_000, daily.get(3).getDate().getTime());
+        evaluator.applyChanges(Collections.singletonList(smaller), Arrays.asList("d1", "d2", "d3"));
+        assertEquals(330_000, budget.getSpent());
+        assertTrue(budget.isForecastAlertSent());
+
+        // Trở lại vượt: không cảnh báo lần nữa
+        evaluator.applyChanges(Arrays.asList(daily.get(0), daily.get(1), daily.get(2)), Collections.emptyList());
+        assertEquals(1, alerts[0]);
+
+        // Còn 300 000: dự báo khoảng 845 000, thấp hơn ngân sách hơn 10% nên được cảnh báo lại sau này
+        evaluator.applyChanges(Collections.emptyList(), Arrays.asList("d1", "d2", "d3", "d4"));
+        assertEquals(300_000, budget.getSpent());
+        assertFalse(budget.isForecastAlertSent());
+        evaluator.applyChanges(Arrays.asList(daily.get(0), daily.get(1), daily.get(2), daily.get(3)),
+                Collections.emptyList());
+        assertEquals(2, alerts[0]);
+    }
+
+    private static Date startOfDay(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private Budget budget(long amount, int threshold, long spent, boolean notificationSent) {
+        Budget budget = new Budget(0, "user-1", "Ăn uống", amount, spent, start, end, "",
+                true, threshold, notificationSent);
+        budget.setFirebaseId("budget-1");
+        return budget;
+    }
+
+    private static Transaction expense(String firebaseId, long amount, long time) {
+        return new Transaction(firebaseId, 0, "Giao dịch", amount, "Ăn uống", new Date(time),
+                false, "", false, "user-1", null, null);
+    }
+}
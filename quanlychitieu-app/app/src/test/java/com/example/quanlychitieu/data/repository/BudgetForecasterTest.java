@@ -0,0 +1,143 @@
+package com.example.quanlychitieu.data.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.quanlychitieu.data.model.Budget;
+import com.example.quanlychitieu.data.model.BudgetForecast;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
+
+public class BudgetForecasterTest {
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final LocalDate TODAY = LocalDate.of(2024, 5, 11);
+    // 15:00 hôm nay, ngày hôm nay mới chi được một phần
+    private static final long NOW = noon(TODAY) + 3 * 3_600_000L;
+
+    private final BudgetForecaster forecaster = new BudgetForecaster();
+
+    @Test
+    public void recentModelIgnoresTodaysPartialDay() {
+        // Kỳ 01/05 - 31/05, chi đều 100 000 mỗi ngày từ 01/05 tới 10/05, hôm nay chưa chi
+        Budget budget = budget(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31), 3_000_000);
+        for (int day = 1; day <= 10; day++) {
+            spend(budget, LocalDate.of(2024, 5, day), 100_000);
+        }
+
+        BudgetForecast forecast = forecaster.forecast(budget, NOW);
+
+        assertEquals(11, forecast.getElapsedDays());
+        assertEquals(20, forecast.getRemainingDays());
+        assertEquals(1_000_000, forecast.getSpent());
+        // Tuyến tính: 1 000 000 / 11 ngày đã qua (gồm hôm nay)
+        assertEquals(1_000_000 + Math.round(1_000_000.0 / 11 * 20), forecast.getLinearProjection());
+        // Gần đây: chỉ các ngày trọn vẹn, đều 100 000 mỗi ngày
+        assertEquals(3_000_000, forecast.getWeightedProjection());
+    }
+
+    @Test
+    public void recentModelWeighsRecentDaysMore() {
+        Budget budget = budget(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31), 3_000_000);
+        spend(budget, LocalDate.of(2024, 5, 1), 500_000);
+        spend(budget, LocalDate.of(2024, 5, 10), 50_000);
+
+        BudgetForecast forecast = forecaster.forecast(budget, NOW);
+
+        // Khoản chi lớn đầu kỳ kéo mô hình tuyến tính lên nhiều hơn mô hình gần đây
+        assertTrue(forecast.getWeightedProjection() < forecast.getLinearProjection());
+    }
+
+    @Test
+    public void firstDayFallsBackToLinearRate() {
+        Budget budget = budget(TODAY, TODAY.plusDays(6), 700_000);
+        spend(budget, TODAY, 200_000);
+
+        BudgetForecast forecast = forecaster.forecast(budget, NOW);
+
+        assertEquals(1, forecast.getElapsedDays());
+        assertEquals(forecast.getLinearProjection(), forecast.getWeightedProjection());
+        assertEquals(200_000 + 200_000 * 6, forecast.getLinearProjection());
+        assertTrue(forecast.isOverrunExpected());
+    }
+
+    @Test
+    public void overrunDatesFollowEachModel() {
+        // Mỗi ngày chi 100 000, ngân sách 1 500 000: còn 500 000 sau 10 ngày, vượt sau 5 ngày nữa
+        Budget budget = budget(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31), 1_500_000);
+        for (int day = 1; day <= 10; day++) {
+            spend(budget, LocalDate.of(2024, 5, day), 100_000);
+        }
+
+        BudgetForecast forecast = forecaster.forecast(budget, NOW);
+
+        assertTrue(forecast.isOverrunExpected());
+        assertEquals(startOfDay(TODAY.plusDays(5)), forecast.getWeightedOverrunDate());
+        assertEquals(forecast.getWeightedOverrunDate(), forecast.getExpectedOverrunDate());
+    }
+
+    @Test
+    public void alreadyOverrunReportsTheDayItHappened() {
+        Budget budget = budget(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31), 250_000);
+        spend(budget, LocalDate.of(2024, 5, 2), 200_000);
+        spend(budget, LocalDate.of(2024, 5, 6), 100_000);
+
+        BudgetForecast forecast = forecaster.forecast(budget, NOW);
+
+        assertEquals(startOfDay(LocalDate.of(2024, 5, 6)), forecast.getLinearOverrunDate());
+    }
+
+    @Test
+    public void endedPeriodUsesEveryDay() {
+        Budget budget = budget(LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 30), 3_000_000);
+        spend(budget, LocalDate.of(2024, 4, 30), 300_000);
+
+        BudgetForecast forecast = forecaster.forecast(budget, NOW);
+
+        assertEquals(30, forecast.getElapsedDays());
+        assertEquals(0, forecast.getRemainingDays());
+        assertEquals(300_000, forecast.getWeightedProjection());
+        assertFalse(forecast.isOverrunExpected());
+    }
+
+    @Test
+    public void noForecastBeforeStartOrWithoutSeries() {
+        Budget future = budget(TODAY.plusDays(1), TODAY.plusDays(30), 1_000_000);
+        assertNull(forecaster.forecast(future, NOW));
+
+        Budget unknown = budget(TODAY, TODAY.plusDays(30), 1_000_000);
+        unknown.setFirebaseId("unknown");
+        assertNull(forecaster.forecast(unknown, NOW));
+
+        forecaster.retain(Collections.emptyList());
+        assertNull(forecaster.forecast(future, NOW));
+    }
+
+    private Budget budget(LocalDate start, LocalDate end, long amount) {
+        Budget budget = new Budget(0, "user-1", "Ăn uống", amount, startOfDay(start),
+                new Date(startOfDay(end.plusDays(1)).getTime() - 1));
+        budget.setFirebaseId(start + ".." + end);
+        forecaster.reset(budget);
+        return budget;
+    }
+
+    // Cộng vào chuỗi và số tiền đã chi như BudgetEvaluator
+    private void spend(Budget budget, LocalDate day, long amount) {
+        forecaster.add(budget, noon(day), amount);
+        budget.setSpent(budget.getSpent() + amount);
+    }
+
+    private static long noon(LocalDate day) {
+        return startOfDay(day).getTime() + 12 * 3_600_000L;
+    }
+
+    private static Date startOfDay(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZONE).toInstant());
+    }
+}
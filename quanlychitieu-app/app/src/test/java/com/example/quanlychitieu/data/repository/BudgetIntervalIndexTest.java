@@ -0,0 +1,90 @@
+package com.example.quanlychitieu.data.repository;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.quanlychitieu.data.model.Budget;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+public class BudgetIntervalIndexTest {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    @Test
+    public void findContainingMatchesLinearScan() {
+        Random random = new Random(23);
+        for (int size : new int[]{0, 1, 2, 7, 64, 500}) {
+            List<Budget> budgets = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                // Kỳ từ 1 ngày đến một năm, chồng lên nhau tùy ý
+                long start = random.nextInt(1_000) * DAY_MILLIS;
+                long end = start + (1 + random.nextInt(365)) * DAY_MILLIS - 1;
+                budgets.add(budget("b" + i, start, end));
+            }
+            BudgetIntervalIndex index = new BudgetIntervalIndex(budgets);
+            assertEquals(size, index.size());
+
+            for (int round = 0; round < 500; round++) {
+                long time = (random.nextInt(1_400) - 20) * DAY_MILLIS + random.nextInt((int) DAY_MILLIS);
+                assertEquals(linearScan(budgets, time), find(index, time));
+            }
+            // Đúng tại ranh giới của từng kỳ
+            for (Budget budget : budgets) {
+                for (long time : new long[]{budget.getStartDate().getTime() - 1, budget.getStartDate().getTime(),
+                        budget.getEndDate().getTime(), budget.getEndDate().getTime() + 1}) {
+                    assertEquals(linearScan(budgets, time), find(index, time));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sameStartDatesAreAllFound() {
+        List<Budget> budgets = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            budgets.add(budget("b" + i, 0, (i + 1) * DAY_MILLIS - 1));
+        }
+        BudgetIntervalIndex index = new BudgetIntervalIndex(budgets);
+
+        assertEquals(10, find(index, 0).size());
+        assertEquals(3, find(index, 7 * DAY_MILLIS).size());
+        assertEquals(0, find(index, 10 * DAY_MILLIS).size());
+    }
+
+    private static List<String> find(BudgetIntervalIndex index, long time) {
+        List<Budget> out = new ArrayList<>();
+        index.findContaining(time, out);
+        return sortedIds(out);
+    }
+
+    private static List<String> linearScan(List<Budget> budgets, long time) {
+        List<Budget> out = new ArrayList<>();
+        for (Budget budget : budgets) {
+            if (budget.getStartDate().getTime() <= time && time <= budget.getEndDate().getTime()) {
+                out.add(budget);
+            }
+        }
+        return sortedIds(out);
+    }
+
+    private static List<String> sortedIds(List<Budget> budgets) {
+        List<String> ids = new ArrayList<>();
+        for (Budget budget : budgets) {
+            ids.add(budget.getFirebaseId());
+        }
+        Collections.sort(ids, Comparator.naturalOrder());
+        return ids;
+    }
+
+    private static Budget budget(String firebaseId, long start, long end) {
+        Budget budget = new Budget(0, "user-1", "Ăn uống", 1_000_000, new Date(start), new Date(end));
+        budget.setFirebaseId(firebaseId);
+        return budget;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.quanlychitieu.data.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.quanlychitieu.data.CategoryManager;
+import com.example.quanlychitieu.data.model.PeriodTotals;
+import com.example.quanlychitieu.data.model.Transaction;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+public class DailyTotalsIndexTest {
+    private static final String USER = "user-1";
+    private static final String[] CATEGORIES = {"Ăn uống", "Di chuyển", "Mua sắm", "Hóa đơn"};
+
+    private final DailyTotalsIndex index = DailyTotalsIndex.getInstance();
+
+    @BeforeClass
+    public static void setUpCategories() {
+        CategoryManager.initWithoutFirebase();
+    }
+
+    @After
+    public void tearDown() {
+        index.clear();
+    }
+
+    @Test
+    public void fillMatchesBruteForceSums() {
+        Random random = new Random(11);
+        List<Transaction> transactions = new ArrayList<>();
+        LocalDate first = LocalDate.now().minusDays(800);
+        for (int i = 0; i < 3_000; i++) {
+            transactions.add(randomTransaction(random, "t" + i, first));
+        }
+        index.replaceAll(USER, transactions);
+
+        for (int round = 0; round < 200; round++) {
+            LocalDate from = first.plusDays(random.nextInt(830) - 15);
+            LocalDate to = from.plusDays(random.nextInt(120));
+            assertRangeMatches(transactions, from, to);
+        }
+    }
+
+    @Test
+    public void changesReplaceTheContributionOfTheDocument() {
+        Random random = new Random(12);
+        LocalDate first = LocalDate.now().minusDays(400);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            transactions.add(randomTransaction(random, "t" + i, first));
+        }
+        index.replaceAll(USER, transactions);
+
+        // Sửa, thêm và xóa qua cả listener và ghi xuyên, áp dụng lặp lại vẫn cho cùng kết quả
+        for (int i = 0; i < 300; i++) {
+            int position = random.nextInt(transactions.size());
+            Transaction changed = randomTransaction(random, transactions.get(position).getFirebaseId(), first);
+            transactions.set(position, changed);
+            index.applyChanges(USER, Collections.singletonList(changed), Collections.emptyList());
+            index.upsert(USER, changed);
+        }
+        for (int i = 0; i < 50; i++) {
+            Transaction added = randomTransaction(random, "new" + i, first);
+            transactions.add(added);
+            index.upsert(USER, added);
+            index.applyChanges(USER, Collections.singletonList(added), Collections.emptyList());
+        }
+        for (int i = 0; i < 80; i++) {
+            Transaction removed = transactions.remove(random.nextInt(transactions.size()));
+            index.remove(USER, removed.getFirebaseId());
+            index.applyChanges(USER, Collections.emptyList(), Collections.singletonList(removed.getFirebaseId()));
+        }
+
+        for (int round = 0; round < 100; round++) {
+            LocalDate from = first.plusDays(random.nextInt(420));
+            assertRangeMatches(transactions, from, from.plusDays(random.nextInt(60)));
+        }
+    }
+
+    @Test
+    public void transactionsOutsideTheTreesAreStillCounted() {
+        LocalDate today = LocalDate.now();
+        index.replaceAll(USER, Collections.singletonList(
+                transaction("a", 10_000, "Ăn uống", today, false)));
+
+        // Trước ngày đầu tiên và sau phần ngày dự phòng: chỉ mục phải dựng lại với khoảng rộng hơn
+        Transaction early = transaction("b", 20_000, "Ăn uống", today.minusYears(3), false);
+        Transaction late = transaction("c", 30_000, "Mua sắm", today.plusYears(3), true);
+        index.upsert(USER, early);
+        index.upsert(USER, late);
+
+        assertRangeMatches(Arrays.asList(transaction("a", 10_000, "Ăn uống", today, false), early, late),
+                today.minusYears(4), today.plusYears(4));
+    }
+
+    @Test
+    public void goalContributionsAreNotCounted() {
+        LocalDate today = LocalDate.now();
+        Transaction expense = transaction("a", 10_000, "Ăn uống", today, false);
+        Transaction contribution = transaction("b", 500_000, "Tiết kiệm", today, false);
+        contribution.setGoalContribution(true);
+        index.replaceAll(USER, Arrays.asList(expense, contribution));
+
+        PeriodTotals totals = new PeriodTotals(startOf(today), endOf(today));
+        assertTrue(index.fill(USER, Collections.singletonList(totals), true));
+        assertEquals(10_000, totals.getExpense());
+        assertEquals(1, totals.getTransactionCount());
+    }
+
+    @Test
+    public void fillRefusesWhenNotReadyOrRangeIsNotWholeDays() {
+        LocalDate today = LocalDate.now();
+        PeriodTotals wholeDay = new PeriodTotals(startOf(today), endOf(today));
+        assertFalse(index.fill(USER, Collections.singletonList(wholeDay), false));
+
+        // Ghi xuyên trước khi có ảnh chụp đầy đủ bị bỏ qua
+        index.upsert(USER, transaction("a", 10_000, "Ăn uống", today, false));
+        assertFalse(index.isReady(USER));
+
+        index.replaceAll(USER, Collections.emptyList());
+        assertFalse(index.fill("user-2", Collections.singletonList(wholeDay), false));
+
+        PeriodTotals partialDay = new PeriodTotals(new Date(startOf(today).getTime() + 1), endOf(today));
+        assertFalse(index.fill(USER, Collections.singletonList(partialDay), false));
+        assertEquals(0, partialDay.getTransactionCount());
+
+        assertTrue(index.fill(USER, Collections.singletonList(wholeDay), false));
+        assertEquals(0, wholeDay.getTransactionCount());
+    }
+
+    private void assertRangeMatches(List<Transaction> transactions, LocalDate from, LocalDate to) {
+        PeriodTotals expected = new PeriodTotals(startOf(from), endOf(to));
+        for (Transaction transaction : transactions) {
+            if (expected.contains(transaction.getDate())) {
+                expected.addTransaction(transaction);
+            }
+        }
+
+        PeriodTotals actual = new PeriodTotals(expected.getStartDate(), expected.getEndDate());
+        assertTrue(index.fill(USER, Collections.singletonList(actual), true));
+
+        String range = from + ".." + to;
+        assertEquals(range, expected.getIncome(), actual.getIncome());
+        assertEquals(range, expected.getExpense(), actual.getExpense());
+        assertEquals(range, expected.getTransactionCount(), actual.getTransactionCount());
+        assertEquals(range, expected.getExpenseByCategory(), actual.getExpenseByCategory());
+    }
+
+    private static Transaction randomTransaction(Random random, String firebaseId, LocalDate first) {
+        Transaction transaction = transaction(firebaseId, 1_000L * (1 + random.nextInt(1_000)),
+                CATEGORIES[random.nextInt(CATEGORIES.length)], first.plusDays(random.nextInt(800)),
+                random.nextInt(4) == 0);
+        // Giờ bất kỳ trong ngày
+        transaction.setDate(new Date(transaction.getDate().getTime() + random.nextInt(24 * 60) * 60_000L));
+        transaction.setGoalContribution(random.nextInt(25) == 0);
+        return transaction;
+    }
+
+    private static Transaction transaction(String firebaseId, long amount, String category,
+                                           LocalDate day, boolean isIncome) {
+        return new Transaction(firebaseId, 0, "Giao dịch", amount, category, startOf(day),
+                isIncome, "", false, USER, null, null);
+    }
+
+    private static Date startOf(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static Date endOf(LocalDate day) {
+        return new Date(startOf(day.plusDays(1)).getTime() - 1);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.quanlychitieu.data.repository;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.firebase.firestore.Query;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+public class ListenerKeysTest {
+    @Test
+    public void collectionAndDocumentKeys() {
+        assertEquals("users/u1/transactions", ListenerKeys.collection("u1", "transactions"));
+        assertEquals("users/u1/goals/g1", ListenerKeys.document("u1", "goals", "g1"));
+    }
+
+    @Test
+    public void queryKeyListsConditionsInOrder() {
+        String key = ListenerKeys.query("u1", "transactions")
+                .where("date", ">=", new Date(1000))
+                .where("date", "<=", new Date(2000))
+                .orderBy("date", Query.Direction.DESCENDING)
+                .build();
+        assertEquals("users/u1/transactions?date>=1000&date<=2000&orderBy=date desc", key);
+    }
+
+    @Test
+    public void sameQueryBuildsSameKey() {
+        Date startOfToday = new Date(1735664400000L);
+        String first = ListenerKeys.query("u1", "budgets")
+                .where("endDate", ">=", startOfToday)
+                .orderBy("endDate", Query.Direction.ASCENDING)
+                .build();
+        String second = ListenerKeys.query("u1", "budgets")
+                .where("endDate", ">=", new Date(startOfToday.getTime()))
+                .orderBy("endDate", Query.Direction.ASCENDING)
+                .build();
+        assertEquals(first, second);
+        assertEquals("users/u1/budgets?endDate>=1735664400000&orderBy=endDate asc", first);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.quanlychitieu.data.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.example.quanlychitieu.data.model.Transaction;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class TransactionPagerTest {
+    private static final int PAGE_SIZE = TransactionPager.PAGE_SIZE;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Test
+    public void loadsPagesInOrderUntilTheEnd() {
+        FakeSource source = new FakeSource(PAGE_SIZE * 2 + 10);
+        TransactionPager<Integer> pager = new TransactionPager<>(source, Runnable::run);
+
+        pager.loadNextPage();
+        pager.loadNextPage();
+        assertTrue(pager.hasMore());
+        pager.loadNextPage();
+
+        assertFalse(pager.hasMore());
+        assertIds(pager, 0, PAGE_SIZE * 2 + 10);
+        // Đã hết dữ liệu nên không gọi nguồn thêm lần nào
+        pager.loadNextPage();
+        assertEquals(3, source.requests.size());
+    }
+
+    @Test
+    public void windowEvictsTheFirstPageWhenScrollingDown() {
+        FakeSource source = new FakeSource(PAGE_SIZE * 10);
+        TransactionPager<Integer> pager = new TransactionPager<>(source, Runnable::run);
+
+        for (int i = 0; i < 7; i++) {
+            pager.loadNextPage();
+        }
+
+        // Cửa sổ 5 trang: trang 2..6
+        assertIds(pager, PAGE_SIZE * 2, PAGE_SIZE * 7);
+        assertTrue(pager.hasMore());
+    }
+
+    @Test
+    public void previousPageReloadsFromItsStartCursorAndEvictsTheLastPage() {
+        FakeSource source = new FakeSource(PAGE_SIZE * 7);
+        TransactionPager<Integer> pager = new TransactionPager<>(source, Runnable::run);
+        for (int i = 0; i < 7; i++) {
+            pager.loadNextPage();
+        }
+        assertFalse(pager.hasMore());
+        assertIds(pager, PAGE_SIZE * 2, PAGE_SIZE * 7);
+
+        pager.loadPreviousPage();
+
+        // Trang 1 bắt đầu sau phần tử cuối của trang 0
+        assertEquals(Integer.valueOf(PAGE_SIZE - 1), source.requests.get(source.requests.size() - 1));
+        assertIds(pager, PAGE_SIZE, PAGE_SIZE * 6);
+        // Trang cuối bị loại nên phải cho phép tải lại nó
+        assertTrue(pager.hasMore());
+
+        pager.loadNextPage();
+
+        assertEquals(Integer.valueOf(PAGE_SIZE * 6 - 1), source.requests.get(source.requests.size() - 1));
+        assertIds(pager, PAGE_SIZE * 2, PAGE_SIZE * 7);
+        assertFalse(pager.hasMore());
+    }
+
+    @Test
+    public void previousPageStopsAtTheFirstPage() {
+        FakeSource source = new FakeSource(PAGE_SIZE * 10);
+        TransactionPager<Integer> pager = new TransactionPager<>(source, Runnable::run);
+        for (int i = 0; i < 6; i++) {
+            pager.loadNextPage();
+        }
+
+        pager.loadPreviousPage();
+        assertIds(pager, 0, PAGE_SIZE * 5);
+        int requests = source.requests.size();
+
+        pager.loadPreviousPage();
+        assertEquals(requests, source.requests.size());
+    }
+
+    @Test
+    public void ignoresRequestsWhileAPageIsLoading() {
+        List<Runnable> pending = new ArrayList<>();
+        FakeSource source = new FakeSource(PAGE_SIZE * 3);
+        TransactionPager<Integer> pager = new TransactionPager<>(source, pending::add);
+
+        pager.loadNextPage();
+        pager.loadNextPage();
+        assertEquals(1, source.requests.size());
+        assertTrue(pager.getIsLoading().getValue());
+
+        pending.remove(0).run();
+        assertFalse(pager.getIsLoading().getValue());
+        pager.loadNextPage();
+        assertEquals(2, source.requests.size());
+    }
+
+    @Test
+    public void emptyPageLoadsTheNextOneImmediately() {
+        FakeSource source = new FakeSource(PAGE_SIZE * 2);
+        source.emptyPages.add(0);
+        TransactionPager<Integer> pager = new TransactionPager<>(source, Runnable::run);
+
+        pager.loadNextPage();
+
+        assertEquals(2, source.requests.size());
+        assertIds(pager, 0, PAGE_SIZE);
+    }
+
+    @Test
+    public void errorOnFirstPagePublishesEmptyListAndAllowsRetry() {
+        FakeSource source = new FakeSource(PAGE_SIZE);
+        source.failNext = true;
+        TransactionPager<Integer> pager = new TransactionPager<>(source, Runnable::run);
+
+        pager.loadNextPage();
+        assertTrue(pager.getItems().getValue().isEmpty());
+        assertFalse(pager.getIsLoading().getValue());
+
+        pager.loadNextPage();
+        assertIds(pager, 0, PAGE_SIZE);
+        assertFalse(pager.hasMore());
+    }
+
+    private static void assertIds(TransactionPager<Integer> pager, int from, int to) {
+        List<Transaction> items = pager.getItems().getValue();
+        assertEquals(to - from, items.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals("t" + (from + i), items.get(i).getFirebaseId());
+        }
+    }
+
+    /**
+     * Nguồn dữ liệu giả gồm count giao dịch t0..t(count-1), con trỏ là vị trí của phần tử cuối trang.
+     * Ghi lại con trỏ của từng lần gọi.
+     */
+    private static class FakeSource implements TransactionPager.PageSource<Integer> {
+        final int count;
+        final List<Integer> requests = new ArrayList<>();
+        // Các trang (theo số lần gọi) trả về rỗng dù chưa hết dữ liệu, như khi lọc phía client
+        final List<Integer> emptyPages = new ArrayList<>();
+        boolean failNext = false;
+
+        FakeSource(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void loadPage(Integer startAfter, int limit, TransactionPager.PageCallback<Integer> callback) {
+            int call = requests.size();
+            requests.add(startAfter);
+            if (failNext) {
+                failNext = false;
+                callback.onError(new Exception("offline"));
+                return;
+            }
+            if (emptyPages.contains(call)) {
+                callback.onPageLoaded(Collections.emptyList(), startAfter, false);
+                return;
+            }
+
+            int from = startAfter == null ? 0 : startAfter + 1;
+            int to = Math.min(count, from + limit);
+            List<Transaction> items = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                items.add(new Transaction("t" + i, i, "Giao dịch", -1_000, "Ăn uống",
+                        new Date(1_700_000_000_000L - i * 60_000L), false, "", false, "user-1", null, null));
+            }
+            callback.onPageLoaded(items, to - 1, to >= count);
+        }
+    }
+}
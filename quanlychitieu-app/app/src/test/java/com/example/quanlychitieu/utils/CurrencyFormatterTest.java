@@ -0,0 +1,28 @@
+package com.example.quanlychitieu.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class CurrencyFormatterTest {
+    @Test
+    public void toAmountKeepsLongValues() {
+        assertEquals(150_000L, CurrencyFormatter.toAmount(150_000L));
+        assertEquals(-150_000L, CurrencyFormatter.toAmount(-150_000L));
+        assertEquals(42L, CurrencyFormatter.toAmount(42));
+    }
+
+    @Test
+    public void toAmountRoundsLegacyDoubles() {
+        assertEquals(150_000L, CurrencyFormatter.toAmount(150_000.0));
+        assertEquals(100_001L, CurrencyFormatter.toAmount(100_000.6));
+        assertEquals(-100_001L, CurrencyFormatter.toAmount(-100_000.6));
+        assertEquals(3L, CurrencyFormatter.toAmount(2.5f));
+    }
+
+    @Test
+    public void toAmountTreatsMissingOrInvalidValuesAsZero() {
+        assertEquals(0L, CurrencyFormatter.toAmount(null));
+        assertEquals(0L, CurrencyFormatter.toAmount("150000"));
+    }
+}
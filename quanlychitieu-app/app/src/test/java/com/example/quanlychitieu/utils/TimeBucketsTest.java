@@ -0,0 +1,102 @@
+package com.example.quanlychitieu.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Random;
+
+public class TimeBucketsTest {
+    private static final ZoneId VIETNAM = ZoneId.of("Asia/Ho_Chi_Minh");
+    // Múi giờ có giờ mùa hè, để kiểm tra các ngày 23 và 25 giờ
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    @Test
+    public void unitForPicksUnitByRangeLength() {
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        assertEquals(TimeBuckets.Unit.DAY, TimeBuckets.unitFor(date(start, VIETNAM), date(start.plusDays(31), VIETNAM)));
+        assertEquals(TimeBuckets.Unit.WEEK, TimeBuckets.unitFor(date(start, VIETNAM), date(start.plusDays(60), VIETNAM)));
+        assertEquals(TimeBuckets.Unit.MONTH, TimeBuckets.unitFor(date(start, VIETNAM), date(start.plusDays(300), VIETNAM)));
+        assertEquals(TimeBuckets.Unit.YEAR, TimeBuckets.unitFor(date(start, VIETNAM), date(start.plusDays(800), VIETNAM)));
+    }
+
+    @Test
+    public void bucketsCoverTheRangeWithoutGaps() {
+        for (ZoneId zone : new ZoneId[]{VIETNAM, NEW_YORK}) {
+            for (TimeBuckets.Unit unit : TimeBuckets.Unit.values()) {
+                Date start = new Date(date(LocalDate.of(2023, 11, 15), zone).getTime() + 5 * 3_600_000L);
+                Date end = endOf(LocalDate.of(2025, 3, 20), zone);
+                TimeBuckets buckets = new TimeBuckets(start, end, unit, zone);
+
+                assertEquals(start, buckets.getStart(0));
+                assertEquals(end, buckets.getEnd(buckets.size() - 1));
+                for (int i = 0; i + 1 < buckets.size(); i++) {
+                    assertEquals(buckets.getEnd(i).getTime() + 1, buckets.getStart(i + 1).getTime());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void indexOfMatchesBucketBoundaries() {
+        Random random = new Random(5);
+        for (ZoneId zone : new ZoneId[]{VIETNAM, NEW_YORK}) {
+            for (TimeBuckets.Unit unit : TimeBuckets.Unit.values()) {
+                Date start = date(LocalDate.of(2022, 2, 9), zone);
+                Date end = endOf(LocalDate.of(2025, 11, 2), zone);
+                TimeBuckets buckets = new TimeBuckets(start, end, unit, zone);
+
+                for (int i = 0; i < buckets.size(); i++) {
+                    assertEquals(i, buckets.indexOf(buckets.getStart(i).getTime()));
+                    assertEquals(i, buckets.indexOf(buckets.getEnd(i).getTime()));
+                }
+                for (int round = 0; round < 2_000; round++) {
+                    long time = start.getTime() + (long) (random.nextDouble() * (end.getTime() - start.getTime()));
+                    int index = buckets.indexOf(time);
+                    assertTrue(buckets.getStart(index).getTime() <= time
+                            && time <= buckets.getEnd(index).getTime());
+                }
+                assertEquals(-1, buckets.indexOf(start.getTime() - 1));
+                assertEquals(-1, buckets.indexOf(end.getTime() + 1));
+            }
+        }
+    }
+
+    @Test
+    public void firstWeekLabelStartsAtRangeStart() {
+        // 10/04/2024 là thứ Tư, tuần ISO chứa nó bắt đầu từ thứ Hai 08/04
+        TimeBuckets buckets = new TimeBuckets(date(LocalDate.of(2024, 4, 10), VIETNAM),
+                endOf(LocalDate.of(2024, 6, 30), VIETNAM), TimeBuckets.Unit.WEEK, VIETNAM);
+
+        assertEquals("10/04", buckets.label(0));
+        assertEquals("15/04", buckets.label(1));
+        assertEquals("24/06", buckets.label(buckets.size() - 1));
+    }
+
+    @Test
+    public void monthAndYearLabels() {
+        TimeBuckets months = new TimeBuckets(date(LocalDate.of(2024, 3, 18), VIETNAM),
+                endOf(LocalDate.of(2024, 12, 31), VIETNAM), TimeBuckets.Unit.MONTH, VIETNAM);
+        assertEquals(10, months.size());
+        assertEquals("03/2024", months.label(0));
+        assertEquals("04/2024", months.label(1));
+
+        TimeBuckets years = new TimeBuckets(date(LocalDate.of(2022, 7, 1), VIETNAM),
+                endOf(LocalDate.of(2024, 12, 31), VIETNAM), TimeBuckets.Unit.YEAR, VIETNAM);
+        assertEquals(3, years.size());
+        assertEquals("2022", years.label(0));
+        assertEquals("2024", years.label(2));
+    }
+
+    private static Date date(LocalDate day, ZoneId zone) {
+        return Date.from(day.atStartOfDay(zone).toInstant());
+    }
+
+    private static Date endOf(LocalDate day, ZoneId zone) {
+        return new Date(date(day.plusDays(1), zone).getTime() - 1);
+    }
+}